@@ -0,0 +1,53 @@
+#!/usr/bin/env bash
+# Compares throughput and p99 latency of the default platform thread pool against the
+# virtual thread mode, using the same Java 21 build for both runs.
+#
+# Needs: Java 21, hey (https://github.com/rakyll/hey), and postgres/kafka from
+# docker-compose running. Usage:
+#   ./mvnw -Pvirtual-threads clean package -DskipTests
+#   scripts/compare-thread-modes.sh [concurrency] [duration]
+set -euo pipefail
+
+CONCURRENCY=${1:-1000}
+DURATION=${2:-30s}
+BASE_URL=${BASE_URL:-http://localhost:8080}
+JAR=$(ls target/credit-card-app-*.jar | grep -v original | head -n 1)
+
+# Latency-bound endpoints: a DB lookup and a page query
+ENDPOINTS=(
+  "/api/v1/clients/12345678901"
+  "/api/v1/clients?page=0&size=20"
+)
+
+run_mode() {
+  local mode=$1
+  local profiles=$2
+
+  echo "=== ${mode} ==="
+  java -jar "$JAR" --spring.profiles.active="$profiles" --logging.level.root=WARN \
+    --spring.jpa.show-sql=false > "target/compare-${mode}.log" 2>&1 &
+  local pid=$!
+  trap "kill $pid 2>/dev/null || true" EXIT
+
+  until curl -sf "${BASE_URL}/api/v1/clients?size=1" > /dev/null; do sleep 1; done
+
+  for endpoint in "${ENDPOINTS[@]}"; do
+    # Warm-up, then the measured run
+    hey -z 10s -c 50 "${BASE_URL}${endpoint}" > /dev/null
+    hey -z "$DURATION" -c "$CONCURRENCY" "${BASE_URL}${endpoint}" > "target/compare-${mode}.txt"
+    local rps p99
+    rps=$(awk '/Requests\/sec/ {print $2}' "target/compare-${mode}.txt")
+    p99=$(awk '/ 99% in / {print $3 * 1000}' "target/compare-${mode}.txt")
+    printf "%-40s %10s req/s   p99 %8s ms\n" "$endpoint" "$rps" "$p99"
+  done
+
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  trap - EXIT
+}
+
+echo "Concurrency: ${CONCURRENCY}, duration: ${DURATION}"
+run_mode platform default
+run_mode virtual virtual-threads
+echo "Pinning reports (virtual mode):"
+grep -c "Virtual thread pinned" target/compare-virtual.log || true
@@ -0,0 +1,5 @@
+#!/bin/sh
+# Lets the postgres-replica service take a base backup and stream WAL.
+# Only runs when the primary's data directory is first initialised.
+set -e
+echo "host replication all all trust" >> "$PGDATA/pg_hba.conf"
@@ -0,0 +1,116 @@
+package com.rba.creditcardapp.dto;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialization of the payloads on the Kafka and REST paths, with an
+ * {@link ObjectMapper} configured the way Spring Boot configures its own.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2025, 1, 1, 10, 0);
+
+    @Param({"20"})
+    public int pageSize;
+
+    private ObjectWriter cardStatusUpdateWriter;
+    private ObjectReader cardStatusUpdateReader;
+    private ObjectWriter clientResponseWriter;
+    private ObjectReader clientResponseReader;
+    private ObjectWriter pageResponseWriter;
+    private ObjectReader pageResponseReader;
+
+    private CardStatusUpdate cardStatusUpdate;
+    private ClientResponse clientResponse;
+    private PageResponse<ClientResponse> pageResponse;
+
+    private byte[] cardStatusUpdateJson;
+    private byte[] clientResponseJson;
+    private byte[] pageResponseJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        cardStatusUpdateWriter = objectMapper.writerFor(CardStatusUpdate.class);
+        cardStatusUpdateReader = objectMapper.readerFor(CardStatusUpdate.class);
+        clientResponseWriter = objectMapper.writerFor(ClientResponse.class);
+        clientResponseReader = objectMapper.readerFor(ClientResponse.class);
+        TypeReference<PageResponse<ClientResponse>> pageType = new TypeReference<>() {
+        };
+        pageResponseWriter = objectMapper.writerFor(pageType);
+        pageResponseReader = objectMapper.readerFor(pageType);
+
+        cardStatusUpdate = new CardStatusUpdate("12345678901", "APPROVED", "Card approved", TIMESTAMP);
+        clientResponse = client(1);
+        List<ClientResponse> content = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            content.add(client(i));
+        }
+        pageResponse = new PageResponse<>(new PageImpl<>(content, PageRequest.of(0, pageSize), 1000));
+
+        cardStatusUpdateJson = cardStatusUpdateWriter.writeValueAsBytes(cardStatusUpdate);
+        clientResponseJson = clientResponseWriter.writeValueAsBytes(clientResponse);
+        pageResponseJson = pageResponseWriter.writeValueAsBytes(pageResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeCardStatusUpdate() throws IOException {
+        return cardStatusUpdateWriter.writeValueAsBytes(cardStatusUpdate);
+    }
+
+    @Benchmark
+    public CardStatusUpdate deserializeCardStatusUpdate() throws IOException {
+        return cardStatusUpdateReader.readValue(cardStatusUpdateJson);
+    }
+
+    @Benchmark
+    public byte[] serializeClientResponse() throws IOException {
+        return clientResponseWriter.writeValueAsBytes(clientResponse);
+    }
+
+    @Benchmark
+    public ClientResponse deserializeClientResponse() throws IOException {
+        return clientResponseReader.readValue(clientResponseJson);
+    }
+
+    @Benchmark
+    public byte[] serializePageResponse() throws IOException {
+        return pageResponseWriter.writeValueAsBytes(pageResponse);
+    }
+
+    @Benchmark
+    public PageResponse<ClientResponse> deserializePageResponse() throws IOException {
+        return pageResponseReader.readValue(pageResponseJson);
+    }
+
+    private static ClientResponse client(int i) {
+        return ClientResponse.builder()
+                .id((long) i)
+                .firstName("Ivan" + i)
+                .lastName("Horvat")
+                .oib(String.format("%011d", i))
+                .cardStatus("APPROVED")
+                .createdAt(TIMESTAMP)
+                .updatedAt(TIMESTAMP)
+                .build();
+    }
+}
@@ -0,0 +1,38 @@
+package com.rba.creditcardapp.kafka;
+
+import com.rba.creditcardapp.dto.CardStatusUpdate;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CardStatusConsumer#isValidStatusUpdate} runs once per consumed record. The
+ * status is looked up in a list of known values, so the cost depends on its position
+ * and case.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatusValidationBenchmark {
+
+    @Param({"PENDING", "SHIPPED", "shipped"})
+    public String status;
+
+    private CardStatusConsumer consumer;
+    private CardStatusUpdate update;
+
+    @Setup
+    public void setUp() {
+        consumer = new CardStatusConsumer(null, null, null);
+        update = new CardStatusUpdate("12345678901", status, "benchmark", LocalDateTime.of(2025, 1, 1, 10, 0));
+    }
+
+    @Benchmark
+    public boolean isValidStatusUpdate() {
+        return consumer.isValidStatusUpdate(update);
+    }
+}
@@ -0,0 +1,33 @@
+package com.rba.creditcardapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ClientService#validateOib} runs on every status update and lookup.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidateOibBenchmark {
+
+    @Param({"12345678901", "98765432109"})
+    public String oib;
+
+    private ClientService clientService;
+
+    @Setup
+    public void setUp() {
+        clientService = new ClientService(null, null, null, null, null, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public void validateOib() {
+        clientService.validateOib(oib);
+    }
+}
@@ -0,0 +1,53 @@
+package com.rba.creditcardapp.utils;
+
+import com.rba.creditcardapp.dto.ClientRequest;
+import com.rba.creditcardapp.dto.ClientResponse;
+import com.rba.creditcardapp.model.CardStatus;
+import com.rba.creditcardapp.model.Client;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientMapperBenchmark {
+
+    private ClientMapper mapper;
+    private Client client;
+    private ClientRequest request;
+
+    @Setup
+    public void setUp() {
+        mapper = new ClientMapper();
+        client = Client.builder()
+                .id(42L)
+                .firstName("Ivan")
+                .lastName("Horvat")
+                .oib("12345678901")
+                .cardStatus(CardStatus.APPROVED)
+                .createdAt(LocalDateTime.of(2025, 1, 1, 10, 0))
+                .updatedAt(LocalDateTime.of(2025, 1, 2, 10, 0))
+                .build();
+        request = ClientRequest.builder()
+                .firstName("Ivan")
+                .lastName("Horvat")
+                .oib("12345678901")
+                .cardStatus("PENDING")
+                .build();
+    }
+
+    @Benchmark
+    public ClientResponse toResponse() {
+        return mapper.toResponse(client);
+    }
+
+    @Benchmark
+    public Client toEntity() {
+        return mapper.toEntity(request);
+    }
+}
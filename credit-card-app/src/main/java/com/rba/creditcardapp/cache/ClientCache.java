@@ -0,0 +1,121 @@
+package com.rba.creditcardapp.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.rba.creditcardapp.dto.ClientResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Size- and TTL-bounded cache of client lookups by OIB.
+ * <p>
+ * Unknown OIBs are cached as empty entries with their own, shorter TTL. Puts and
+ * invalidations made inside a transaction are applied only after it commits, so
+ * readers never see uncommitted state and rolled back writes leave no trace.
+ */
+@Component
+public class ClientCache {
+
+    private final boolean enabled;
+    private final Cache<String, Optional<ClientResponse>> cache;
+
+    public ClientCache(@Value("${client.cache.enabled:true}") boolean enabled,
+                       @Value("${client.cache.max-size:10000}") long maxSize,
+                       @Value("${client.cache.ttl:30s}") Duration ttl,
+                       @Value("${client.cache.negative-ttl:5s}") Duration negativeTtl) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new PositiveNegativeExpiry(ttl.toNanos(), negativeTtl.toNanos()))
+                .recordStats()
+                .build();
+    }
+
+    public Optional<ClientResponse> get(String oib, Function<String, Optional<ClientResponse>> loader) {
+        if (!enabled) {
+            return loader.apply(oib);
+        }
+        return cache.get(oib, loader);
+    }
+
+    /**
+     * The cached lookup result for the OIB, empty if it is cached as unknown, or
+     * {@code null} if it is not cached at all.
+     */
+    public Optional<ClientResponse> getIfPresent(String oib) {
+        return enabled ? cache.getIfPresent(oib) : null;
+    }
+
+    public void put(ClientResponse client) {
+        if (client == null || client.getOib() == null) {
+            throw new IllegalArgumentException("Cannot cache a client without an OIB");
+        }
+        afterCommit(() -> cache.put(client.getOib(), Optional.of(client)));
+    }
+
+    public void invalidate(String oib) {
+        afterCommit(() -> cache.invalidate(oib));
+    }
+
+    public void invalidateAll(Collection<String> oibs) {
+        afterCommit(() -> cache.invalidateAll(oibs));
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    public Cache<String, Optional<ClientResponse>> getNativeCache() {
+        return cache;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record PositiveNegativeExpiry(long ttlNanos, long negativeTtlNanos)
+            implements Expiry<String, Optional<ClientResponse>> {
+
+        @Override
+        public long expireAfterCreate(String oib, Optional<ClientResponse> client, long currentTime) {
+            return client.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String oib, Optional<ClientResponse> client,
+                                      long currentTime, long currentDuration) {
+            return expireAfterCreate(oib, client, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String oib, Optional<ClientResponse> client,
+                                    long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
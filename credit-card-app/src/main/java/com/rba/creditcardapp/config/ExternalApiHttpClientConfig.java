@@ -0,0 +1,59 @@
+package com.rba.creditcardapp.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP client used for the external card API.
+ * <p>
+ * The JDK client keeps idle HTTP/1.1 connections in a pool and completes requests
+ * asynchronously on a small executor, so no caller thread waits on the network. Its
+ * pool size and keep-alive are JVM-wide system properties that are read once when the
+ * first client is created; they are only set here if not already given on the command line.
+ */
+@Configuration
+public class ExternalApiHttpClientConfig {
+
+    /**
+     * Runs response handling and completion stages. With {@code spring.threads.virtual.enabled}
+     * (Java 21 only) every task gets its own virtual thread instead of a fixed pool.
+     */
+    @Bean
+    public Executor externalApiExecutor(@Value("${external.api.http.executor-threads:4}") int threads,
+                                        @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return new VirtualThreadTaskExecutor("external-api-");
+        }
+        return Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("external-api-"));
+    }
+
+    @Bean
+    public HttpClient externalApiHttpClient(Executor externalApiExecutor,
+                                            @Value("${external.api.http.connect-timeout:2s}") Duration connectTimeout,
+                                            @Value("${external.api.http.max-connections:50}") int maxConnections,
+                                            @Value("${external.api.http.keep-alive:30s}") Duration keepAlive) {
+        setIfAbsent("jdk.httpclient.connectionPoolSize", String.valueOf(maxConnections));
+        setIfAbsent("jdk.httpclient.keepalive.timeout", String.valueOf(keepAlive.toSeconds()));
+
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(externalApiExecutor)
+                .build();
+    }
+
+    private static void setIfAbsent(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.rba.creditcardapp.config;
+
+import com.rba.creditcardapp.resilience.CircuitBreaker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class ExternalApiResilienceConfig {
+
+    /**
+     * Breaker around the external card API. State changes are published as
+     * {@link com.rba.creditcardapp.resilience.CircuitBreakerStateChangedEvent}s.
+     */
+    @Bean
+    public CircuitBreaker externalApiCircuitBreaker(
+            ApplicationEventPublisher eventPublisher,
+            @Value("${external.api.circuit-breaker.window-size:20}") int windowSize,
+            @Value("${external.api.circuit-breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${external.api.circuit-breaker.failure-rate-threshold:50}") int failureRateThreshold,
+            @Value("${external.api.circuit-breaker.open-duration:30s}") Duration openDuration,
+            @Value("${external.api.circuit-breaker.half-open-calls:3}") int halfOpenCalls) {
+        return new CircuitBreaker("external-card-api", windowSize, minimumCalls, failureRateThreshold,
+                openDuration, halfOpenCalls, eventPublisher::publishEvent);
+    }
+}
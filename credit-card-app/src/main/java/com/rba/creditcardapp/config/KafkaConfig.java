@@ -1,55 +1,242 @@
 package com.rba.creditcardapp.config;
 
+import com.rba.creditcardapp.kafka.CardStatusDeduplicator;
+import com.rba.creditcardapp.kafka.CardStatusParallelConsumer;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Configuration
 public class KafkaConfig {
 
+    /**
+     * Suffix of the dead-letter topic, shared by the retry topics of the record
+     * listener and the error handler of the batch listener.
+     */
+    public static final String DLT_SUFFIX = "-dlt";
+
+    private final MeterRegistry meterRegistry;
+
     @Value("${spring.kafka.bootstrap-servers:localhost:9093}")
     private String bootstrapServers;
 
     @Value("${spring.kafka.consumer.group-id:card-status-group}")
     private String groupId;
 
+    @Value("${kafka.consumer.concurrency:3}")
+    private int concurrency;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${kafka.consumer.batch.max-poll-records:500}")
+    private int batchMaxPollRecords;
+
+    @Value("${kafka.consumer.retry.attempts:4}")
+    private int retryAttempts;
+
+    @Value("${kafka.consumer.retry.backoff.initial-interval:1000}")
+    private long retryInitialInterval;
+
+    @Value("${kafka.consumer.retry.backoff.multiplier:2}")
+    private double retryMultiplier;
+
+    @Value("${kafka.consumer.retry.backoff.max-interval:10000}")
+    private long retryMaxInterval;
+
+    @Value("${kafka.producer.profile:latency}")
+    private String producerProfile;
+
+    @Value("${kafka.producer.linger-ms:#{null}}")
+    private Integer producerLingerMs;
+
+    @Value("${kafka.producer.batch-size:#{null}}")
+    private Integer producerBatchSize;
+
+    @Value("${kafka.producer.compression-type:#{null}}")
+    private String producerCompressionType;
+
+    @Value("${kafka.producer.enable-idempotence:#{null}}")
+    private Boolean producerIdempotence;
+
+    public KafkaConfig(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     @Bean
     public ConsumerFactory<String, Object> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        // A record that is not valid JSON reaches the error handler as a DeserializationException
+        // and goes to the dead-letter topic, instead of failing every poll at the same offset
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
 
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.rba.creditcardapp.dto");
         props.put(JsonDeserializer.TYPE_MAPPINGS, "cardStatusUpdate:com.rba.creditcardapp.dto.CardStatusUpdate");
 
-        return new DefaultKafkaConsumerFactory<>(props);
+        return withClientMetrics(new DefaultKafkaConsumerFactory<>(props));
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory(
+            CardStatusDeduplicator deduplicator) {
         ConcurrentKafkaListenerContainerFactory<String, Object> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.getContainerProperties().setConsumerRebalanceListener(deduplicator);
+        configureListenerThreads(factory);
+
+        return factory;
+    }
 
-        factory.setConcurrency(3); // 3 listener threads
+    /**
+     * Batch listener factory used when {@code kafka.consumer.batch.enabled=true}.
+     * Each poll is handed to the listener as a single list so it can be coalesced
+     * per OIB and written with one set-based UPDATE.
+     * <p>
+     * Retry topics do not work for batch listeners, so the listener reports the record
+     * that failed and the error handler commits the ones before it, then redelivers the
+     * rest in place with the same backoff as the retry topics. Once the attempts are used
+     * up the failed record goes to the dead-letter topic. A record that could not be read
+     * is sent there right away.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> batchKafkaListenerContainerFactory(
+            CardStatusDeduplicator deduplicator) {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(batchConsumerFactory());
+        factory.getContainerProperties().setConsumerRebalanceListener(deduplicator);
+        factory.setBatchListener(true);
+        factory.setCommonErrorHandler(batchErrorHandler());
+        configureListenerThreads(factory);
 
         return factory;
     }
 
+    /**
+     * One consumer thread per unit of concurrency. With {@code spring.threads.virtual.enabled}
+     * (Java 21 only) those threads are virtual, so a listener blocked on JDBC does not hold
+     * a platform thread.
+     */
+    private void configureListenerThreads(ConcurrentKafkaListenerContainerFactory<String, Object> factory) {
+        factory.setConcurrency(concurrency);
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("kafka-listener-");
+            executor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(executor);
+        }
+    }
+
+    /**
+     * Parallel listener factory used when {@code kafka.consumer.parallel.enabled=true}.
+     * The listener acknowledges records itself, once every record before them in their
+     * partition is done. Records that cannot be read are dead-lettered without being
+     * acknowledged, so the commit never skips over records still in progress.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> parallelKafkaListenerContainerFactory(
+            CardStatusParallelConsumer parallelConsumer) {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(parallelConsumer);
+
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(cardStatusDeadLetterRecoverer(), new FixedBackOff(0, 0));
+        errorHandler.setAckAfterHandle(false);
+        factory.setCommonErrorHandler(errorHandler);
+        configureListenerThreads(factory);
+
+        return factory;
+    }
+
+    /**
+     * Writes failed card status records to {@code <topic>-dlt}, into the partition they
+     * came from.
+     */
+    @Bean
+    public DeadLetterPublishingRecoverer cardStatusDeadLetterRecoverer() {
+        return new DeadLetterPublishingRecoverer(deadLetterKafkaTemplate(),
+                (record, e) -> new TopicPartition(record.topic() + DLT_SUFFIX, record.partition()));
+    }
+
+    private DefaultErrorHandler batchErrorHandler() {
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(retryAttempts - 1);
+        backOff.setInitialInterval(retryInitialInterval);
+        backOff.setMultiplier(retryMultiplier);
+        backOff.setMaxInterval(retryMaxInterval);
+
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(cardStatusDeadLetterRecoverer(), backOff);
+        // Payloads that cannot be read or applied fail the same way on every attempt
+        errorHandler.addNotRetryableExceptions(IllegalArgumentException.class);
+        return errorHandler;
+    }
+
+    /**
+     * Reads the dead-letter topic for replay. Values stay raw bytes, so records that
+     * never deserialized can be read too, and offsets are only committed after a record
+     * was republished.
+     */
+    @Bean
+    public ConsumerFactory<String, byte[]> deadLetterConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId + DLT_SUFFIX + "-replay");
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    private ConsumerFactory<String, Object> batchConsumerFactory() {
+        Map<String, Object> props = new HashMap<>(consumerFactory().getConfigurationProperties());
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords);
+
+        return withClientMetrics(new DefaultKafkaConsumerFactory<>(props));
+    }
+
+    /**
+     * Publishes the Kafka client's own metrics (kafka.consumer.*), among them
+     * {@code records-lag} and {@code records-lag-max} per partition.
+     */
+    private ConsumerFactory<String, Object> withClientMetrics(DefaultKafkaConsumerFactory<String, Object> factory) {
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
+    }
+
     @Bean
     public ProducerFactory<String, Object> producerFactory() {
         Map<String, Object> props = new HashMap<>();
@@ -59,11 +246,41 @@ public class KafkaConfig {
         props.put(ProducerConfig.ACKS_CONFIG, "all"); // Wait for all replicas
         props.put(ProducerConfig.RETRIES_CONFIG, 3); // Retry 3 times
 
-        return new DefaultKafkaProducerFactory<>(props);
+        KafkaProducerProfile profile = KafkaProducerProfile.valueOf(producerProfile.trim().toUpperCase());
+        props.put(ProducerConfig.LINGER_MS_CONFIG,
+                producerLingerMs != null ? producerLingerMs : profile.getLingerMs());
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG,
+                producerBatchSize != null ? producerBatchSize : profile.getBatchSize());
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG,
+                producerCompressionType != null ? producerCompressionType : profile.getCompressionType());
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG,
+                producerIdempotence != null ? producerIdempotence : profile.isIdempotence());
+
+        DefaultKafkaProducerFactory<String, Object> factory = new DefaultKafkaProducerFactory<>(props);
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
     }
 
     @Bean
+    @Primary
     public KafkaTemplate<String, Object> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
+
+    /**
+     * Publishes to the retry and dead-letter topics and replays from them. Records that
+     * failed to deserialize are forwarded as their original bytes, everything else as JSON.
+     */
+    @Bean
+    public KafkaTemplate<String, Object> deadLetterKafkaTemplate() {
+        Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+        serializers.put(byte[].class, new ByteArraySerializer());
+        serializers.put(Object.class, new JsonSerializer<>());
+
+        DefaultKafkaProducerFactory<String, Object> factory = new DefaultKafkaProducerFactory<>(
+                producerFactory().getConfigurationProperties(), new StringSerializer(),
+                new DelegatingByTypeSerializer(serializers, true));
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return new KafkaTemplate<>(factory);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.rba.creditcardapp.config;
+
+/**
+ * Preset producer batching settings selected with {@code kafka.producer.profile}.
+ * Individual values can still be overridden through {@code kafka.producer.*}.
+ */
+public enum KafkaProducerProfile {
+
+    /** Kafka client defaults: send immediately, small batches, no compression. */
+    LATENCY(0, 16_384, "none", true),
+
+    /** Wait briefly to fill large compressed batches for bulk status pushes. */
+    THROUGHPUT(20, 262_144, "lz4", true);
+
+    private final int lingerMs;
+    private final int batchSize;
+    private final String compressionType;
+    private final boolean idempotence;
+
+    KafkaProducerProfile(int lingerMs, int batchSize, String compressionType, boolean idempotence) {
+        this.lingerMs = lingerMs;
+        this.batchSize = batchSize;
+        this.compressionType = compressionType;
+        this.idempotence = idempotence;
+    }
+
+    public int getLingerMs() {
+        return lingerMs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public String getCompressionType() {
+        return compressionType;
+    }
+
+    public boolean isIdempotence() {
+        return idempotence;
+    }
+}
@@ -12,13 +12,16 @@ public class KafkaTopicsConfig {
     @Value("${kafka.topics.card-status:card-status-topic}")
     private String cardStatusTopic;
 
+    @Value("${kafka.topics.card-status-partitions:3}")
+    private int cardStatusPartitions;
+
     @Value("${kafka.topics.card-production:card-production-topic}")
     private String cardProductionTopic;
 
     @Bean
     public NewTopic cardStatusTopic() {
         return TopicBuilder.name(cardStatusTopic)
-                .partitions(3)
+                .partitions(cardStatusPartitions)
                 .replicas(1)
                 .build();
     }
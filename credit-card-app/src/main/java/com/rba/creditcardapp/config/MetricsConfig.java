@@ -0,0 +1,188 @@
+package com.rba.creditcardapp.config;
+
+import com.rba.creditcardapp.cache.ClientCache;
+import com.rba.creditcardapp.diagnostics.VirtualThreadPinningMonitor;
+import com.rba.creditcardapp.events.CardStatusEventBroadcaster;
+import com.rba.creditcardapp.kafka.CardStatusDeduplicator;
+import com.rba.creditcardapp.kafka.CardStatusParallelConsumer;
+import com.rba.creditcardapp.kafka.ListenerConcurrencyController;
+import com.rba.creditcardapp.resilience.CircuitBreaker;
+import com.rba.creditcardapp.service.CardRequestOutboxDispatcher;
+import com.rba.creditcardapp.service.ExternalApiClientService;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes the counters the application already keeps to the meter registry, so they
+ * appear on {@code /actuator/prometheus} next to the timers recorded in place. Every
+ * meter carries the common {@code application} tag; results are tagged {@code outcome}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Makes {@code @Timed} work on Spring beans, e.g. {@code ClientService}.
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public MeterBinder clientCacheMetrics(ClientCache clientCache) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, clientCache.getNativeCache(), "clients");
+    }
+
+    @Bean
+    public MeterBinder cardStatusDeduplicatorMetrics(CardStatusDeduplicator deduplicator) {
+        return registry -> {
+            FunctionCounter.builder("card.status.consumer.dedup", deduplicator, CardStatusDeduplicator::getHits)
+                    .description("Deduplication lookups")
+                    .tag("outcome", "DUPLICATE")
+                    .register(registry);
+            FunctionCounter.builder("card.status.consumer.dedup", deduplicator, CardStatusDeduplicator::getMisses)
+                    .description("Deduplication lookups")
+                    .tag("outcome", "NEW")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder cardStatusParallelConsumerMetrics(CardStatusParallelConsumer parallelConsumer) {
+        return registry -> {
+            Gauge.builder("card.status.consumer.parallel.queued", parallelConsumer,
+                            CardStatusParallelConsumer::getQueued)
+                    .description("Card status records in the parallel consumer's lanes, running or waiting")
+                    .register(registry);
+            Gauge.builder("card.status.consumer.parallel.uncommitted", parallelConsumer,
+                            CardStatusParallelConsumer::getUncommitted)
+                    .description("Card status records received whose offset cannot be committed yet")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder listenerConcurrencyMetrics(ObjectProvider<ListenerConcurrencyController> controller) {
+        return registry -> controller.ifAvailable(c -> {
+            Gauge.builder("card.status.consumer.concurrency", c, ListenerConcurrencyController::getConcurrency)
+                    .description("Consumer threads of the card status listener container")
+                    .register(registry);
+            Gauge.builder("card.status.consumer.autoscale.lag", c, ListenerConcurrencyController::getLag)
+                    .description("Consumer group lag on the card status topic at the last scaling check")
+                    .register(registry);
+        });
+    }
+
+    @Bean
+    public MeterBinder cardStatusEventMetrics(CardStatusEventBroadcaster broadcaster) {
+        return registry -> {
+            Gauge.builder("client.events.subscribers", broadcaster, CardStatusEventBroadcaster::getSubscriberCount)
+                    .description("Open card status event streams")
+                    .register(registry);
+            FunctionCounter.builder("client.events.dropped", broadcaster, CardStatusEventBroadcaster::getDropped)
+                    .description("Event streams closed because the client fell too far behind")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder externalApiMetrics(ExternalApiClientService externalApiClientService) {
+        return registry -> {
+            Gauge.builder("external.api.requests.in.flight", externalApiClientService,
+                            ExternalApiClientService::getInFlight)
+                    .description("Requests to the external API awaiting a response")
+                    .register(registry);
+            FunctionCounter.builder("external.api.hedged", externalApiClientService,
+                            ExternalApiClientService::getHedged)
+                    .description("Requests for which a hedge was sent")
+                    .register(registry);
+            FunctionCounter.builder("external.api.hedge.wins", externalApiClientService,
+                            ExternalApiClientService::getHedgeWins)
+                    .description("Hedged requests answered first by the hedge")
+                    .register(registry);
+            bindCircuitBreaker(registry, externalApiClientService.getCircuitBreaker());
+        };
+    }
+
+    private static void bindCircuitBreaker(MeterRegistry registry, CircuitBreaker circuitBreaker) {
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+            Gauge.builder("external.api.circuit.breaker.state", circuitBreaker,
+                            breaker -> breaker.getState() == state ? 1 : 0)
+                    .description("1 for the current state of the circuit breaker, 0 otherwise")
+                    .tag("name", circuitBreaker.getName())
+                    .tag("state", state.name())
+                    .register(registry);
+            FunctionCounter.builder("external.api.circuit.breaker.transitions", circuitBreaker,
+                            breaker -> breaker.getTransitionCount(state))
+                    .tag("name", circuitBreaker.getName())
+                    .tag("state", state.name())
+                    .register(registry);
+        }
+        Gauge.builder("external.api.circuit.breaker.failure.rate", circuitBreaker, CircuitBreaker::getFailureRate)
+                .description("Failure rate in percent over the sliding window")
+                .tag("name", circuitBreaker.getName())
+                .register(registry);
+        FunctionCounter.builder("external.api.circuit.breaker.not.permitted", circuitBreaker,
+                        CircuitBreaker::getNotPermittedCalls)
+                .tag("name", circuitBreaker.getName())
+                .register(registry);
+    }
+
+    /**
+     * The pending gauges query {@code card_request_outbox} on every scrape; both are
+     * answered from the partial index on pending entries.
+     */
+    @Bean
+    public MeterBinder cardRequestOutboxMetrics(CardRequestOutboxDispatcher dispatcher) {
+        return registry -> {
+            outboxCounter(registry, dispatcher, "SENT", CardRequestOutboxDispatcher::getSent);
+            outboxCounter(registry, dispatcher, "RETRIED", CardRequestOutboxDispatcher::getRetried);
+            outboxCounter(registry, dispatcher, "FAILED", CardRequestOutboxDispatcher::getFailed);
+            outboxCounter(registry, dispatcher, "DEFERRED", CardRequestOutboxDispatcher::getDeferred);
+            Gauge.builder("card.request.outbox.pending", dispatcher, CardRequestOutboxDispatcher::getPendingCount)
+                    .description("Outbox entries waiting to be forwarded")
+                    .register(registry);
+            Gauge.builder("card.request.outbox.oldest.pending.age", dispatcher,
+                            d -> d.getOldestPendingAge().toMillis())
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            Gauge.builder("card.request.outbox.dispatch.lag.avg", dispatcher,
+                            CardRequestOutboxDispatcher::getAverageDispatchLagMillis)
+                    .description("Average time from writing an entry to forwarding it")
+                    .baseUnit("milliseconds")
+                    .register(registry);
+        };
+    }
+
+    private static void outboxCounter(MeterRegistry registry, CardRequestOutboxDispatcher dispatcher,
+                                      String outcome,
+                                      ToDoubleFunction<CardRequestOutboxDispatcher> count) {
+        FunctionCounter.builder("card.request.outbox.dispatched", dispatcher, count)
+                .description("Outbox dispatch attempts")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    @Bean
+    public MeterBinder virtualThreadPinningMetrics(ObjectProvider<VirtualThreadPinningMonitor> monitor) {
+        return registry -> monitor.ifAvailable(m -> {
+            FunctionCounter.builder("jvm.threads.virtual.pinned", m, VirtualThreadPinningMonitor::getPinnedEvents)
+                    .description("Virtual thread pinning events above the threshold")
+                    .register(registry);
+            FunctionCounter.builder("jvm.threads.virtual.pinned.time", m,
+                            pm -> pm.getTotalPinnedTime().toNanos() / (double) TimeUnit.SECONDS.toNanos(1))
+                    .baseUnit("seconds")
+                    .register(registry);
+        });
+    }
+}
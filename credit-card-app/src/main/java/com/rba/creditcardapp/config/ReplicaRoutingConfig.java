@@ -0,0 +1,85 @@
+package com.rba.creditcardapp.config;
+
+import com.rba.creditcardapp.datasource.ReplicaLagMonitor;
+import com.rba.creditcardapp.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured pool with a primary pool plus one read-only pool per
+ * replica URL when {@code datasource.replicas.enabled} is set. Read-only transactions
+ * use the replicas; see {@link ReplicaRoutingDataSource}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replicas.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            DataSourceProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${spring.datasource.hikari.pool-name:credit-card-pool}") String poolName,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maximumPoolSize,
+            @Value("${datasource.replicas.urls}") String[] replicaUrls,
+            @Value("${datasource.replicas.username:${spring.datasource.username}}") String replicaUsername,
+            @Value("${datasource.replicas.password:${spring.datasource.password}}") String replicaPassword,
+            @Value("${datasource.replicas.maximum-pool-size:10}") int replicaPoolSize,
+            @Value("${datasource.replicas.max-lag:5s}") Duration maxLag) {
+        HikariDataSource primary = pool(poolName, properties.determineUrl(), properties.determineUsername(),
+                properties.determinePassword(), properties.determineDriverClassName(), maximumPoolSize, meterRegistry);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.length; i++) {
+            String name = poolName + "-replica-" + (i + 1);
+            HikariDataSource replica = pool(name, replicaUrls[i].trim(), replicaUsername, replicaPassword,
+                    properties.determineDriverClassName(), replicaPoolSize, meterRegistry);
+            replica.setReadOnly(true);
+            replicas.put(name, replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, maxLag, meterRegistry);
+    }
+
+    /**
+     * The data source everything else uses. Connections are only obtained from the
+     * routing data source once a statement runs, when the transaction's read-only flag
+     * is known.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(
+            ReplicaRoutingDataSource replicaRoutingDataSource,
+            @Value("${datasource.replicas.lag-check-timeout:2s}") Duration queryTimeout) {
+        return new ReplicaLagMonitor(replicaRoutingDataSource, queryTimeout);
+    }
+
+    private static HikariDataSource pool(String name, String url, String username, String password,
+                                         String driverClassName, int maximumPoolSize, MeterRegistry meterRegistry) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setDriverClassName(driverClassName);
+        pool.setMaximumPoolSize(maximumPoolSize);
+        // Not beans, so the hikaricp.* metrics have to be bound here
+        pool.setMetricRegistry(meterRegistry);
+        return pool;
+    }
+}
@@ -0,0 +1,21 @@
+package com.rba.creditcardapp.config;
+
+import com.rba.creditcardapp.diagnostics.ResponseMetricsValve;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Response compression itself is configured under {@code server.compression}.
+ */
+@Configuration
+public class WebServerConfig {
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> responseMetricsCustomizer(
+            MeterRegistry meterRegistry) {
+        return factory -> factory.addContextValves(new ResponseMetricsValve(meterRegistry));
+    }
+}
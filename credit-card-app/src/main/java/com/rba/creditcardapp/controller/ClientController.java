@@ -1,9 +1,20 @@
 package com.rba.creditcardapp.controller;
 
+import com.rba.creditcardapp.dto.BatchRegistrationResponse;
 import com.rba.creditcardapp.dto.ClientRequest;
 import com.rba.creditcardapp.dto.ClientResponse;
+import com.rba.creditcardapp.dto.ClientStatsResponse;
+import com.rba.creditcardapp.dto.CursorPageResponse;
 import com.rba.creditcardapp.dto.PageResponse;
+import com.rba.creditcardapp.dto.PurgeResponse;
+import com.rba.creditcardapp.dto.StatusUpdateRequest;
+import com.rba.creditcardapp.events.CardStatusEventBroadcaster;
+import com.rba.creditcardapp.model.CardStatus;
+import com.rba.creditcardapp.repository.ClientSortField;
+import com.rba.creditcardapp.service.ClientBatchService;
+import com.rba.creditcardapp.service.ClientExportService;
 import com.rba.creditcardapp.service.ClientService;
+import com.rba.creditcardapp.utils.ClientETags;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -15,9 +26,22 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/v1/clients")
@@ -27,6 +51,9 @@ import org.springframework.web.bind.annotation.*;
 public class ClientController {
 
     private final ClientService clientService;
+    private final ClientExportService clientExportService;
+    private final ClientBatchService clientBatchService;
+    private final CardStatusEventBroadcaster eventBroadcaster;
 
     @PostMapping
     @Operation(summary = "Register a new client")
@@ -36,12 +63,61 @@ public class ClientController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/batch")
+    @Operation(summary = "Register many clients at once",
+            description = "Items are validated individually; invalid or duplicate items are reported "
+                    + "in the result and do not prevent the rest from being registered")
+    public ResponseEntity<BatchRegistrationResponse> registerClients(
+            @RequestBody List<ClientRequest> clientRequests) {
+        return ResponseEntity.ok(clientBatchService.registerClients(clientRequests));
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Search for clients by name",
+            description = "Matches first and last name by substring and similarity, best matches first")
+    public ResponseEntity<List<ClientResponse>> searchClients(
+            @Parameter(description = "Part of the name, at least 3 characters") @RequestParam String q,
+            @Parameter(description = "Maximum number of results") @RequestParam(defaultValue = "20") @Min(1) @Max(100) int limit) {
+        return ResponseEntity.ok(clientService.searchByName(q, limit));
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Count clients per card status",
+            description = "Answered from counters maintained on every change, without counting rows")
+    public ResponseEntity<ClientStatsResponse> getClientStats() {
+        return ResponseEntity.ok(clientService.getStats());
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream card status changes as Server-Sent Events",
+            description = "Each change is a 'status' event. Reconnecting with Last-Event-ID replays missed "
+                    + "changes; a 'reset' event means they are no longer available and the client should reload")
+    public SseEmitter streamEvents(
+            @Parameter(description = "Only changes of clients with these OIBs") @RequestParam(required = false) Set<String> oib,
+            @Parameter(description = "Only changes to these card statuses") @RequestParam(required = false) List<String> status,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Set<CardStatus> statuses = EnumSet.noneOf(CardStatus.class);
+        if (status != null) {
+            status.forEach(value -> statuses.add(CardStatus.parse(value)));
+        }
+        return eventBroadcaster.subscribe(oib != null ? oib : Set.of(), statuses, lastEventId);
+    }
+
     @GetMapping("/{oib}")
-    @Operation(summary = "Search for a client by OIB")
+    @Operation(summary = "Search for a client by OIB",
+            description = "Answers 304 if the client still matches the ETag given in If-None-Match")
     public ResponseEntity<ClientResponse> getClientByOib(
-            @PathVariable @jakarta.validation.constraints.Size(min = 11, max = 11) String oib) {
+            @PathVariable @jakarta.validation.constraints.Size(min = 11, max = 11) String oib,
+            WebRequest request) {
+        // Revalidation only needs the version, not the client
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<String> eTag = clientService.findVersion(oib).map(ClientETags::of);
+            if (eTag.isPresent() && request.checkNotModified(eTag.get())) {
+                return null;
+            }
+        }
         return clientService.findByOib(oib)
-                .map(ResponseEntity::ok)
+                .map(client -> ResponseEntity.ok().eTag(ClientETags.of(client)).body(client))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -53,22 +129,95 @@ public class ClientController {
             @Parameter(description = "Sort by field") @RequestParam(defaultValue = "firstName") String sortBy,
             @Parameter(description = "Sort direction") @RequestParam(defaultValue = "asc") String direction) {
 
-        Sort sort = direction.equalsIgnoreCase("desc")
-                ? Sort.by(sortBy).descending()
-                : Sort.by(sortBy).ascending();
+        ClientSortField sortField = ClientSortField.fromProperty(sortBy);
+        Sort.Direction sortDirection = direction.equalsIgnoreCase("desc")
+                ? Sort.Direction.DESC
+                : Sort.Direction.ASC;
+        Sort sort = Sort.by(sortDirection, sortField.getProperty());
+        if (!sortField.isUnique()) {
+            sort = sort.and(Sort.by(sortDirection, "id"));
+        }
 
         Pageable pageable = PageRequest.of(page, size, sort);
         Page<ClientResponse> clientPage = clientService.findAll(pageable);
 
         PageResponse<ClientResponse> response = new PageResponse<>(clientPage);
-        return ResponseEntity.ok(response);
+        // Spring answers 304 itself when the tag matches If-None-Match
+        return ResponseEntity.ok().eTag(ClientETags.ofPage(response)).body(response);
+    }
+
+    @GetMapping("/scroll")
+    @Operation(summary = "Get clients with keyset (cursor) pagination",
+            description = "Pass the nextCursor of the previous response to get the following page")
+    public ResponseEntity<CursorPageResponse<ClientResponse>> scrollClients(
+            @Parameter(description = "Continuation token from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Number of items per page") @RequestParam(defaultValue = "10") @Min(1) @Max(100) int size,
+            @Parameter(description = "Sort by field") @RequestParam(defaultValue = "firstName") String sortBy,
+            @Parameter(description = "Sort direction") @RequestParam(defaultValue = "asc") String direction) {
+
+        ClientSortField sortField = ClientSortField.fromProperty(sortBy);
+        CursorPageResponse<ClientResponse> response = clientService.findPage(
+                sortField, direction.equalsIgnoreCase("desc"), cursor, size);
+        return ResponseEntity.ok().eTag(ClientETags.ofPage(response)).body(response);
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Stream all clients as NDJSON or CSV",
+            description = "Rows are streamed from a single database cursor; memory use is constant for any table size")
+    public ResponseEntity<StreamingResponseBody> exportClients(
+            @Parameter(description = "Output format (ndjson or csv)") @RequestParam(defaultValue = "ndjson") String format,
+            @Parameter(description = "Only clients with this card status") @RequestParam(required = false) String status,
+            @Parameter(description = "Only clients created at or after (ISO date-time)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @Parameter(description = "Only clients created before (ISO date-time)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            WebRequest webRequest) {
+
+        ClientExportService.ExportFormat exportFormat;
+        try {
+            exportFormat = ClientExportService.ExportFormat.valueOf(format.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+
+        // Parsed up front: once streaming starts an error can no longer become a 400
+        CardStatus statusFilter = status != null && !status.isBlank() ? CardStatus.parse(status) : null;
+        StreamingResponseBody body = out ->
+                clientExportService.export(exportFormat, statusFilter, createdFrom, createdTo, out);
+        // Only this request outlives the default async timeout
+        WebAsyncUtils.getAsyncManager(webRequest).getAsyncWebRequest()
+                .setTimeout(clientExportService.getTimeout().toMillis());
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"clients." + exportFormat.getExtension() + "\"")
+                .body(body);
+    }
+
+    @PatchMapping("/{oib}/status")
+    @Operation(summary = "Change the card status of a client",
+            description = "Only changes allowed by the card status lifecycle are accepted; others return 409")
+    public ResponseEntity<ClientResponse> updateClientStatus(
+            @PathVariable @jakarta.validation.constraints.Size(min = 11, max = 11) String oib,
+            @Valid @RequestBody StatusUpdateRequest statusUpdateRequest) {
+        return ResponseEntity.ok(clientService.updateClientStatus(oib, statusUpdateRequest.getStatus()));
     }
 
     @DeleteMapping("/{oib}")
     @Operation(summary = "Delete a client by OIB")
     public ResponseEntity<Void> deleteClient(
             @PathVariable @jakarta.validation.constraints.Size(min = 11, max = 11) String oib) {
-        clientService.deleteByOib(oib);
-        return ResponseEntity.ok().build();
+        return clientService.deleteByOib(oib)
+                ? ResponseEntity.ok().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/purge")
+    @Operation(summary = "Delete many clients by OIB",
+            description = "For erasure runs; also deletes the clients' queued card requests. "
+                    + "OIBs without a client are reported in notFound")
+    public ResponseEntity<PurgeResponse> purgeClients(@RequestBody List<String> oibs) {
+        return ResponseEntity.ok(clientBatchService.purgeClients(oibs));
     }
 }
\ No newline at end of file
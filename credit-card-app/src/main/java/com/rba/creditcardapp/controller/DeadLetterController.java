@@ -0,0 +1,28 @@
+package com.rba.creditcardapp.controller;
+
+import com.rba.creditcardapp.dto.DeadLetterReplayResponse;
+import com.rba.creditcardapp.kafka.CardStatusDeadLetterReplayer;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/card-status/dead-letters")
+@Tag(name = "Card Status Dead Letters", description = "API for card status updates that could not be applied")
+@AllArgsConstructor
+public class DeadLetterController {
+
+    private final CardStatusDeadLetterReplayer deadLetterReplayer;
+
+    @PostMapping("/replay")
+    @Operation(summary = "Replay dead-lettered card status updates",
+            description = "Sends up to max records back to the card status topic; unreadable ones are skipped")
+    public ResponseEntity<DeadLetterReplayResponse> replay(@RequestParam(defaultValue = "100") int max) {
+        return ResponseEntity.ok(deadLetterReplayer.replay(max));
+    }
+}
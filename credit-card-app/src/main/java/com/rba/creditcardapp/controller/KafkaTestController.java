@@ -8,6 +8,8 @@ import lombok.AllArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/v1/kafka-test")
 @Tag(name = "Kafka Test", description = "API for testing Kafka functionality")
@@ -20,7 +22,7 @@ public class KafkaTestController {
     @Operation(summary = "Send a test card status update to Kafka")
     public ResponseEntity<String> sendTestCardStatus(@RequestBody CardStatusUpdate statusUpdate) {
         try {
-            cardStatusProducer.sendCardStatusUpdate(statusUpdate);
+            cardStatusProducer.sendCardStatusUpdate(statusUpdate).join();
             return ResponseEntity.ok("Card status update sent to Kafka successfully");
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error sending message to Kafka: " + e.getMessage());
@@ -37,11 +39,23 @@ public class KafkaTestController {
         CardStatusUpdate statusUpdate = new CardStatusUpdate(oib, status, reason);
 
         try {
-            cardStatusProducer.sendCardStatusUpdate(statusUpdate);
+            cardStatusProducer.sendCardStatusUpdate(statusUpdate).join();
             return ResponseEntity.ok(String.format(
                     "Status update sent for OIB: %s, Status: %s", oib, status));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         }
     }
+
+    @PostMapping("/card-status/batch")
+    @Operation(summary = "Send a batch of card status updates to Kafka")
+    public ResponseEntity<String> sendCardStatusBatch(@RequestBody List<CardStatusUpdate> statusUpdates) {
+        try {
+            cardStatusProducer.sendAll(statusUpdates).join();
+            return ResponseEntity.ok(String.format(
+                    "%d card status updates sent to Kafka successfully", statusUpdates.size()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error sending messages to Kafka: " + e.getMessage());
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.rba.creditcardapp.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures the replication lag of every replica and reports it to the
+ * {@link ReplicaRoutingDataSource}, which stops reading from replicas that fall behind.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    /**
+     * Seconds since the last replayed transaction, or 0 when everything received has been
+     * replayed. Without the second check an idle primary would look like a lagging
+     * replica. A server that is not a standby reports 0, so a plain instance can stand in
+     * for a replica.
+     */
+    static final String LAG_QUERY = """
+            SELECT CASE
+                       WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+                   END
+            """;
+
+    private final ReplicaRoutingDataSource routingDataSource;
+    private final Map<String, JdbcTemplate> replicas = new LinkedHashMap<>();
+
+    public ReplicaLagMonitor(ReplicaRoutingDataSource routingDataSource, Duration queryTimeout) {
+        this.routingDataSource = routingDataSource;
+        for (Map.Entry<String, DataSource> replica : routingDataSource.getReplicaDataSources().entrySet()) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(replica.getValue());
+            jdbcTemplate.setQueryTimeout((int) Math.max(1, queryTimeout.toSeconds()));
+            replicas.put(replica.getKey(), jdbcTemplate);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replicas.lag-check-interval-ms:5000}")
+    public void checkLag() {
+        replicas.forEach((name, jdbcTemplate) -> {
+            Duration lag;
+            try {
+                Double seconds = jdbcTemplate.queryForObject(LAG_QUERY, Double.class);
+                lag = Duration.ofMillis(Math.round((seconds != null ? seconds : 0) * 1000));
+            } catch (DataAccessException e) {
+                log.warn("Could not measure lag of replica {}: {}", name, e.getMessage());
+                lag = null;
+            }
+            routingDataSource.updateLag(name, lag);
+        });
+    }
+}
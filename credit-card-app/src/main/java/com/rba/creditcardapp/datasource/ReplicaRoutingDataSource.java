@@ -0,0 +1,156 @@
+package com.rba.creditcardapp.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections of read-only transactions to a replica and everything else to the
+ * primary. Replicas take turns. A replica is skipped while its replication lag is above
+ * {@code maxLag} or could not be measured, and reads fall back to the primary when no
+ * replica is usable. Replicas count as unusable until their lag was first measured.
+ * <p>
+ * The pool is picked when a connection is obtained, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the
+ * transaction manager asks for a connection before it marks the transaction read-only.
+ * <p>
+ * Each pick is counted in {@code datasource.routing}, tagged with the {@code pool} and
+ * the {@code route} taken.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    public static final String PRIMARY = "primary";
+
+    static final String ROUTE_READ_WRITE = "READ_WRITE";
+    static final String ROUTE_READ_ONLY = "READ_ONLY";
+    static final String ROUTE_FALLBACK = "FALLBACK";
+
+    private final Map<String, DataSource> replicaDataSources;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Map<String, Replica> replicasByName = new HashMap<>();
+    private final Duration maxLag;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter readWrite;
+    private final Counter fallback;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicaDataSources,
+                                    Duration maxLag, MeterRegistry meterRegistry) {
+        if (replicaDataSources.isEmpty()) {
+            throw new IllegalArgumentException("At least one replica is required");
+        }
+        this.replicaDataSources = new LinkedHashMap<>(replicaDataSources);
+        this.maxLag = maxLag;
+
+        Map<Object, Object> targets = new HashMap<>(replicaDataSources);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        readWrite = routingCounter(meterRegistry, PRIMARY, ROUTE_READ_WRITE);
+        fallback = routingCounter(meterRegistry, PRIMARY, ROUTE_FALLBACK);
+        for (String name : this.replicaDataSources.keySet()) {
+            Replica replica = new Replica(name, routingCounter(meterRegistry, name, ROUTE_READ_ONLY));
+            replicas.add(replica);
+            replicasByName.put(name, replica);
+            Gauge.builder("datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .description("Replication lag of the replica, NaN if it could not be measured")
+                    .baseUnit("seconds")
+                    .tag("pool", name)
+                    .register(meterRegistry);
+            Gauge.builder("datasource.replica.available", replica, r -> r.available ? 1 : 0)
+                    .description("1 if read-only transactions may use the replica, 0 otherwise")
+                    .tag("pool", name)
+                    .register(meterRegistry);
+        }
+    }
+
+    private static Counter routingCounter(MeterRegistry meterRegistry, String pool, String route) {
+        return Counter.builder("datasource.routing")
+                .description("Connections obtained, by pool and route")
+                .tag("pool", pool)
+                .tag("route", route)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            readWrite.increment();
+            return PRIMARY;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.available) {
+                replica.routed.increment();
+                return replica.name;
+            }
+        }
+        fallback.increment();
+        return PRIMARY;
+    }
+
+    /**
+     * Records the latest lag measurement of a replica, {@code null} if it failed.
+     */
+    public void updateLag(String name, Duration lag) {
+        Replica replica = replicasByName.get(name);
+        if (replica == null) {
+            throw new IllegalArgumentException("Unknown replica: " + name);
+        }
+        boolean available = lag != null && lag.compareTo(maxLag) <= 0;
+        replica.lagSeconds = lag != null ? lag.toMillis() / 1000.0 : Double.NaN;
+        if (replica.available != available) {
+            if (available) {
+                log.info("Replica {} is in use for reads (lag {} ms)", name, lag.toMillis());
+            } else {
+                log.warn("Replica {} is no longer used for reads (lag {})", name,
+                        lag != null ? lag.toMillis() + " ms" : "unknown");
+            }
+        }
+        replica.available = available;
+    }
+
+    public boolean isAvailable(String name) {
+        Replica replica = replicasByName.get(name);
+        return replica != null && replica.available;
+    }
+
+    public Map<String, DataSource> getReplicaDataSources() {
+        return replicaDataSources;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Object dataSource : getResolvedDataSources().values()) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final Counter routed;
+        private volatile boolean available;
+        private volatile double lagSeconds = Double.NaN;
+
+        private Replica(String name, Counter routed) {
+            this.name = name;
+            this.routed = routed;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.rba.creditcardapp.diagnostics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.ServletException;
+import org.apache.catalina.AccessLog;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.valves.ValveBase;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records how conditional requests are answered and how many bytes response compression
+ * saves. Runs as a Tomcat access log, which is called once the response is complete,
+ * streamed and async responses included, and sees the byte counts on both sides of the
+ * compression.
+ */
+public class ResponseMetricsValve extends ValveBase implements AccessLog {
+
+    private final MeterRegistry meterRegistry;
+    private boolean requestAttributesEnabled;
+
+    public ResponseMetricsValve(MeterRegistry meterRegistry) {
+        super(true);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void invoke(Request request, Response response) throws IOException, ServletException {
+        getNext().invoke(request, response);
+    }
+
+    @Override
+    public void log(Request request, Response response, long time) {
+        String uri = uri(request);
+        if ("GET".equals(request.getMethod()) && request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Counter.builder("http.server.conditional.requests")
+                    .description("GET requests with If-None-Match, by whether the body was sent again")
+                    .tag("uri", uri)
+                    .tag("outcome", response.getStatus() == HttpStatus.NOT_MODIFIED.value() ? "NOT_MODIFIED" : "MODIFIED")
+                    .register(meterRegistry)
+                    .increment();
+        }
+        if ("gzip".equalsIgnoreCase(response.getHeader(HttpHeaders.CONTENT_ENCODING))) {
+            long saved = response.getContentWritten() - response.getBytesWritten(false);
+            Counter.builder("http.server.compression.saved")
+                    .description("Response bytes saved by compression")
+                    .baseUnit("bytes")
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .increment(Math.max(saved, 0));
+        }
+    }
+
+    @Override
+    public void setRequestAttributesEnabled(boolean requestAttributesEnabled) {
+        this.requestAttributesEnabled = requestAttributesEnabled;
+    }
+
+    @Override
+    public boolean getRequestAttributesEnabled() {
+        return requestAttributesEnabled;
+    }
+
+    private static String uri(Request request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
@@ -0,0 +1,20 @@
+package com.rba.creditcardapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRegistrationResponse {
+    private int total;
+    private int created;
+    private int duplicates;
+    private int invalid;
+    private List<BatchItemResult> items;
+}
@@ -17,7 +17,8 @@ public class CardStatusUpdate {
     private String status;
     private String updateReason;
 
-    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    // ISO-8601 with the fraction of a second, so updates issued within the same second keep their order
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
     private LocalDateTime timestamp;
 
     public CardStatusUpdate(String oib, String status, String updateReason) {
@@ -0,0 +1,18 @@
+package com.rba.creditcardapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClientStatsResponse {
+    private long total;
+    /** Every card status, in declaration order, including those without clients. */
+    private Map<String, Long> byStatus;
+}
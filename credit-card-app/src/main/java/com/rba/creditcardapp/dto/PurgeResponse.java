@@ -0,0 +1,19 @@
+package com.rba.creditcardapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurgeResponse {
+    private int requested;
+    private int deleted;
+    private int cardRequestsDeleted;
+    private List<String> notFound;
+}
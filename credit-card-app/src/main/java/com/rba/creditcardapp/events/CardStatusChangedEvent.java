@@ -0,0 +1,12 @@
+package com.rba.creditcardapp.events;
+
+import com.rba.creditcardapp.model.CardStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by {@code ClientService} for every applied card status change, whether it
+ * came from REST or Kafka. Listeners get it once the change is committed.
+ */
+public record CardStatusChangedEvent(String oib, CardStatus status, LocalDateTime changedAt) {
+}
@@ -0,0 +1,290 @@
+package com.rba.creditcardapp.events;
+
+import com.rba.creditcardapp.exception.TooManySubscribersException;
+import com.rba.creditcardapp.model.CardStatus;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fans committed card status changes out to Server-Sent Event subscribers.
+ * <p>
+ * Connections are held as async requests, so an idle subscriber costs a socket and a
+ * small queue but no thread. A few sender threads write queued events; a subscriber is
+ * only ever written by one of them at a time. When a subscriber falls
+ * {@code buffer-size} events behind, its stream is closed instead of letting it hold
+ * up memory or the others. Its browser then reconnects with {@code Last-Event-ID} and
+ * is replayed what it missed from the last {@code history-size} events. If those no
+ * longer reach back far enough, or the id is from before a restart, it gets a
+ * {@value #RESET_EVENT} event and should reload instead.
+ */
+@Component
+@Slf4j
+public class CardStatusEventBroadcaster {
+
+    static final String STATUS_EVENT = "status";
+    static final String RESET_EVENT = "reset";
+
+    private static final Entry HEARTBEAT = new Entry(Kind.HEARTBEAT, -1, null);
+
+    private final int bufferSize;
+    private final int historySize;
+    private final int maxSubscribers;
+    private final Duration timeout;
+    private final Executor sender;
+    // Event ids are only meaningful to the instance that issued them
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final LongAdder dropped = new LongAdder();
+
+    // Publishing and subscribing hold the lock, so a new subscriber gets every event
+    // exactly once: from the replay or from the fan-out
+    private final Object lock = new Object();
+    private final ArrayDeque<Entry> history = new ArrayDeque<>();
+    private long sequence;
+
+    @Autowired
+    public CardStatusEventBroadcaster(@Value("${client.events.buffer-size:256}") int bufferSize,
+                                      @Value("${client.events.history-size:1000}") int historySize,
+                                      @Value("${client.events.max-subscribers:10000}") int maxSubscribers,
+                                      @Value("${client.events.timeout:30m}") Duration timeout,
+                                      @Value("${client.events.sender-threads:4}") int senderThreads) {
+        this(bufferSize, historySize, maxSubscribers, timeout,
+                Executors.newFixedThreadPool(senderThreads, new CustomizableThreadFactory("client-events-")));
+    }
+
+    CardStatusEventBroadcaster(int bufferSize, int historySize, int maxSubscribers,
+                               Duration timeout, Executor sender) {
+        this.bufferSize = bufferSize;
+        this.historySize = historySize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeout = timeout;
+        this.sender = sender;
+    }
+
+    /**
+     * Opens a stream of the changes matching the filters; an empty filter matches all.
+     *
+     * @param lastEventId the {@code Last-Event-ID} of a reconnecting client, or {@code null}
+     * @throws TooManySubscribersException if {@code max-subscribers} streams are open
+     */
+    public SseEmitter subscribe(Set<String> oibs, Set<CardStatus> statuses, String lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new TooManySubscribersException(maxSubscribers);
+        }
+
+        SseEmitter emitter = createEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, oibs, statuses, new ArrayBlockingQueue<>(bufferSize));
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+
+        synchronized (lock) {
+            if (lastEventId != null && !lastEventId.isBlank()) {
+                replay(subscriber, lastEventId);
+            }
+            subscribers.add(subscriber);
+        }
+        schedule(subscriber);
+        return emitter;
+    }
+
+    SseEmitter createEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(CardStatusChangedEvent event) {
+        synchronized (lock) {
+            Entry entry = new Entry(Kind.STATUS, ++sequence, event);
+            history.addLast(entry);
+            if (history.size() > historySize) {
+                history.removeFirst();
+            }
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.matches(event)) {
+                    enqueue(subscriber, entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Keeps idle connections open through proxies and finds clients that went away
+     * without closing them.
+     */
+    @Scheduled(fixedDelayString = "${client.events.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            // A full queue already has writes pending, which notice a dead connection too
+            if (subscriber.queue.offer(HEARTBEAT)) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            remove(subscriber);
+            subscriber.emitter.complete();
+        }
+        if (sender instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private void replay(Subscriber subscriber, String lastEventId) {
+        long after = parseSequence(lastEventId);
+        long oldest = history.isEmpty() ? sequence + 1 : history.peekFirst().sequence();
+        if (after < 0 || after > sequence || after < oldest - 1) {
+            subscriber.queue.offer(new Entry(Kind.RESET, sequence, null));
+            return;
+        }
+        for (Entry entry : history) {
+            if (entry.sequence() > after && subscriber.matches(entry.event()) && !subscriber.queue.offer(entry)) {
+                subscriber.queue.clear();
+                subscriber.queue.offer(new Entry(Kind.RESET, sequence, null));
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the sequence number, or -1 if the id was not issued by this instance
+     */
+    private long parseSequence(String eventId) {
+        int separator = eventId.lastIndexOf('-');
+        if (separator < 0 || !eventId.substring(0, separator).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, Entry entry) {
+        if (subscriber.queue.offer(entry)) {
+            schedule(subscriber);
+        } else if (remove(subscriber)) {
+            dropped.increment();
+            log.debug("Closing event stream that fell {} events behind", bufferSize);
+            // Completing waits for a write in progress, which for a slow client may take
+            // a while; that must not hold up publishing
+            try {
+                sender.execute(subscriber.emitter::complete);
+            } catch (RejectedExecutionException e) {
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.queue.isEmpty() || !subscriber.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sender.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.scheduled.set(false);
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Entry entry;
+            while (!subscriber.closed && (entry = subscriber.queue.poll()) != null) {
+                subscriber.emitter.send(toSse(entry));
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client went away, or the stream was completed meanwhile
+            remove(subscriber);
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+        // Something may have been queued after the last poll but before the flag was cleared
+        if (!subscriber.closed) {
+            schedule(subscriber);
+        }
+    }
+
+    private SseEmitter.SseEventBuilder toSse(Entry entry) {
+        return switch (entry.kind()) {
+            case STATUS -> SseEmitter.event()
+                    .id(epoch + "-" + entry.sequence())
+                    .name(STATUS_EVENT)
+                    .data(entry.event());
+            case RESET -> SseEmitter.event()
+                    .id(epoch + "-" + entry.sequence())
+                    .name(RESET_EVENT)
+                    .data("");
+            case HEARTBEAT -> SseEmitter.event().comment("");
+        };
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        subscriber.closed = true;
+        return subscribers.remove(subscriber);
+    }
+
+    private enum Kind {
+        STATUS, RESET, HEARTBEAT
+    }
+
+    private record Entry(Kind kind, long sequence, CardStatusChangedEvent event) {
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Set<String> oibs;
+        private final Set<CardStatus> statuses;
+        private final BlockingQueue<Entry> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter, Set<String> oibs, Set<CardStatus> statuses,
+                           BlockingQueue<Entry> queue) {
+            this.emitter = emitter;
+            this.oibs = oibs;
+            this.statuses = statuses;
+            this.queue = queue;
+        }
+
+        private boolean matches(CardStatusChangedEvent event) {
+            return (oibs.isEmpty() || oibs.contains(event.oib()))
+                    && (statuses.isEmpty() || statuses.contains(event.status()));
+        }
+    }
+}
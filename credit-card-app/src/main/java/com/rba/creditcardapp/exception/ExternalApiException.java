@@ -0,0 +1,15 @@
+package com.rba.creditcardapp.exception;
+
+/**
+ * The external card API could not be reached or did not accept a request.
+ */
+public class ExternalApiException extends RuntimeException {
+
+    public ExternalApiException(String message) {
+        super(message);
+    }
+
+    public ExternalApiException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
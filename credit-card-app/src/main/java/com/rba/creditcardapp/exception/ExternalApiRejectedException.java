@@ -0,0 +1,12 @@
+package com.rba.creditcardapp.exception;
+
+/**
+ * A call to the external card API was refused locally, because the circuit breaker is
+ * open or too many calls are already in flight. Nothing was sent.
+ */
+public class ExternalApiRejectedException extends ExternalApiException {
+
+    public ExternalApiRejectedException(String message) {
+        super(message);
+    }
+}
@@ -34,6 +34,48 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(error);
     }
 
+    @ExceptionHandler(IllegalStatusTransitionException.class)
+    public ResponseEntity<ErrorResponse> handleIllegalStatusTransitionException(IllegalStatusTransitionException ex) {
+        log.warn("Rejected card status change: {}", ex.getMessage());
+
+        ErrorResponse error = ErrorResponse.builder()
+                .errorCode("ILLEGAL_STATUS_TRANSITION")
+                .message(ex.getMessage())
+                .status(HttpStatus.CONFLICT.value())
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
+    @ExceptionHandler(StaleStatusUpdateException.class)
+    public ResponseEntity<ErrorResponse> handleStaleStatusUpdateException(StaleStatusUpdateException ex) {
+        log.warn("Dropped card status change: {}", ex.getMessage());
+
+        ErrorResponse error = ErrorResponse.builder()
+                .errorCode("STALE_STATUS_UPDATE")
+                .message(ex.getMessage())
+                .status(HttpStatus.CONFLICT.value())
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
+    @ExceptionHandler(TooManySubscribersException.class)
+    public ResponseEntity<ErrorResponse> handleTooManySubscribersException(TooManySubscribersException ex) {
+        log.warn("Refused event stream: {}", ex.getMessage());
+
+        ErrorResponse error = ErrorResponse.builder()
+                .errorCode("TOO_MANY_SUBSCRIBERS")
+                .message(ex.getMessage())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> handleValidationExceptions(MethodArgumentNotValidException ex) {
         Map<String, String> errors = new HashMap<>();
@@ -0,0 +1,26 @@
+package com.rba.creditcardapp.exception;
+
+import com.rba.creditcardapp.model.CardStatus;
+
+/**
+ * A card status change that the {@link CardStatus} lifecycle does not allow.
+ */
+public class IllegalStatusTransitionException extends RuntimeException {
+
+    private final CardStatus from;
+    private final CardStatus to;
+
+    public IllegalStatusTransitionException(String oib, CardStatus from, CardStatus to) {
+        super("Card status of client with OIB " + oib + " cannot change from " + from + " to " + to);
+        this.from = from;
+        this.to = to;
+    }
+
+    public CardStatus getFrom() {
+        return from;
+    }
+
+    public CardStatus getTo() {
+        return to;
+    }
+}
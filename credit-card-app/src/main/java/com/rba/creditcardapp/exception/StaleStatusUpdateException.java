@@ -0,0 +1,11 @@
+package com.rba.creditcardapp.exception;
+
+/**
+ * A card status change that lost to a newer change of the same client.
+ */
+public class StaleStatusUpdateException extends RuntimeException {
+
+    public StaleStatusUpdateException(String oib) {
+        super("Card status of client with OIB " + oib + " was changed concurrently by a newer update");
+    }
+}
@@ -0,0 +1,12 @@
+package com.rba.creditcardapp.exception;
+
+/**
+ * A new event stream was refused because the configured number of subscribers is
+ * already connected.
+ */
+public class TooManySubscribersException extends RuntimeException {
+
+    public TooManySubscribersException(int maxSubscribers) {
+        super("Too many event stream subscribers, limit is " + maxSubscribers);
+    }
+}
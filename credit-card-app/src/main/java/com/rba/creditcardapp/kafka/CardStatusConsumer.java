@@ -1,60 +1,428 @@
 package com.rba.creditcardapp.kafka;
 
+import com.rba.creditcardapp.config.KafkaConfig;
 import com.rba.creditcardapp.dto.CardStatusUpdate;
+import com.rba.creditcardapp.model.CardStatus;
 import com.rba.creditcardapp.service.ClientService;
+import com.rba.creditcardapp.service.StatusUpdateOutcome;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.retrytopic.DltStrategy;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Applies card status events to clients.
+ * <p>
+ * Every record is counted in {@code card.status.consumer.records}, tagged with its topic
+ * and outcome. Processing time is timed per record ({@code card.status.consumer.record})
+ * or per poll in batch mode ({@code card.status.consumer.batch}). Consumer lag is
+ * reported by the Kafka client metrics bound in {@code KafkaConfig}.
+ * <p>
+ * A record that fails to apply is forwarded to a retry topic and tried again there after
+ * a growing delay, while the records behind it keep flowing. After the last attempt, or
+ * straight away if it cannot be read, it lands in the dead-letter topic with the failure
+ * in its {@code kafka_dlt-*} headers. {@link CardStatusDeadLetterReplayer} sends it back.
+ */
 @Component
 @Slf4j
 public class CardStatusConsumer {
 
+    static final String OUTCOME_SUCCESS = "SUCCESS";
+    static final String OUTCOME_INVALID = "INVALID";
+    static final String OUTCOME_DUPLICATE = "DUPLICATE";
+    static final String OUTCOME_COALESCED = "COALESCED";
+    static final String OUTCOME_REJECTED = "REJECTED";
+    static final String OUTCOME_STALE = "STALE";
+    static final String OUTCOME_NOT_FOUND = "NOT_FOUND";
+    static final String OUTCOME_ERROR = "ERROR";
+    static final String OUTCOME_DEAD_LETTER = "DEAD_LETTER";
+
+    // Same rule as ClientService, which would otherwise fail a whole batch over one record
+    private static final Pattern OIB_PATTERN = Pattern.compile("\\d{11}");
+
     private final ClientService clientService;
+    private final CardStatusDeduplicator deduplicator;
+    private final MeterRegistry meterRegistry;
 
-    public CardStatusConsumer(ClientService clientService) {
+    public CardStatusConsumer(ClientService clientService, CardStatusDeduplicator deduplicator,
+                              MeterRegistry meterRegistry) {
         this.clientService = clientService;
+        this.deduplicator = deduplicator;
+        this.meterRegistry = meterRegistry;
     }
 
+    @RetryableTopic(
+            attempts = "${kafka.consumer.retry.attempts:4}",
+            backoff = @Backoff(
+                    delayExpression = "${kafka.consumer.retry.backoff.initial-interval:1000}",
+                    multiplierExpression = "${kafka.consumer.retry.backoff.multiplier:2}",
+                    maxDelayExpression = "${kafka.consumer.retry.backoff.max-interval:10000}"),
+            kafkaTemplate = "deadLetterKafkaTemplate",
+            // As many partitions as the main topic, so a record keeps its partition number
+            numPartitions = "${kafka.topics.card-status-partitions:3}",
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            dltTopicSuffix = KafkaConfig.DLT_SUFFIX,
+            dltStrategy = DltStrategy.FAIL_ON_ERROR,
+            exclude = IllegalArgumentException.class
+    )
     @KafkaListener(
+            id = "cardStatusListener",
             topics = "${kafka.topics.card-status:card-status-topic}",
             groupId = "${spring.kafka.consumer.group-id:card-status-group}",
-            containerFactory = "kafkaListenerContainerFactory"
+            containerFactory = "kafkaListenerContainerFactory",
+            autoStartup = "#{!${kafka.consumer.batch.enabled:false} && !${kafka.consumer.parallel.enabled:false}}"
     )
-    public void receiveCardStatusUpdate(CardStatusUpdate statusUpdate) {
+    public void receiveCardStatusUpdate(@Payload(required = false) CardStatusUpdate statusUpdate,
+                                        @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                                        @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+                                        @Header(KafkaHeaders.OFFSET) long offset) {
+        process(statusUpdate, topic, partition, offset, true);
+    }
 
-        if (statusUpdate == null) {
-            log.warn("Received null payload from Kafka");
-            return;
-        }
+    /**
+     * Applies one record, counting and timing it like every other.
+     *
+     * @param inOffsetOrder whether records of the partition complete in offset order. If
+     *                      not, the caller moves the deduplicator's watermark itself once
+     *                      every record before this one is done.
+     * @throws RuntimeException if applying failed and the record should be tried again
+     */
+    void process(CardStatusUpdate statusUpdate, String topic, int partition, long offset, boolean inOffsetOrder) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = OUTCOME_ERROR;
 
         try {
+            if (statusUpdate == null) {
+                log.warn("Received null payload from Kafka");
+                outcome = OUTCOME_INVALID;
+                return;
+            }
+
             log.info("Received card status update for OIB: {}, Status: {}, Reason: {}",
                     statusUpdate.getOib(), statusUpdate.getStatus(), statusUpdate.getUpdateReason());
 
             if (!isValidStatusUpdate(statusUpdate)) {
                 log.warn("Invalid card status update received. Skipping processing.");
+                outcome = OUTCOME_INVALID;
                 return;
             }
 
-            clientService.updateClientStatus(statusUpdate.getOib(), statusUpdate.getStatus());
+            if (deduplicator.isDuplicate(topic, partition, offset, statusUpdate)) {
+                log.info("Duplicate card status update for OIB: {} at {}-{}@{}. Skipping processing.",
+                        statusUpdate.getOib(), topic, partition, offset);
+                outcome = OUTCOME_DUPLICATE;
+                return;
+            }
+
+            StatusUpdateOutcome result = clientService.applyStatusUpdate(statusUpdate);
+            outcome = recordOutcome(result);
+            logResult(statusUpdate, result);
+            // Redelivery of a stale or rejected update would be dropped the same way
+            if (result != StatusUpdateOutcome.NOT_FOUND) {
+                if (inOffsetOrder) {
+                    deduplicator.markProcessed(topic, partition, offset, statusUpdate);
+                } else {
+                    deduplicator.markKeyProcessed(statusUpdate);
+                }
+            } else if (inOffsetOrder) {
+                // A producer retry may still find the client, so only the offset is done
+                deduplicator.markOffsetProcessed(topic, partition, offset);
+            }
+
+        } catch (RuntimeException e) {
+            log.error("Error processing card status update for OIB: {} from {}-{}@{}",
+                    statusUpdate.getOib(), topic, partition, offset, e);
+            if (inOffsetOrder) {
+                deduplicator.markForwarded(topic, partition, offset);
+            }
+            // Rethrown so the record is tried again: on the next retry topic, or in its lane
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("card.status.consumer.record")
+                    .description("Time to process a single card status record")
+                    .tag("topic", topic)
+                    .register(meterRegistry));
+            countRecord(topic, outcome);
+        }
+    }
+
+    /**
+     * Receives records that used up their attempts, or could not be read at all. They
+     * stay in the dead-letter topic; this only reports them.
+     */
+    @DltHandler
+    public void receiveDeadLetter(@Payload(required = false) CardStatusUpdate statusUpdate,
+                                  @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                                  @Header(name = KafkaHeaders.DLT_EXCEPTION_MESSAGE, required = false)
+                                  byte[] exceptionMessage) {
+        log.error("Card status update for OIB: {} moved to {}: {}",
+                statusUpdate != null ? statusUpdate.getOib() : null, topic,
+                exceptionMessage != null ? new String(exceptionMessage, StandardCharsets.UTF_8) : "unknown error");
+        countRecord(topic, OUTCOME_DEAD_LETTER);
+    }
+
+    /**
+     * The updates of one OIB are coalesced into the last one when each is a valid
+     * transition from the one before; otherwise they are applied one by one, in order.
+     * <p>
+     * Failures are reported to the batch container's error handler by record index, so
+     * it commits the records before the failed one and retries, and finally
+     * dead-letters, only that record. If the set-based update fails, the records are
+     * applied one by one to find it. A record whose payload could not be read is
+     * reported by its index once the rest of the poll is applied, and goes to the
+     * dead-letter topic without further attempts.
+     */
+    @KafkaListener(
+            id = "cardStatusBatchListener",
+            topics = "${kafka.topics.card-status:card-status-topic}",
+            groupId = "${spring.kafka.consumer.group-id:card-status-group}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "${kafka.consumer.batch.enabled:false}"
+    )
+    public void receiveCardStatusUpdates(@Payload List<CardStatusUpdate> statusUpdates,
+                                         @Header(KafkaHeaders.RECEIVED_TOPIC) List<String> topics,
+                                         @Header(KafkaHeaders.RECEIVED_PARTITION) List<Integer> partitions,
+                                         @Header(KafkaHeaders.OFFSET) List<Long> offsets) {
+        log.info("Received batch of {} card status updates", statusUpdates.size());
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        Map<String, List<CardStatusUpdate>> updatesByOib = new LinkedHashMap<>();
+        List<Integer> accepted = new ArrayList<>(statusUpdates.size());
+        int unreadable = -1;
+        for (int i = 0; i < statusUpdates.size(); i++) {
+            CardStatusUpdate statusUpdate = statusUpdates.get(i);
+            if (statusUpdate == null) {
+                log.warn("Received null payload from Kafka");
+                countRecord(topics.get(i), OUTCOME_INVALID);
+                if (unreadable < 0) {
+                    unreadable = i;
+                }
+                continue;
+            }
+
+            log.info("Received card status update for OIB: {}, Status: {}, Reason: {}",
+                    statusUpdate.getOib(), statusUpdate.getStatus(), statusUpdate.getUpdateReason());
+
+            if (!isValidStatusUpdate(statusUpdate)) {
+                log.warn("Invalid card status update received. Skipping processing.");
+                countRecord(topics.get(i), OUTCOME_INVALID);
+                continue;
+            }
+
+            if (deduplicator.isDuplicate(topics.get(i), partitions.get(i), offsets.get(i), statusUpdate)) {
+                log.info("Duplicate card status update for OIB: {} at {}-{}@{}. Skipping processing.",
+                        statusUpdate.getOib(), topics.get(i), partitions.get(i), offsets.get(i));
+                countRecord(topics.get(i), OUTCOME_DUPLICATE);
+                continue;
+            }
+
+            accepted.add(i);
+            updatesByOib.computeIfAbsent(statusUpdate.getOib(), oib -> new ArrayList<>()).add(statusUpdate);
+        }
+
+        Map<String, List<CardStatusUpdate>> chains = new LinkedHashMap<>();
+        updatesByOib.forEach((oib, updates) -> {
+            List<CardStatusUpdate> chain = chain(updates);
+            if (chain != null) {
+                chains.put(oib, chain);
+            }
+        });
+        List<Integer> inOrder = accepted.stream()
+                .filter(i -> !chains.containsKey(statusUpdates.get(i).getOib()))
+                .toList();
+
+        try {
+            boolean coalesced = chains.isEmpty()
+                    || applyCoalesced(statusUpdates, topics, partitions, offsets, chains, accepted);
+            // After a failed set-based update everything is applied one by one, in poll order
+            applyEach(statusUpdates, topics, partitions, offsets, coalesced ? inOrder : accepted, unreadable);
+        } finally {
+            if (!topics.isEmpty()) {
+                sample.stop(Timer.builder("card.status.consumer.batch")
+                        .description("Time to process one polled batch of card status records")
+                        .tag("topic", topics.get(0))
+                        .register(meterRegistry));
+            }
+        }
+
+        // Only the records before it are committed; the ones after are redelivered and,
+        // having been applied already, skipped as duplicates
+        if (unreadable >= 0) {
+            throw unreadableRecord(unreadable);
+        }
+    }
 
+    /**
+     * Writes the last update of each chain with one set-based UPDATE.
+     *
+     * @return whether it succeeded; if not, none of the chains were applied
+     */
+    private boolean applyCoalesced(List<CardStatusUpdate> statusUpdates, List<String> topics,
+                                   List<Integer> partitions, List<Long> offsets,
+                                   Map<String, List<CardStatusUpdate>> chains, List<Integer> accepted) {
+        Map<String, StatusUpdateOutcome> results;
+        try {
+            results = clientService.updateClientStatuses(chains.values());
+        } catch (RuntimeException e) {
+            log.warn("Batch update of {} clients failed. Applying the records one by one", chains.size(), e);
+            return false;
+        }
+
+        for (List<CardStatusUpdate> chain : chains.values()) {
+            CardStatusUpdate last = chain.get(chain.size() - 1);
+            logResult(last, results.get(last.getOib()));
+        }
+
+        for (int i : accepted) {
+            CardStatusUpdate statusUpdate = statusUpdates.get(i);
+            List<CardStatusUpdate> chain = chains.get(statusUpdate.getOib());
+            if (chain == null) {
+                continue;
+            }
+            StatusUpdateOutcome result = results.get(statusUpdate.getOib());
+            markDone(topics.get(i), partitions.get(i), offsets.get(i), statusUpdate, result);
+            if (chain.get(chain.size() - 1) != statusUpdate) {
+                countRecord(topics.get(i), OUTCOME_COALESCED);
+            } else {
+                countRecord(topics.get(i), recordOutcome(result));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies the accepted records one at a time, in poll order. The first one that
+     * fails is reported by its index; the records before it are applied and get
+     * committed, the ones after it are redelivered.
+     */
+    private void applyEach(List<CardStatusUpdate> statusUpdates, List<String> topics,
+                           List<Integer> partitions, List<Long> offsets,
+                           List<Integer> accepted, int unreadable) {
+        for (int i : accepted) {
+            CardStatusUpdate statusUpdate = statusUpdates.get(i);
+            StatusUpdateOutcome result;
+            try {
+                result = clientService.applyStatusUpdate(statusUpdate);
+            } catch (RuntimeException e) {
+                log.error("Error processing card status update for OIB: {} from {}-{}@{}",
+                        statusUpdate.getOib(), topics.get(i), partitions.get(i), offsets.get(i), e);
+                countRecord(topics.get(i), OUTCOME_ERROR);
+                // Reporting a later index would commit past the unreadable record
+                if (unreadable >= 0 && unreadable < i) {
+                    throw unreadableRecord(unreadable);
+                }
+                deduplicator.markForwarded(topics.get(i), partitions.get(i), offsets.get(i));
+                throw new BatchListenerFailedException("Card status update failed", e, i);
+            }
+            logResult(statusUpdate, result);
+            markDone(topics.get(i), partitions.get(i), offsets.get(i), statusUpdate, result);
+            countRecord(topics.get(i), recordOutcome(result));
+        }
+    }
+
+    /**
+     * Records an applied update in the deduplicator. One whose client was not found only
+     * moves the watermark, so a producer retry of it is still applied.
+     */
+    private void markDone(String topic, int partition, long offset, CardStatusUpdate statusUpdate,
+                          StatusUpdateOutcome result) {
+        if (result == StatusUpdateOutcome.NOT_FOUND) {
+            deduplicator.markOffsetProcessed(topic, partition, offset);
+        } else if (result != null) {
+            deduplicator.markProcessed(topic, partition, offset, statusUpdate);
+        }
+    }
+
+    private static BatchListenerFailedException unreadableRecord(int index) {
+        return new BatchListenerFailedException("Unreadable card status record",
+                new IllegalArgumentException("Card status payload could not be deserialized"), index);
+    }
+
+    private static String recordOutcome(StatusUpdateOutcome result) {
+        if (result == null) {
+            return OUTCOME_ERROR;
+        }
+        return switch (result) {
+            case APPLIED -> OUTCOME_SUCCESS;
+            case STALE -> OUTCOME_STALE;
+            case REJECTED -> OUTCOME_REJECTED;
+            case NOT_FOUND -> OUTCOME_NOT_FOUND;
+        };
+    }
+
+    private static void logResult(CardStatusUpdate statusUpdate, StatusUpdateOutcome result) {
+        if (result == StatusUpdateOutcome.APPLIED) {
             log.info("Successfully updated card status for OIB: {} to {}",
                     statusUpdate.getOib(), statusUpdate.getStatus());
+        } else if (result == StatusUpdateOutcome.STALE) {
+            log.info("Skipping card status update for OIB: {} to {}. A newer update was already applied",
+                    statusUpdate.getOib(), statusUpdate.getStatus());
+        } else if (result == StatusUpdateOutcome.REJECTED) {
+            log.warn("Skipping card status update for OIB: {}. Its status cannot change to {}",
+                    statusUpdate.getOib(), statusUpdate.getStatus());
+        } else {
+            log.error("Error processing card status update for OIB: {}. Client with OIB {} not found",
+                    statusUpdate.getOib(), statusUpdate.getOib());
+        }
+    }
+
+    private void countRecord(String topic, String outcome) {
+        Counter.builder("card.status.consumer.records")
+                .description("Card status records consumed, by outcome")
+                .tag("topic", topic)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
 
-        } catch (Exception e) {
-            log.error("Error processing card status update for OIB: {}",
-                    statusUpdate.getOib(), e);
+    /**
+     * Orders the polled updates of one OIB as they were issued. Records of one OIB share
+     * a partition, so when timestamps are missing or equal the later arrival comes later.
+     *
+     * @return the ordered updates, or {@code null} if a step is not a valid transition
+     * from the one before: writing only the last could then end somewhere applying them
+     * one by one would not, so they must not be coalesced
+     */
+    static List<CardStatusUpdate> chain(List<CardStatusUpdate> updates) {
+        List<CardStatusUpdate> chain = new ArrayList<>(updates);
+        if (chain.stream().allMatch(update -> update.getTimestamp() != null)) {
+            chain.sort(Comparator.comparing(CardStatusUpdate::getTimestamp));
         }
+        for (int i = 1; i < chain.size(); i++) {
+            CardStatus from = CardStatus.parse(chain.get(i - 1).getStatus());
+            if (!from.canTransitionTo(CardStatus.parse(chain.get(i).getStatus()))) {
+                return null;
+            }
+        }
+        return chain;
     }
 
-    private boolean isValidStatusUpdate(CardStatusUpdate statusUpdate) {
+    boolean isValidStatusUpdate(CardStatusUpdate statusUpdate) {
         if (statusUpdate == null) {
             log.warn("Received null status update");
             return false;
         }
 
-        if (statusUpdate.getOib() == null || statusUpdate.getOib().length() != 11) {
+        if (statusUpdate.getOib() == null || !OIB_PATTERN.matcher(statusUpdate.getOib()).matches()) {
             log.warn("Invalid OIB format in status update: {}", statusUpdate.getOib());
             return false;
         }
@@ -64,16 +432,7 @@ public class CardStatusConsumer {
             return false;
         }
 
-        String[] validStatuses = {"PENDING", "APPROVED", "REJECTED", "IN_PROGRESS", "COMPLETED", "SHIPPED"};
-        boolean isValidStatus = false;
-        for (String validStatus : validStatuses) {
-            if (validStatus.equalsIgnoreCase(statusUpdate.getStatus())) {
-                isValidStatus = true;
-                break;
-            }
-        }
-
-        if (!isValidStatus) {
+        if (CardStatus.find(statusUpdate.getStatus()) == null) {
             log.warn("Invalid status value received: {} for OIB: {}",
                     statusUpdate.getStatus(), statusUpdate.getOib());
             return false;
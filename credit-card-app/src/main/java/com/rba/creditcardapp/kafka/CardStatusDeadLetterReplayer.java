@@ -0,0 +1,160 @@
+package com.rba.creditcardapp.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rba.creditcardapp.config.KafkaConfig;
+import com.rba.creditcardapp.dto.CardStatusUpdate;
+import com.rba.creditcardapp.dto.DeadLetterReplayResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.JacksonUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends records from the card status dead-letter topic back to the card status topic,
+ * once whatever made them fail has been fixed.
+ * <p>
+ * Progress is kept as committed offsets of a consumer group of its own, so each record
+ * is replayed once, and a record that fails again simply comes back to the dead-letter
+ * topic as a new one. Records that still cannot be read as a status update are skipped;
+ * they remain in the topic for inspection.
+ */
+@Component
+@Slf4j
+public class CardStatusDeadLetterReplayer {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final ConsumerFactory<String, byte[]> consumerFactory;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final String cardStatusTopic;
+    private final String deadLetterTopic;
+    private final MeterRegistry meterRegistry;
+    // Same settings as the JsonDeserializer of the listeners
+    private final ObjectMapper objectMapper = JacksonUtils.enhancedObjectMapper();
+
+    public CardStatusDeadLetterReplayer(@Qualifier("deadLetterConsumerFactory")
+                                        ConsumerFactory<String, byte[]> consumerFactory,
+                                        @Qualifier("deadLetterKafkaTemplate")
+                                        KafkaTemplate<String, Object> kafkaTemplate,
+                                        @Value("${kafka.topics.card-status:card-status-topic}") String cardStatusTopic,
+                                        MeterRegistry meterRegistry) {
+        this.consumerFactory = consumerFactory;
+        this.kafkaTemplate = kafkaTemplate;
+        this.cardStatusTopic = cardStatusTopic;
+        this.deadLetterTopic = cardStatusTopic + KafkaConfig.DLT_SUFFIX;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Replays up to {@code max} dead-lettered records, oldest first per partition, and
+     * returns once the broker acknowledged them.
+     */
+    public DeadLetterReplayResponse replay(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("max must be at least 1");
+        }
+
+        int replayed = 0;
+        int skipped = 0;
+        try (Consumer<String, byte[]> consumer = consumerFactory.createConsumer()) {
+            List<PartitionInfo> partitionInfos = consumer.partitionsFor(deadLetterTopic);
+            if (partitionInfos == null || partitionInfos.isEmpty()) {
+                return new DeadLetterReplayResponse(0, 0);
+            }
+            consumer.assign(partitionInfos.stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .toList());
+
+            while (replayed + skipped < max) {
+                ConsumerRecords<String, byte[]> records = consumer.poll(POLL_TIMEOUT);
+                if (records.isEmpty()) {
+                    break;
+                }
+
+                List<CompletableFuture<?>> sends = new ArrayList<>();
+                Map<TopicPartition, OffsetAndMetadata> processed = new HashMap<>();
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    if (replayed + skipped == max) {
+                        break;
+                    }
+                    if (isReadable(record.value())) {
+                        sends.add(kafkaTemplate.send(toCardStatusTopic(record)));
+                        replayed++;
+                    } else {
+                        log.warn("Skipping unreadable dead-lettered record {}-{}@{}",
+                                record.topic(), record.partition(), record.offset());
+                        skipped++;
+                    }
+                    processed.put(new TopicPartition(record.topic(), record.partition()),
+                            new OffsetAndMetadata(record.offset() + 1));
+                }
+
+                // Offsets only move past records the broker has taken back
+                CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+                consumer.commitSync(processed);
+            }
+        } finally {
+            count("REPLAYED", replayed);
+            count("SKIPPED", skipped);
+        }
+
+        log.info("Replayed {} dead-lettered card status updates, skipped {}", replayed, skipped);
+        return new DeadLetterReplayResponse(replayed, skipped);
+    }
+
+    private boolean isReadable(byte[] value) {
+        if (value == null) {
+            return false;
+        }
+        try {
+            return objectMapper.readValue(value, CardStatusUpdate.class) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Republishes the record with its original key and headers. The failure and retry
+     * headers are dropped so that it starts over with a full set of attempts; records
+     * that came through a retry topic go back to the main topic too.
+     */
+    private ProducerRecord<String, Object> toCardStatusTopic(ConsumerRecord<String, byte[]> record) {
+        RecordHeaders headers = new RecordHeaders();
+        for (Header header : record.headers()) {
+            if (!header.key().startsWith("kafka_") && !header.key().startsWith("retry_topic-")) {
+                headers.add(header);
+            }
+        }
+        return new ProducerRecord<>(cardStatusTopic, null, record.key(), record.value(), headers);
+    }
+
+    private void count(String outcome, int amount) {
+        Counter.builder("card.status.dlt.replay")
+                .description("Dead-lettered card status records replayed or skipped")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment(amount);
+    }
+}
@@ -0,0 +1,331 @@
+package com.rba.creditcardapp.kafka;
+
+import com.rba.creditcardapp.dto.CardStatusUpdate;
+import com.rba.creditcardapp.model.ConsumerWatermark;
+import com.rba.creditcardapp.repository.ConsumerWatermarkRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drops card status events that were already applied, before they reach the database.
+ * <p>
+ * Two checks are made per record:
+ * <ul>
+ *     <li>a per-partition offset watermark catches records replayed after a restart or
+ *     rebalance. It only moves over records whose handling on their topic is final:
+ *     applied, found no client, or failed and forwarded to a retry or dead-letter topic.
+ *     A failed record counts as forwarded once a later record of its partition arrives;
+ *     if it is redelivered instead, it is let through again. Watermarks are flushed to
+ *     {@code kafka_consumer_watermark} periodically and on revocation, and loaded
+ *     lazily the first time a partition is seen after being assigned;</li>
+ *     <li>a bounded, time-windowed set of OIB + status + event timestamp keys catches
+ *     producer retries, which arrive under a new offset.</li>
+ * </ul>
+ * Keys are only remembered through {@link #markProcessed} and {@link #markKeyProcessed},
+ * so a producer retry of a failed record, or of one whose client did not exist yet, is
+ * never suppressed. Revoked partitions must be passed to {@link #forget}; the listener
+ * container factories register this as their rebalance listener for that.
+ */
+@Component
+@Slf4j
+public class CardStatusDeduplicator implements ConsumerAwareRebalanceListener {
+
+    private static final long NO_WATERMARK = -1L;
+
+    private final ConsumerWatermarkRepository watermarkRepository;
+    private final String consumerGroup;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long windowMillis;
+
+    private final Map<TopicPartition, PartitionState> partitions = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, Long> pendingFlush = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, Long> recentKeys = new LinkedHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CardStatusDeduplicator(ConsumerWatermarkRepository watermarkRepository,
+                                  @Value("${spring.kafka.consumer.group-id:card-status-group}") String consumerGroup,
+                                  @Value("${kafka.consumer.dedup.enabled:true}") boolean enabled,
+                                  @Value("${kafka.consumer.dedup.max-entries:100000}") int maxEntries,
+                                  @Value("${kafka.consumer.dedup.window-ms:600000}") long windowMillis) {
+        this.watermarkRepository = watermarkRepository;
+        this.consumerGroup = consumerGroup;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.windowMillis = windowMillis;
+    }
+
+    public boolean isDuplicate(String topic, int partition, long offset, CardStatusUpdate statusUpdate) {
+        if (!enabled) {
+            return false;
+        }
+
+        PartitionState state = stateOf(topic, partition);
+        long released = state.arrived(offset);
+        if (released != NO_WATERMARK) {
+            pendingFlush.merge(new TopicPartition(topic, partition), released, Math::max);
+        }
+        boolean duplicate = state.isBelowWatermark(offset);
+
+        if (!duplicate) {
+            String key = keyOf(statusUpdate);
+            long now = System.currentTimeMillis();
+            synchronized (recentKeys) {
+                evictExpired(now);
+                Long seenAt = recentKeys.get(key);
+                duplicate = seenAt != null && now - seenAt <= windowMillis;
+            }
+        }
+
+        if (duplicate) {
+            hits.increment();
+        } else {
+            state.letThrough(offset, maxEntries);
+            misses.increment();
+        }
+        return duplicate;
+    }
+
+    public void markProcessed(String topic, int partition, long offset, CardStatusUpdate statusUpdate) {
+        markOffsetProcessed(topic, partition, offset);
+        markKeyProcessed(statusUpdate);
+    }
+
+    /**
+     * Moves the watermark over a record without remembering its key, for records whose
+     * handling is final but that did not change anything a retry of them could not,
+     * such as an update for a client that does not exist yet.
+     */
+    public void markOffsetProcessed(String topic, int partition, long offset) {
+        if (!enabled) {
+            return;
+        }
+
+        long watermark = stateOf(topic, partition).applied(offset);
+        pendingFlush.merge(new TopicPartition(topic, partition), watermark, Math::max);
+    }
+
+    /**
+     * Notes a record that failed and is left to the container's error handler, which
+     * either forwards it to a retry or dead-letter topic or redelivers it. The watermark
+     * moves over it when a later record of the partition arrives.
+     */
+    public void markForwarded(String topic, int partition, long offset) {
+        if (!enabled) {
+            return;
+        }
+
+        stateOf(topic, partition).forwarded(offset);
+    }
+
+    /**
+     * Moves the watermark of a partition to {@code offset}, for callers that track
+     * completion themselves. Only call this once every record up to it is done.
+     */
+    public void advanceWatermark(String topic, int partition, long offset) {
+        if (!enabled) {
+            return;
+        }
+
+        long watermark = stateOf(topic, partition).advance(offset);
+        pendingFlush.merge(new TopicPartition(topic, partition), watermark, Math::max);
+    }
+
+    /**
+     * Remembers an applied record by its key only, for records completing out of offset
+     * order whose watermark is moved separately through {@link #advanceWatermark}.
+     */
+    public void markKeyProcessed(CardStatusUpdate statusUpdate) {
+        if (!enabled) {
+            return;
+        }
+
+        String key = keyOf(statusUpdate);
+        long now = System.currentTimeMillis();
+        synchronized (recentKeys) {
+            recentKeys.remove(key);
+            recentKeys.put(key, now);
+            evictExpired(now);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${kafka.consumer.dedup.flush-interval-ms:5000}")
+    public void flushWatermarks() {
+        for (Map.Entry<TopicPartition, Long> entry : pendingFlush.entrySet()) {
+            if (flush(entry.getKey(), entry.getValue())) {
+                pendingFlush.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private boolean flush(TopicPartition topicPartition, long offset) {
+        try {
+            watermarkRepository.upsert(consumerGroup, topicPartition.topic(), topicPartition.partition(), offset);
+            return true;
+        } catch (Exception e) {
+            log.warn("Failed to persist consumer watermark for {} at offset {}: {}",
+                    topicPartition, offset, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Persists the watermarks of the partitions and forgets them, so they are loaded
+     * again, possibly as moved by another consumer, if they are assigned back.
+     */
+    public void forget(Collection<TopicPartition> revoked) {
+        for (TopicPartition topicPartition : revoked) {
+            partitions.remove(topicPartition);
+            Long offset = pendingFlush.remove(topicPartition);
+            if (offset != null) {
+                flush(topicPartition, offset);
+            }
+        }
+    }
+
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+        forget(revoked);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> lost) {
+        forget(lost);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushWatermarks();
+        log.info("Card status deduplicator stopped. Hits: {}, misses: {}", getHits(), getMisses());
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private PartitionState stateOf(String topic, int partition) {
+        return partitions.computeIfAbsent(new TopicPartition(topic, partition),
+                topicPartition -> new PartitionState(loadWatermark(topicPartition)));
+    }
+
+    private long loadWatermark(TopicPartition topicPartition) {
+        try {
+            long offset = watermarkRepository
+                    .findById(new ConsumerWatermark.Key(consumerGroup, topicPartition.topic(), topicPartition.partition()))
+                    .map(ConsumerWatermark::getLastOffset)
+                    .orElse(NO_WATERMARK);
+            log.info("Loaded consumer watermark for {}: {}", topicPartition, offset);
+            return offset;
+        } catch (Exception e) {
+            log.warn("Failed to load consumer watermark for {}: {}", topicPartition, e.getMessage());
+            return NO_WATERMARK;
+        }
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Map.Entry<String, Long>> it = recentKeys.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            if (recentKeys.size() > maxEntries || now - eldest.getValue() > windowMillis) {
+                it.remove();
+            } else {
+                break;
+            }
+        }
+    }
+
+    private static String keyOf(CardStatusUpdate statusUpdate) {
+        return statusUpdate.getOib() + '|' + statusUpdate.getStatus() + '|' + statusUpdate.getTimestamp();
+    }
+
+    /**
+     * Watermark of one partition and the records let through above it that are not
+     * applied yet. Offsets the watermark must stay below once dropped from that set, to
+     * keep it within {@code max-entries}, are remembered as a ceiling.
+     */
+    private static final class PartitionState {
+
+        private final TreeSet<Long> unapplied = new TreeSet<>();
+        private final TreeSet<Long> forwarded = new TreeSet<>();
+        private long watermark;
+        private long highestApplied;
+        private long ceiling = Long.MAX_VALUE;
+
+        private PartitionState(long watermark) {
+            this.watermark = watermark;
+            this.highestApplied = watermark;
+        }
+
+        private synchronized boolean isBelowWatermark(long offset) {
+            return offset <= watermark;
+        }
+
+        /**
+         * Settles the failed records before {@code offset}: the error handler moved past
+         * them, so they were forwarded. A failed record arriving again was not.
+         *
+         * @return the new watermark, or {@code NO_WATERMARK} if it did not move
+         */
+        private synchronized long arrived(long offset) {
+            forwarded.remove(offset);
+            if (forwarded.isEmpty() || forwarded.first() > offset) {
+                return NO_WATERMARK;
+            }
+            long before = watermark;
+            NavigableSet<Long> settled = forwarded.headSet(offset, false);
+            for (long done : settled) {
+                applied(done);
+            }
+            settled.clear();
+            return watermark != before ? watermark : NO_WATERMARK;
+        }
+
+        private synchronized void forwarded(long offset) {
+            forwarded.add(offset);
+        }
+
+        private synchronized void letThrough(long offset, int maxEntries) {
+            unapplied.add(offset);
+            if (unapplied.size() > maxEntries) {
+                ceiling = Math.min(ceiling, unapplied.pollLast() - 1);
+            }
+        }
+
+        private synchronized long applied(long offset) {
+            unapplied.remove(offset);
+            highestApplied = Math.max(highestApplied, offset);
+            long limit = unapplied.isEmpty() ? highestApplied : Math.min(highestApplied, unapplied.first() - 1);
+            watermark = Math.max(watermark, Math.min(limit, ceiling));
+            return watermark;
+        }
+
+        private synchronized long advance(long offset) {
+            unapplied.headSet(offset, true).clear();
+            forwarded.headSet(offset, true).clear();
+            highestApplied = Math.max(highestApplied, offset);
+            watermark = Math.max(watermark, Math.min(offset, ceiling));
+            return watermark;
+        }
+    }
+}
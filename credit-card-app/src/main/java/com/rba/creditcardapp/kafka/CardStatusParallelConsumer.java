@@ -0,0 +1,274 @@
+package com.rba.creditcardapp.kafka;
+
+import com.rba.creditcardapp.dto.CardStatusUpdate;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+import org.springframework.util.backoff.ExponentialBackOff;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Applies card status events with more writers than the topic has partitions, when
+ * {@code kafka.consumer.parallel.enabled=true}.
+ * <p>
+ * Each polled record is handed to one of {@code kafka.consumer.parallel.lanes} lanes
+ * picked by its key, the OIB. Updates of one client therefore stay in order while
+ * different clients are written concurrently, even within a single partition. A
+ * partition's offset is committed up to the last record before the lowest one still in
+ * a lane, so a restart redelivers everything that was not done.
+ * <p>
+ * A failing record is retried within its lane with the retry topic backoff, holding up
+ * only the keys of that lane, and then dead-lettered. If the dead-letter topic cannot be
+ * written either, the lane gives up after a few tries and the partition is sought back
+ * to the record, so it is redelivered and tried again without holding up the lane.
+ * <p>
+ * Before a partition is revoked, the records of it that are in a lane get up to
+ * {@code drain-timeout} to finish. Those still waiting after that are skipped, since the
+ * partition's new owner processes them again.
+ */
+@Component
+@Slf4j
+public class CardStatusParallelConsumer implements ConsumerAwareRebalanceListener, ConsumerSeekAware {
+
+    static final String LISTENER_ID = "cardStatusParallelListener";
+
+    // Three tries, five seconds apart
+    private static final long DEAD_LETTER_RETRY_INTERVAL = 5000;
+    private static final long DEAD_LETTER_RETRIES = 2;
+
+    private final CardStatusConsumer cardStatusConsumer;
+    private final CardStatusDeduplicator deduplicator;
+    private final ConsumerRecordRecoverer deadLetterRecoverer;
+    private final KeyOrderedExecutor lanes;
+    private final BackOff retryBackOff;
+    private final BackOff deadLetterBackOff;
+    private final Duration drainTimeout;
+    private final PendingOffsets<Acknowledgment> pending = new PendingOffsets<>();
+    private final Map<TopicPartition, ConsumerSeekCallback> seekCallbacks = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CardStatusParallelConsumer(CardStatusConsumer cardStatusConsumer,
+                                      CardStatusDeduplicator deduplicator,
+                                      @Qualifier("cardStatusDeadLetterRecoverer")
+                                      ConsumerRecordRecoverer deadLetterRecoverer,
+                                      @Value("${kafka.consumer.parallel.lanes:16}") int lanes,
+                                      @Value("${kafka.consumer.parallel.lane-capacity:20}") int laneCapacity,
+                                      @Value("${kafka.consumer.parallel.drain-timeout:30s}") Duration drainTimeout,
+                                      @Value("${kafka.consumer.retry.attempts:4}") int retryAttempts,
+                                      @Value("${kafka.consumer.retry.backoff.initial-interval:1000}")
+                                      long retryInitialInterval,
+                                      @Value("${kafka.consumer.retry.backoff.multiplier:2}")
+                                      double retryMultiplier,
+                                      @Value("${kafka.consumer.retry.backoff.max-interval:10000}")
+                                      long retryMaxInterval) {
+        this(cardStatusConsumer, deduplicator, deadLetterRecoverer,
+                new KeyOrderedExecutor("card-status-lane-", lanes, laneCapacity),
+                retryBackOff(retryAttempts, retryInitialInterval, retryMultiplier, retryMaxInterval),
+                new FixedBackOff(DEAD_LETTER_RETRY_INTERVAL, DEAD_LETTER_RETRIES), drainTimeout);
+    }
+
+    CardStatusParallelConsumer(CardStatusConsumer cardStatusConsumer, CardStatusDeduplicator deduplicator,
+                               ConsumerRecordRecoverer deadLetterRecoverer, KeyOrderedExecutor lanes,
+                               BackOff retryBackOff, BackOff deadLetterBackOff, Duration drainTimeout) {
+        this.cardStatusConsumer = cardStatusConsumer;
+        this.deduplicator = deduplicator;
+        this.deadLetterRecoverer = deadLetterRecoverer;
+        this.lanes = lanes;
+        this.retryBackOff = retryBackOff;
+        this.deadLetterBackOff = deadLetterBackOff;
+        this.drainTimeout = drainTimeout;
+    }
+
+    private static BackOff retryBackOff(int attempts, long initialInterval, double multiplier, long maxInterval) {
+        ExponentialBackOff backOff = new ExponentialBackOff(initialInterval, multiplier);
+        backOff.setMaxInterval(maxInterval);
+        backOff.setMaxAttempts(attempts - 1);
+        return backOff;
+    }
+
+    @KafkaListener(
+            id = LISTENER_ID,
+            topics = "${kafka.topics.card-status:card-status-topic}",
+            groupId = "${spring.kafka.consumer.group-id:card-status-group}",
+            containerFactory = "parallelKafkaListenerContainerFactory",
+            autoStartup = "${kafka.consumer.parallel.enabled:false}"
+    )
+    public void receiveCardStatusUpdate(ConsumerRecord<String, CardStatusUpdate> record,
+                                        Acknowledgment acknowledgment) {
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        pending.add(partition, record.offset(), acknowledgment);
+        try {
+            // False once the partition is revoked, or the record handed out again
+            BooleanSupplier current = () -> pending.isPending(partition, record.offset(), acknowledgment);
+            lanes.execute(laneKey(record), () -> {
+                if (process(record, current)) {
+                    complete(partition, record.offset(), acknowledgment);
+                }
+            });
+        } catch (InterruptedException e) {
+            // Stopping; left uncommitted so it is redelivered
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        // The container commits right after this, so what finishes now is not redelivered
+        try {
+            if (!pending.awaitDone(partitions, drainTimeout)) {
+                log.warn("Records of {} still in progress after {}; they will be redelivered",
+                        partitions, drainTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pending.remove(partitions);
+        deduplicator.forget(partitions);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        pending.remove(partitions);
+        deduplicator.forget(partitions);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        assignments.keySet().forEach(partition -> seekCallbacks.put(partition, callback));
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        partitions.forEach(seekCallbacks::remove);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.shutdown(drainTimeout);
+    }
+
+    /**
+     * @return the number of records in the lanes, running or waiting
+     */
+    public int getQueued() {
+        return lanes.getQueued();
+    }
+
+    /**
+     * @return the number of records received whose offset is not committable yet
+     */
+    public int getUncommitted() {
+        return pending.size();
+    }
+
+    private static Object laneKey(ConsumerRecord<String, CardStatusUpdate> record) {
+        if (record.key() != null) {
+            return record.key();
+        }
+        return record.value() != null ? record.value().getOib() : null;
+    }
+
+    /**
+     * @param current whether the record is still this consumer's to process
+     * @return whether the record is done with, applied or dead-lettered
+     */
+    private boolean process(ConsumerRecord<String, CardStatusUpdate> record, BooleanSupplier current) {
+        BackOffExecution backOff = retryBackOff.start();
+        while (true) {
+            if (!current.getAsBoolean()) {
+                log.debug("Skipping card status record {}-{}@{}; it is no longer assigned here",
+                        record.topic(), record.partition(), record.offset());
+                return false;
+            }
+            try {
+                cardStatusConsumer.process(record.value(), record.topic(), record.partition(), record.offset(), false);
+                return true;
+            } catch (RuntimeException e) {
+                long delay = e instanceof IllegalArgumentException ? BackOffExecution.STOP : backOff.nextBackOff();
+                if (delay == BackOffExecution.STOP) {
+                    return deadLetter(record, e, current);
+                }
+                log.warn("Retrying card status record {}-{}@{} in {} ms",
+                        record.topic(), record.partition(), record.offset(), delay);
+                if (!sleep(delay)) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private boolean deadLetter(ConsumerRecord<String, CardStatusUpdate> record, RuntimeException cause,
+                               BooleanSupplier current) {
+        // The partition's offsets do not move past the record until it is in the dead-letter topic
+        BackOffExecution backOff = deadLetterBackOff.start();
+        while (current.getAsBoolean()) {
+            try {
+                deadLetterRecoverer.accept(record, cause);
+                return true;
+            } catch (RuntimeException e) {
+                long delay = backOff.nextBackOff();
+                if (delay == BackOffExecution.STOP) {
+                    log.error("Could not dead-letter card status record {}-{}@{}. It will be redelivered",
+                            record.topic(), record.partition(), record.offset(), e);
+                    redeliver(record);
+                    return false;
+                }
+                log.error("Could not dead-letter card status record {}-{}@{}. Trying again in {} ms",
+                        record.topic(), record.partition(), record.offset(), delay, e);
+                if (!sleep(delay)) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Seeks the record's partition back to it. The seek is done by the consumer thread
+     * before its next poll; records after it that are redelivered replace their earlier
+     * runs, which are then skipped.
+     */
+    private void redeliver(ConsumerRecord<String, CardStatusUpdate> record) {
+        ConsumerSeekCallback callback = seekCallbacks.get(new TopicPartition(record.topic(), record.partition()));
+        if (callback != null) {
+            callback.seek(record.topic(), record.partition(), record.offset());
+        }
+    }
+
+    private void complete(TopicPartition partition, long offset, Acknowledgment acknowledgment) {
+        PendingOffsets.Completed<Acknowledgment> committable = pending.complete(partition, offset, acknowledgment);
+        if (committable != null) {
+            deduplicator.advanceWatermark(partition.topic(), partition.partition(), committable.offset());
+            committable.value().acknowledge();
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,43 +1,91 @@
 package com.rba.creditcardapp.kafka;
 
 import com.rba.creditcardapp.dto.CardStatusUpdate;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 @Component
 @Slf4j
 public class CardStatusProducer {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final String cardStatusTopic;
+    private final MeterRegistry meterRegistry;
 
-    public CardStatusProducer(KafkaTemplate<String, Object> kafkaTemplate) {
+    public CardStatusProducer(KafkaTemplate<String, Object> kafkaTemplate,
+                              @Value("${kafka.topics.card-status:card-status-topic}") String cardStatusTopic,
+                              MeterRegistry meterRegistry) {
         this.kafkaTemplate = kafkaTemplate;
+        this.cardStatusTopic = cardStatusTopic;
+        this.meterRegistry = meterRegistry;
     }
 
-    public void sendCardStatusUpdate(String topic, CardStatusUpdate statusUpdate) {
+    /**
+     * Sends one status update keyed by OIB. The returned future completes when the
+     * broker acknowledges the record, or exceptionally if the send fails. The time until
+     * then is recorded in {@code card.status.producer.send}, tagged with topic and outcome.
+     */
+    public CompletableFuture<SendResult<String, Object>> sendCardStatusUpdate(String topic,
+                                                                              CardStatusUpdate statusUpdate) {
+        long start = System.nanoTime();
+
+        CompletableFuture<SendResult<String, Object>> future;
         try {
-            Message<CardStatusUpdate> message = MessageBuilder
-                    .withPayload(statusUpdate)
-                    .setHeader(KafkaHeaders.TOPIC, topic)
-                    .setHeader(KafkaHeaders.KEY, statusUpdate.getOib())
-                    .build();
+            future = kafkaTemplate.send(topic, statusUpdate.getOib(), statusUpdate);
+        } catch (Exception e) {
+            recordSend(topic, "FAILURE", System.nanoTime() - start);
+            log.error("Error sending card status update to Kafka", e);
+            return CompletableFuture.failedFuture(new RuntimeException("Failed to send message to Kafka", e));
+        }
 
-            kafkaTemplate.send(message);
+        return future.whenComplete((result, ex) -> {
+            long elapsed = System.nanoTime() - start;
+            recordSend(topic, ex == null ? "SUCCESS" : "FAILURE", elapsed);
+            if (ex == null) {
+                log.debug("Sent card status update to topic: {}, OIB: {}, Status: {}",
+                        topic, statusUpdate.getOib(), statusUpdate.getStatus());
+            } else {
+                log.error("Error sending card status update to topic: {}, OIB: {}",
+                        topic, statusUpdate.getOib(), ex);
+            }
+        });
+    }
 
-            log.info("Sent card status update to topic: {}, OIB: {}, Status: {}",
-                    topic, statusUpdate.getOib(), statusUpdate.getStatus());
+    public CompletableFuture<SendResult<String, Object>> sendCardStatusUpdate(CardStatusUpdate statusUpdate) {
+        return sendCardStatusUpdate(cardStatusTopic, statusUpdate);
+    }
 
-        } catch (Exception e) {
-            log.error("Error sending card status update to Kafka", e);
-            throw new RuntimeException("Failed to send message to Kafka", e);
+    /**
+     * Hands all updates to the producer without waiting in between, so they are
+     * batched according to the configured producer profile. The returned future
+     * completes once every record has been acknowledged and fails if any failed.
+     */
+    public CompletableFuture<Void> sendAll(Collection<CardStatusUpdate> statusUpdates) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[statusUpdates.size()];
+        int i = 0;
+        for (CardStatusUpdate statusUpdate : statusUpdates) {
+            futures[i++] = sendCardStatusUpdate(statusUpdate);
         }
+
+        log.info("Queued {} card status updates for topic: {}", futures.length, cardStatusTopic);
+        return CompletableFuture.allOf(futures);
     }
 
-    public void sendCardStatusUpdate(CardStatusUpdate statusUpdate) {
-        sendCardStatusUpdate("card-status-topic", statusUpdate);
+    private void recordSend(String topic, String outcome, long nanos) {
+        Timer.builder("card.status.producer.send")
+                .description("Time until the broker acknowledged a card status record")
+                .tag("topic", topic)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,98 @@
+package com.rba.creditcardapp.kafka;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs tasks on a fixed number of lanes of one thread each. Tasks with equal keys always
+ * share a lane, so they run one at a time and in the order they were submitted; tasks
+ * with different keys mostly run in parallel.
+ * <p>
+ * Each lane holds at most {@code laneCapacity} tasks, running or waiting. Submitting to
+ * a full lane blocks, which slows the submitter down to the pace of that lane.
+ */
+public class KeyOrderedExecutor {
+
+    private final Lane[] lanes;
+    private final int laneCapacity;
+
+    public KeyOrderedExecutor(String threadNamePrefix, int laneCount, int laneCapacity) {
+        if (laneCount < 1 || laneCapacity < 1) {
+            throw new IllegalArgumentException("laneCount and laneCapacity must be at least 1");
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(Executors.newSingleThreadExecutor(threadFactory), new Semaphore(laneCapacity));
+        }
+        this.laneCapacity = laneCapacity;
+    }
+
+    /**
+     * Queues the task on the lane of its key, waiting while that lane is full.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     * @throws RejectedExecutionException if the executor was shut down
+     */
+    public void execute(Object key, Runnable task) throws InterruptedException {
+        Lane lane = lanes[Math.floorMod(Objects.hashCode(key), lanes.length)];
+        lane.permits.acquire();
+        try {
+            lane.executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    lane.permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            lane.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of tasks running or waiting, over all lanes
+     */
+    public int getQueued() {
+        int queued = 0;
+        for (Lane lane : lanes) {
+            queued += laneCapacity - lane.permits.availablePermits();
+        }
+        return queued;
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Lets queued tasks finish for up to {@code timeout}, then interrupts the rest.
+     */
+    public void shutdown(Duration timeout) {
+        for (Lane lane : lanes) {
+            lane.executor.shutdown();
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            for (Lane lane : lanes) {
+                lane.executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Lane lane : lanes) {
+            lane.executor.shutdownNow();
+        }
+    }
+
+    private record Lane(ExecutorService executor, Semaphore permits) {
+    }
+}
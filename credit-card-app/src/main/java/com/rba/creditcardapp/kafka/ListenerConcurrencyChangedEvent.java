@@ -0,0 +1,23 @@
+package com.rba.creditcardapp.kafka;
+
+import java.time.Instant;
+
+/**
+ * Published through the application context whenever the
+ * {@link ListenerConcurrencyController} scales, pauses or resumes a listener container.
+ *
+ * @param lag             records behind the end of the topic when the decision was made
+ * @param millisPerRecord average processing time per record over the last interval
+ */
+public record ListenerConcurrencyChangedEvent(String listenerId,
+                                              Action action,
+                                              int fromConcurrency,
+                                              int toConcurrency,
+                                              long lag,
+                                              double millisPerRecord,
+                                              Instant timestamp) {
+
+    public enum Action {
+        SCALE_UP, SCALE_DOWN, PAUSE, RESUME
+    }
+}
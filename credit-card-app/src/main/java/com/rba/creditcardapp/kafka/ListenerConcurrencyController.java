@@ -0,0 +1,313 @@
+package com.rba.creditcardapp.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+/**
+ * Sizes the card status listener container to its backlog, when
+ * {@code kafka.consumer.autoscale.enabled=true}.
+ * <p>
+ * Every interval it reads the consumer group's lag from the broker and the average time
+ * per record from {@code card.status.consumer.*}, and estimates how long the current
+ * threads need to clear the lag. Above {@code scale-up-drain-time} for
+ * {@code scale-up-after} checks in a row, concurrency goes up to what would clear it in
+ * that time. Below {@code scale-down-drain-time} for {@code scale-down-after} checks it
+ * goes down by one. It stays between {@code min-concurrency} and the partition count (or
+ * {@code max-concurrency}, if lower). Changes are at least {@code cooldown} apart, since
+ * every one restarts the container and rebalances the group.
+ * <p>
+ * If a record takes longer than {@code pause-record-time} on average, the database is
+ * likely struggling and more threads would only add to it. The container is then paused
+ * for {@code pause-duration} instead.
+ * <p>
+ * Each decision is published as a {@link ListenerConcurrencyChangedEvent} and counted in
+ * {@code card.status.consumer.autoscale.decisions}.
+ * <p>
+ * Only the record and batch listeners can be controlled. The estimate assumes each
+ * consumer thread applies its own records, which does not hold for
+ * {@link CardStatusParallelConsumer}: its threads only poll and its lanes do the writing.
+ */
+@Component
+@ConditionalOnProperty(name = "kafka.consumer.autoscale.enabled", havingValue = "true")
+@Slf4j
+public class ListenerConcurrencyController {
+
+    private static final List<String> PROCESSING_TIMERS =
+            List.of("card.status.consumer.record", "card.status.consumer.batch");
+    private static final Duration ADMIN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final KafkaListenerEndpointRegistry endpointRegistry;
+    private final KafkaAdmin kafkaAdmin;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LongSupplier nanoClock;
+    private final Settings settings;
+
+    private Admin admin;
+    private double lastTotalSeconds;
+    private double lastTotalRecords;
+    private double secondsPerRecord;
+    private volatile long lag;
+    private int checksAbove;
+    private int checksBelow;
+    private long lastChangeAt;
+    private boolean changed;
+    private long pausedAt;
+
+    @Autowired
+    public ListenerConcurrencyController(
+            KafkaListenerEndpointRegistry endpointRegistry,
+            KafkaAdmin kafkaAdmin,
+            MeterRegistry meterRegistry,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${kafka.consumer.autoscale.listener-id:cardStatusListener}") String listenerId,
+            @Value("${kafka.topics.card-status:card-status-topic}") String topic,
+            @Value("${spring.kafka.consumer.group-id:card-status-group}") String groupId,
+            @Value("${kafka.consumer.autoscale.min-concurrency:1}") int minConcurrency,
+            @Value("${kafka.consumer.autoscale.max-concurrency:0}") int maxConcurrency,
+            @Value("${kafka.consumer.autoscale.scale-up-drain-time:60s}") Duration scaleUpDrainTime,
+            @Value("${kafka.consumer.autoscale.scale-down-drain-time:5s}") Duration scaleDownDrainTime,
+            @Value("${kafka.consumer.autoscale.scale-up-after:2}") int scaleUpAfter,
+            @Value("${kafka.consumer.autoscale.scale-down-after:10}") int scaleDownAfter,
+            @Value("${kafka.consumer.autoscale.cooldown:2m}") Duration cooldown,
+            @Value("${kafka.consumer.autoscale.pause-record-time:2s}") Duration pauseRecordTime,
+            @Value("${kafka.consumer.autoscale.pause-duration:30s}") Duration pauseDuration) {
+        this(endpointRegistry, kafkaAdmin, meterRegistry, eventPublisher, System::nanoTime,
+                new Settings(listenerId, topic, groupId, minConcurrency, maxConcurrency, scaleUpDrainTime,
+                        scaleDownDrainTime, scaleUpAfter, scaleDownAfter, cooldown, pauseRecordTime, pauseDuration));
+    }
+
+    ListenerConcurrencyController(KafkaListenerEndpointRegistry endpointRegistry, KafkaAdmin kafkaAdmin,
+                                  MeterRegistry meterRegistry, ApplicationEventPublisher eventPublisher,
+                                  LongSupplier nanoClock, Settings settings) {
+        if (settings.minConcurrency() < 1) {
+            throw new IllegalArgumentException("kafka.consumer.autoscale.min-concurrency must be at least 1");
+        }
+        if (CardStatusParallelConsumer.LISTENER_ID.equals(settings.listenerId())) {
+            throw new IllegalArgumentException("kafka.consumer.autoscale cannot control "
+                    + CardStatusParallelConsumer.LISTENER_ID + "; its lanes, not its consumer threads, apply records");
+        }
+        this.endpointRegistry = endpointRegistry;
+        this.kafkaAdmin = kafkaAdmin;
+        this.meterRegistry = meterRegistry;
+        this.eventPublisher = eventPublisher;
+        this.nanoClock = nanoClock;
+        this.settings = settings;
+    }
+
+    @Scheduled(fixedDelayString = "${kafka.consumer.autoscale.interval-ms:30000}",
+            initialDelayString = "${kafka.consumer.autoscale.interval-ms:30000}")
+    public synchronized void adjust() {
+        MessageListenerContainer found = endpointRegistry.getListenerContainer(settings.listenerId());
+        if (!(found instanceof ConcurrentMessageListenerContainer<?, ?> container) || !container.isRunning()) {
+            return;
+        }
+
+        Map<TopicPartition, Long> lagByPartition;
+        try {
+            lagByPartition = readLag();
+        } catch (Exception e) {
+            log.warn("Could not read lag of consumer group {}: {}", settings.groupId(), e.getMessage());
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+        lag = lagByPartition.values().stream().mapToLong(Long::longValue).sum();
+        sampleProcessingTime();
+
+        evaluate(container, Math.max(1, lagByPartition.size()));
+    }
+
+    public long getLag() {
+        return lag;
+    }
+
+    /**
+     * @return the concurrency of the controlled container, or 0 if it does not exist
+     */
+    public int getConcurrency() {
+        MessageListenerContainer container = endpointRegistry.getListenerContainer(settings.listenerId());
+        return container instanceof ConcurrentMessageListenerContainer<?, ?> concurrent
+                ? concurrent.getConcurrency()
+                : 0;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (admin != null) {
+            admin.close(ADMIN_TIMEOUT);
+        }
+    }
+
+    private void evaluate(ConcurrentMessageListenerContainer<?, ?> container, int partitions) {
+        long now = nanoClock.getAsLong();
+        int current = container.getConcurrency();
+
+        if (container.isPauseRequested()) {
+            if (now - pausedAt >= settings.pauseDuration().toNanos()) {
+                container.resume();
+                // Paused, it processed nothing; start measuring afresh
+                secondsPerRecord = 0;
+                publish(ListenerConcurrencyChangedEvent.Action.RESUME, current, current);
+            }
+            return;
+        }
+        if (secondsPerRecord > settings.pauseRecordTime().toNanos() / 1e9) {
+            container.pause();
+            pausedAt = now;
+            checksAbove = 0;
+            checksBelow = 0;
+            publish(ListenerConcurrencyChangedEvent.Action.PAUSE, current, current);
+            return;
+        }
+
+        int ceiling = settings.maxConcurrency() > 0 ? Math.min(settings.maxConcurrency(), partitions) : partitions;
+        int floor = Math.min(settings.minConcurrency(), ceiling);
+        double drainSeconds = lag * secondsPerRecord / current;
+
+        if (drainSeconds > settings.scaleUpDrainTime().toSeconds() && current < ceiling) {
+            checksAbove++;
+            checksBelow = 0;
+        } else if (drainSeconds < settings.scaleDownDrainTime().toSeconds() && current > floor) {
+            checksBelow++;
+            checksAbove = 0;
+        } else {
+            checksAbove = 0;
+            checksBelow = 0;
+        }
+
+        if (changed && now - lastChangeAt < settings.cooldown().toNanos()) {
+            return;
+        }
+        if (checksAbove >= settings.scaleUpAfter()) {
+            double needed = lag * secondsPerRecord / Math.max(1, settings.scaleUpDrainTime().toSeconds());
+            int target = (int) Math.min(ceiling, Math.max(current + 1, Math.ceil(needed)));
+            resize(container, current, target, ListenerConcurrencyChangedEvent.Action.SCALE_UP, now);
+        } else if (checksBelow >= settings.scaleDownAfter()) {
+            resize(container, current, current - 1, ListenerConcurrencyChangedEvent.Action.SCALE_DOWN, now);
+        }
+    }
+
+    private void resize(ConcurrentMessageListenerContainer<?, ?> container, int from, int to,
+                        ListenerConcurrencyChangedEvent.Action action, long now) {
+        // A new concurrency only takes effect when the container starts
+        container.setConcurrency(to);
+        container.stop();
+        container.start();
+
+        changed = true;
+        lastChangeAt = now;
+        checksAbove = 0;
+        checksBelow = 0;
+        publish(action, from, to);
+    }
+
+    private void publish(ListenerConcurrencyChangedEvent.Action action, int from, int to) {
+        double millisPerRecord = secondsPerRecord * 1000;
+        log.info("{} listener {}: concurrency {} -> {}, lag {}, {} ms per record",
+                action, settings.listenerId(), from, to, lag, String.format("%.1f", millisPerRecord));
+        Counter.builder("card.status.consumer.autoscale.decisions")
+                .description("Scaling decisions for the card status listener container")
+                .tag("action", action.name())
+                .register(meterRegistry)
+                .increment();
+        eventPublisher.publishEvent(new ListenerConcurrencyChangedEvent(settings.listenerId(), action, from, to,
+                lag, millisPerRecord, Instant.now()));
+    }
+
+    /**
+     * Average time per record over the records counted since the last check. Keeps the
+     * previous value when nothing was processed meanwhile.
+     */
+    private void sampleProcessingTime() {
+        double totalSeconds = 0;
+        for (String name : PROCESSING_TIMERS) {
+            for (Timer timer : meterRegistry.find(name).tag("topic", settings.topic()).timers()) {
+                totalSeconds += timer.totalTime(TimeUnit.SECONDS);
+            }
+        }
+        double totalRecords = 0;
+        for (Counter counter : meterRegistry.find("card.status.consumer.records")
+                .tag("topic", settings.topic()).counters()) {
+            totalRecords += counter.count();
+        }
+
+        double records = totalRecords - lastTotalRecords;
+        if (records > 0) {
+            secondsPerRecord = (totalSeconds - lastTotalSeconds) / records;
+        }
+        lastTotalSeconds = totalSeconds;
+        lastTotalRecords = totalRecords;
+    }
+
+    /**
+     * @return records between the group's committed offset and the end of each partition
+     */
+    Map<TopicPartition, Long> readLag() throws InterruptedException, ExecutionException, TimeoutException {
+        if (admin == null) {
+            admin = Admin.create(kafkaAdmin.getConfigurationProperties());
+        }
+        long timeoutMillis = ADMIN_TIMEOUT.toMillis();
+
+        TopicDescription description = admin.describeTopics(List.of(settings.topic())).allTopicNames()
+                .get(timeoutMillis, TimeUnit.MILLISECONDS).get(settings.topic());
+        Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+        Map<TopicPartition, OffsetSpec> earliest = new HashMap<>();
+        description.partitions().forEach(info -> {
+            TopicPartition partition = new TopicPartition(settings.topic(), info.partition());
+            latest.put(partition, OffsetSpec.latest());
+            earliest.put(partition, OffsetSpec.earliest());
+        });
+
+        Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(settings.groupId())
+                .partitionsToOffsetAndMetadata().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> ends = admin.listOffsets(latest).all()
+                .get(timeoutMillis, TimeUnit.MILLISECONDS);
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> starts = admin.listOffsets(earliest).all()
+                .get(timeoutMillis, TimeUnit.MILLISECONDS);
+
+        Map<TopicPartition, Long> lagByPartition = new HashMap<>();
+        for (TopicPartition partition : latest.keySet()) {
+            OffsetAndMetadata position = committed.get(partition);
+            // Without a commit the group starts from the beginning (auto.offset.reset=earliest)
+            long from = position != null ? position.offset() : starts.get(partition).offset();
+            lagByPartition.put(partition, Math.max(0, ends.get(partition).offset() - from));
+        }
+        return lagByPartition;
+    }
+
+    record Settings(String listenerId, String topic, String groupId, int minConcurrency, int maxConcurrency,
+                    Duration scaleUpDrainTime, Duration scaleDownDrainTime, int scaleUpAfter, int scaleDownAfter,
+                    Duration cooldown, Duration pauseRecordTime, Duration pauseDuration) {
+    }
+}
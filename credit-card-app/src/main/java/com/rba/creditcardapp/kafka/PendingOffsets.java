@@ -0,0 +1,120 @@
+package com.rba.creditcardapp.kafka;
+
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks records handed out for processing per partition, so that a partition's offset
+ * is only ever committed up to the lowest record that is not done yet. Records may
+ * complete in any order; {@link #complete} reports how far the partition can now be
+ * committed.
+ *
+ * @param <T> what is kept with each record, e.g. its acknowledgment
+ */
+class PendingOffsets<T> {
+
+    private final Map<TopicPartition, TreeMap<Long, Slot<T>>> partitions = new HashMap<>();
+    private int size;
+
+    synchronized void add(TopicPartition partition, long offset, T value) {
+        if (partitions.computeIfAbsent(partition, p -> new TreeMap<>()).put(offset, new Slot<>(value)) == null) {
+            size++;
+        }
+    }
+
+    /**
+     * Marks a record done.
+     *
+     * @param value the value it was added with, so that a record that was handed out
+     *              again after a rebalance is not completed by its earlier run
+     * @return the last record of the done run at the head of the partition, which can
+     * now be committed, or {@code null} if an earlier record is still pending
+     */
+    synchronized Completed<T> complete(TopicPartition partition, long offset, T value) {
+        TreeMap<Long, Slot<T>> slots = partitions.get(partition);
+        Slot<T> slot = slots != null ? slots.get(offset) : null;
+        if (slot == null || slot.value != value) {
+            return null;
+        }
+        slot.done = true;
+
+        Map.Entry<Long, Slot<T>> last = null;
+        while (!slots.isEmpty() && slots.firstEntry().getValue().done) {
+            last = slots.pollFirstEntry();
+            size--;
+        }
+        if (last == null) {
+            return null;
+        }
+        notifyAll();
+        return new Completed<>(last.getKey(), last.getValue().value);
+    }
+
+    /**
+     * @return whether the record is still waiting to be done, i.e. was not completed and
+     * its partition was not removed or handed out again since it was added
+     */
+    synchronized boolean isPending(TopicPartition partition, long offset, T value) {
+        TreeMap<Long, Slot<T>> slots = partitions.get(partition);
+        Slot<T> slot = slots != null ? slots.get(offset) : null;
+        return slot != null && slot.value == value && !slot.done;
+    }
+
+    /**
+     * Waits until no record of the given partitions is pending.
+     *
+     * @return whether that happened within the timeout
+     */
+    synchronized boolean awaitDone(Collection<TopicPartition> revoked, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (revoked.stream().anyMatch(this::hasPending)) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMillis <= 0) {
+                return false;
+            }
+            wait(remainingMillis);
+        }
+        return true;
+    }
+
+    synchronized void remove(Collection<TopicPartition> revoked) {
+        for (TopicPartition partition : revoked) {
+            TreeMap<Long, Slot<T>> slots = partitions.remove(partition);
+            if (slots != null) {
+                size -= slots.size();
+            }
+        }
+        notifyAll();
+    }
+
+    private boolean hasPending(TopicPartition partition) {
+        TreeMap<Long, Slot<T>> slots = partitions.get(partition);
+        return slots != null && !slots.isEmpty();
+    }
+
+    /**
+     * @return the number of records not yet committable, done or not
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    record Completed<T>(long offset, T value) {
+    }
+
+    private static final class Slot<T> {
+
+        private final T value;
+        private boolean done;
+
+        private Slot(T value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.rba.creditcardapp.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Card request waiting to be forwarded to the external card API. Written in the same
+ * transaction as the client, so a request is forwarded if and only if the client was
+ * registered.
+ */
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Data
+@Table(name = "card_request_outbox")
+public class CardRequestOutbox {
+
+    public enum Status {
+        PENDING,
+        SENT,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String oib;
+
+    @Column(name = "first_name", nullable = false)
+    private String firstName;
+
+    @Column(name = "last_name", nullable = false)
+    private String lastName;
+
+    @Column(name = "card_status")
+    private String cardStatus;
+
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.PENDING;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Builder.Default
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    @CreationTimestamp
+    @Column(name = "instm", updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updtm")
+    private LocalDateTime updatedAt;
+
+    public NewCardRequest toCardRequest() {
+        NewCardRequest cardRequest = new NewCardRequest();
+        cardRequest.setFirstName(firstName);
+        cardRequest.setLastName(lastName);
+        cardRequest.setOib(oib);
+        cardRequest.setStatus(cardStatus);
+        return cardRequest;
+    }
+}
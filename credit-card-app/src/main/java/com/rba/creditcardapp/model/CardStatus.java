@@ -0,0 +1,137 @@
+package com.rba.creditcardapp.model;
+
+/**
+ * Lifecycle of a card request. Stored as {@link #getCode()} in a {@code SMALLINT}
+ * column; codes are persisted and must never be reused or renumbered.
+ * <pre>
+ * PENDING -> APPROVED -> IN_PROGRESS -> SHIPPED -> COMPLETED
+ *    |          |             |
+ *    +----------+-------------+--> REJECTED
+ * </pre>
+ * Moving to the current status again is always allowed, so redelivered updates are
+ * harmless. {@code COMPLETED} and {@code REJECTED} are final.
+ */
+public enum CardStatus {
+
+    PENDING(0),
+    APPROVED(1),
+    REJECTED(2),
+    IN_PROGRESS(3),
+    COMPLETED(4),
+    SHIPPED(5);
+
+    private static final CardStatus[] BY_CODE;
+    private static final CardStatus[] LOOKUP = new CardStatus[32];
+
+    static {
+        PENDING.allow(APPROVED, REJECTED);
+        APPROVED.allow(IN_PROGRESS, REJECTED);
+        IN_PROGRESS.allow(SHIPPED, REJECTED);
+        SHIPPED.allow(COMPLETED);
+
+        int maxCode = 0;
+        for (CardStatus status : values()) {
+            maxCode = Math.max(maxCode, status.code);
+        }
+        BY_CODE = new CardStatus[maxCode + 1];
+        for (CardStatus status : values()) {
+            BY_CODE[status.code] = status;
+            int slot = slot(status.name(), 0, status.name().length());
+            while (LOOKUP[slot] != null) {
+                slot = (slot + 1) & (LOOKUP.length - 1);
+            }
+            LOOKUP[slot] = status;
+        }
+    }
+
+    private final short code;
+    /** Bit {@code 1 << code} set for every status this one may move to. */
+    private int nextMask;
+    /** Bit {@code 1 << code} set for every status that may move to this one. */
+    private int allowedFromMask;
+
+    CardStatus(int code) {
+        this.code = (short) code;
+        this.allowedFromMask = 1 << code;
+    }
+
+    private void allow(CardStatus... targets) {
+        for (CardStatus target : targets) {
+            nextMask |= 1 << target.code;
+            target.allowedFromMask |= 1 << code;
+        }
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    public boolean canTransitionTo(CardStatus target) {
+        return target == this || (nextMask & (1 << target.code)) != 0;
+    }
+
+    /**
+     * Bitmask of the codes this status may be reached from, itself included. Lets SQL check
+     * a transition with {@code (mask & (1 << card_status)) <> 0}.
+     */
+    public int getAllowedFromMask() {
+        return allowedFromMask;
+    }
+
+    public boolean isFinal() {
+        return nextMask == 0;
+    }
+
+    public static CardStatus fromCode(int code) {
+        if (code < 0 || code >= BY_CODE.length || BY_CODE[code] == null) {
+            throw new IllegalArgumentException("Unknown card status code: " + code);
+        }
+        return BY_CODE[code];
+    }
+
+    /**
+     * Case-insensitive lookup that ignores surrounding whitespace. Returns {@code null} for
+     * unknown or blank values. Does not allocate, so it is safe on per-event paths.
+     */
+    public static CardStatus find(String value) {
+        if (value == null) {
+            return null;
+        }
+        int start = 0;
+        int end = value.length();
+        while (start < end && Character.isWhitespace(value.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(value.charAt(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+
+        int length = end - start;
+        for (int slot = slot(value, start, end); LOOKUP[slot] != null; slot = (slot + 1) & (LOOKUP.length - 1)) {
+            String name = LOOKUP[slot].name();
+            if (name.length() == length && name.regionMatches(true, 0, value, start, length)) {
+                return LOOKUP[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Like {@link #find} but rejects unknown values with an {@link IllegalArgumentException}.
+     */
+    public static CardStatus parse(String value) {
+        CardStatus status = find(value);
+        if (status == null) {
+            throw new IllegalArgumentException("Unknown card status: " + value);
+        }
+        return status;
+    }
+
+    private static int slot(String value, int start, int end) {
+        int hash = (end - start) * 7 + Character.toUpperCase(value.charAt(start));
+        return hash & (LOOKUP.length - 1);
+    }
+}
@@ -0,0 +1,21 @@
+package com.rba.creditcardapp.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores {@link CardStatus} as its {@code SMALLINT} code.
+ */
+@Converter
+public class CardStatusConverter implements AttributeConverter<CardStatus, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(CardStatus status) {
+        return status == null ? null : status.getCode();
+    }
+
+    @Override
+    public CardStatus convertToEntityAttribute(Short code) {
+        return code == null ? null : CardStatus.fromCode(code);
+    }
+}
@@ -2,6 +2,7 @@ package com.rba.creditcardapp.model;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -23,7 +24,8 @@ import java.time.LocalDateTime;
 public class Client {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "clients_id_seq")
+    @SequenceGenerator(name = "clients_id_seq", sequenceName = "clients_id_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "First name is mandatory")
@@ -39,18 +41,23 @@ public class Client {
     @Column(nullable = false, unique = true)
     private String oib;
 
-    @NotBlank(message = "Card status is mandatory")
+    @NotNull(message = "Card status is mandatory")
+    @Convert(converter = CardStatusConverter.class)
     @Column(name = "card_status", nullable = false)
-    private String cardStatus;
+    private CardStatus cardStatus;
 
     @CreationTimestamp
-    @Column(name = "instm", updatable = false)
+    @Column(name = "instm", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     @UpdateTimestamp
     @Column(name = "updtm")
     private LocalDateTime updatedAt;
 
+    // When the change that set cardStatus was issued; status updates only apply over an older one
+    @Column(name = "status_event_ts")
+    private LocalDateTime statusEventAt;
+
     @Override
     public String toString() {
         return "Client{" +
@@ -58,7 +65,7 @@ public class Client {
                 ", firstName='" + firstName + '\'' +
                 ", lastName='" + lastName + '\'' +
                 ", oib='" + oib + '\'' +
-                ", cardStatus='" + cardStatus + '\'' +
+                ", cardStatus=" + cardStatus +
                 ", createdAt=" + createdAt +
                 '}';
     }
@@ -0,0 +1,48 @@
+package com.rba.creditcardapp.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Highest Kafka offset per consumer group and partition whose record has been
+ * fully processed. Used to drop redeliveries after a restart or rebalance.
+ */
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Data
+@Table(name = "kafka_consumer_watermark")
+public class ConsumerWatermark {
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(name = "last_offset", nullable = false)
+    private Long lastOffset;
+
+    @Column(name = "updtm")
+    private LocalDateTime updatedAt;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        @Column(name = "consumer_group", nullable = false)
+        private String consumerGroup;
+
+        @Column(nullable = false)
+        private String topic;
+
+        @Column(name = "partition_id", nullable = false)
+        private Integer partition;
+    }
+}
@@ -0,0 +1,47 @@
+package com.rba.creditcardapp.repository;
+
+import com.rba.creditcardapp.model.CardRequestOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CardRequestOutboxRepository extends JpaRepository<CardRequestOutbox, Long> {
+
+    /**
+     * Locks up to {@code limit} due entries for dispatch. Only the oldest pending entry
+     * of each OIB is eligible, so requests for one client are forwarded in order, and
+     * rows locked by another dispatcher are skipped rather than waited on.
+     */
+    @Query(value = """
+            SELECT * FROM card_request_outbox o
+            WHERE o.status = 'PENDING'
+              AND o.next_attempt_at <= CURRENT_TIMESTAMP
+              AND NOT EXISTS (
+                  SELECT 1 FROM card_request_outbox p
+                  WHERE p.oib = o.oib AND p.status = 'PENDING' AND p.id < o.id)
+            ORDER BY o.id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<CardRequestOutbox> lockNextBatch(@Param("limit") int limit);
+
+    /**
+     * Deletes every entry for the given OIBs, whatever its status, and returns the
+     * number of rows deleted. Used when clients are deleted or purged, since the entries
+     * carry the client's OIB and name.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM card_request_outbox WHERE oib = ANY(CAST(:oibs AS text[]))", nativeQuery = true)
+    int deleteByOibs(@Param("oibs") String[] oibs);
+
+    long countByStatus(CardRequestOutbox.Status status);
+
+    @Query("SELECT MIN(o.createdAt) FROM CardRequestOutbox o WHERE o.status = :status")
+    LocalDateTime findOldestCreatedAt(@Param("status") CardRequestOutbox.Status status);
+}
@@ -4,18 +4,106 @@ import com.rba.creditcardapp.model.Client;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ClientRepository extends JpaRepository<Client, Long> {
+public interface ClientRepository extends JpaRepository<Client, Long>, ClientRepositoryCustom {
 
     Optional<Client> findByOib(String oib);
 
+    /**
+     * Id and change time of the client, without loading it as an entity.
+     */
+    @Query("SELECT new com.rba.creditcardapp.repository.ClientVersion(c.id, c.updatedAt) FROM Client c WHERE c.oib = :oib")
+    Optional<ClientVersion> findVersionByOib(@Param("oib") String oib);
+
     boolean existsByOib(String oib);
 
-    void deleteByOib(String oib);
+    List<Client> findByOibIn(Collection<String> oibs);
+
+    /**
+     * Deletes in a single statement; the derived variant would load the client and remove
+     * it as an entity. Returns the number of rows deleted.
+     */
+    @Modifying
+    @Query("DELETE FROM Client c WHERE c.oib = :oib")
+    int deleteByOib(@Param("oib") String oib);
+
+    /**
+     * Deletes all clients with the given OIBs in a single statement and returns the OIBs
+     * that were deleted.
+     */
+    @Query(value = "DELETE FROM clients WHERE oib = ANY(CAST(:oibs AS text[])) RETURNING oib", nativeQuery = true)
+    List<String> deleteByOibs(@Param("oibs") String[] oibs);
 
     Page<Client> findAll(Pageable pageable);
+
+    /**
+     * Number of clients per card status code, from the counters kept by the triggers in
+     * {@code V0_0_9}. Statuses without clients may be missing.
+     */
+    @Query(value = """
+            SELECT card_status AS cardStatus, SUM(client_count) AS clientCount
+            FROM client_status_counts
+            GROUP BY card_status
+            """, nativeQuery = true)
+    List<StatusCount> countByStatus();
+
+    /**
+     * Clients whose full name contains {@code query} or resembles it word-wise, using the
+     * trigram index from {@code V0_0_8}. {@code pattern} is {@code query} with LIKE
+     * wildcards escaped. Names where the first or last name starts with the query come
+     * first, then the closest matches.
+     */
+    @Query(value = """
+            SELECT * FROM clients
+            WHERE lower(first_name || ' ' || last_name) LIKE '%' || lower(:pattern) || '%'
+               OR lower(:query) <% lower(first_name || ' ' || last_name)
+            ORDER BY (lower(first_name) LIKE lower(:pattern) || '%'
+                          OR lower(last_name) LIKE lower(:pattern) || '%') DESC,
+                     word_similarity(lower(:query), lower(first_name || ' ' || last_name)) DESC,
+                     last_name, first_name, id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Client> searchByName(@Param("query") String query,
+                              @Param("pattern") String pattern,
+                              @Param("limit") int limit);
+
+    /**
+     * Applies all status changes in one set-based statement. {@code oibs},
+     * {@code statuses}, {@code allowedFrom} and {@code timestamps} are parallel arrays of
+     * the OIB, the new {@link com.rba.creditcardapp.model.CardStatus} code, its
+     * {@link com.rba.creditcardapp.model.CardStatus#getAllowedFromMask() allowed-from mask}
+     * and the ISO-8601 time the update was issued. A row is only changed when it was not
+     * last changed after that time and its current status may move to the new one; the
+     * time becomes its new {@code status_event_ts}. Returns the OIBs that were changed.
+     */
+    @Query(value = """
+            UPDATE clients c
+            SET card_status = v.card_status, status_event_ts = v.issued_at, updtm = LOCALTIMESTAMP
+            FROM unnest(CAST(:oibs AS text[]), CAST(:statuses AS smallint[]), CAST(:allowedFrom AS int[]),
+                        CAST(:timestamps AS timestamp[]))
+                AS v(oib, card_status, allowed_from, issued_at)
+            WHERE c.oib = v.oib
+              AND (c.status_event_ts IS NULL OR c.status_event_ts <= v.issued_at)
+              AND (v.allowed_from & (1 << c.card_status)) <> 0
+            RETURNING c.oib
+            """, nativeQuery = true)
+    List<String> bulkUpdateCardStatus(@Param("oibs") String[] oibs,
+                                      @Param("statuses") Short[] statuses,
+                                      @Param("allowedFrom") Integer[] allowedFrom,
+                                      @Param("timestamps") String[] timestamps);
+
+    interface StatusCount {
+        short getCardStatus();
+
+        long getClientCount();
+    }
 }
\ No newline at end of file
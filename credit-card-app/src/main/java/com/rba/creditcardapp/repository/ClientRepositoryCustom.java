@@ -0,0 +1,61 @@
+package com.rba.creditcardapp.repository;
+
+import com.rba.creditcardapp.model.CardStatus;
+import com.rba.creditcardapp.model.Client;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface ClientRepositoryCustom {
+
+    /**
+     * Keyset (seek) page: returns up to {@code limit} clients ordered by
+     * ({@code sortField}, id) that come strictly after ({@code afterValue}, {@code afterId}).
+     * Pass {@code null} for both to start at the beginning.
+     */
+    List<Client> findPageAfter(ClientSortField sortField, boolean descending,
+                               Object afterValue, Long afterId, int limit);
+
+    /**
+     * Inserts new clients with one statement per {@code hibernate.jdbc.batch_size} of
+     * them, skipping any whose OIB is already registered, including by a concurrent
+     * request. The persistence context is cleared after every statement so it does not
+     * grow with the input size.
+     *
+     * @return the rows that were inserted, with their ids
+     */
+    List<Client> insertAll(List<Client> clients);
+
+    /**
+     * Inserts the client unless its OIB is already registered, in a single statement.
+     * Unlike checking first and inserting afterwards, concurrent registrations of one
+     * OIB cannot both pass: the loser waits for the winner to commit and then finds the
+     * conflict.
+     *
+     * @return the inserted row, or empty if the OIB already exists
+     */
+    Optional<Client> insertIfAbsent(Client client);
+
+    /**
+     * Sets the client's card status in a single statement, provided the client was not
+     * last changed after {@code timestamp} and its current status may move to {@code status}.
+     * {@code timestamp} becomes the client's new change time, so an older update arriving
+     * late cannot overwrite a newer one; between updates issued at the same time, the
+     * status check alone decides.
+     *
+     * @return the updated row, or empty if the client does not exist or either check failed
+     */
+    Optional<Client> updateStatusIfNewer(String oib, CardStatus status, LocalDateTime timestamp);
+
+    /**
+     * Recounts clients per card status and replaces the trigger-maintained counters with
+     * the result. Writers that change clients meanwhile wait until this commits, and then
+     * add their changes on top of the new counts.
+     *
+     * @return by how much the counters were off, counted minus actual, for every status
+     * where they differed
+     */
+    Map<CardStatus, Long> reconcileStatusCounts();
+}
@@ -0,0 +1,174 @@
+package com.rba.creditcardapp.repository;
+
+import com.rba.creditcardapp.model.CardStatus;
+import com.rba.creditcardapp.model.Client;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class ClientRepositoryImpl implements ClientRepositoryCustom {
+
+    // Takes its id straight from the pooled sequence, leaving a gap in the ids
+    // Hibernate would have allocated from that block
+    private static final String INSERT_IF_ABSENT = """
+            INSERT INTO clients (id, first_name, last_name, oib, card_status)
+            VALUES (nextval('clients_id_seq'), :firstName, :lastName, :oib, :cardStatus)
+            ON CONFLICT (oib) DO NOTHING
+            RETURNING id, first_name, last_name, oib, card_status, instm, updtm, status_event_ts
+            """;
+
+    // Same id allocation as INSERT_IF_ABSENT, for a whole chunk of the batch at once
+    private static final String INSERT_ALL_IF_ABSENT = """
+            INSERT INTO clients (id, first_name, last_name, oib, card_status)
+            SELECT nextval('clients_id_seq'), v.first_name, v.last_name, v.oib, v.card_status
+            FROM unnest(CAST(:firstNames AS text[]), CAST(:lastNames AS text[]), CAST(:oibs AS text[]),
+                        CAST(:statuses AS smallint[]))
+                WITH ORDINALITY AS v(first_name, last_name, oib, card_status, position)
+            ORDER BY v.position
+            ON CONFLICT (oib) DO NOTHING
+            RETURNING id, first_name, last_name, oib, card_status, instm, updtm, status_event_ts
+            """;
+
+    private static final String UPDATE_STATUS_IF_NEWER = """
+            UPDATE clients
+            SET card_status = :cardStatus, status_event_ts = :timestamp, updtm = LOCALTIMESTAMP
+            WHERE oib = :oib
+              AND (status_event_ts IS NULL OR status_event_ts <= :timestamp)
+              AND (:allowedFrom & (1 << card_status)) <> 0
+            RETURNING id, first_name, last_name, oib, card_status, instm, updtm, status_event_ts
+            """;
+
+    // Conflicts with the row locks writers take on the counters, and with itself
+    private static final String LOCK_STATUS_COUNTS =
+            "LOCK TABLE client_status_counts IN SHARE ROW EXCLUSIVE MODE";
+
+    private static final String STATUS_COUNT_DRIFT = """
+            SELECT COALESCE(actual.card_status, counted.card_status),
+                   COALESCE(counted.client_count, 0) - COALESCE(actual.client_count, 0)
+            FROM (SELECT card_status, COUNT(*) AS client_count FROM clients GROUP BY card_status) actual
+            FULL JOIN (SELECT card_status, SUM(client_count) AS client_count
+                       FROM client_status_counts GROUP BY card_status) counted
+                ON counted.card_status = actual.card_status
+            WHERE COALESCE(counted.client_count, 0) <> COALESCE(actual.client_count, 0)
+            """;
+
+    private static final String RESET_STATUS_COUNTS = """
+            INSERT INTO client_status_counts (card_status, slot, client_count)
+            SELECT card_status, 0, COUNT(*) FROM clients GROUP BY card_status
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    public List<Client> findPageAfter(ClientSortField sortField, boolean descending,
+                                      Object afterValue, Long afterId, int limit) {
+        String property = "c." + sortField.getProperty();
+        String direction = descending ? "DESC" : "ASC";
+        String comparison = descending ? "<" : ">";
+        boolean seek = afterValue != null;
+
+        StringBuilder jpql = new StringBuilder("SELECT c FROM Client c");
+        if (seek) {
+            if (sortField.isUnique()) {
+                jpql.append(" WHERE ").append(property).append(' ').append(comparison).append(" :afterValue");
+            } else {
+                // Row value comparison keeps the predicate sargable on the (field, id) index
+                jpql.append(" WHERE (").append(property).append(", c.id) ")
+                        .append(comparison).append(" (:afterValue, :afterId)");
+            }
+        }
+        jpql.append(" ORDER BY ").append(property).append(' ').append(direction);
+        if (!sortField.isUnique()) {
+            jpql.append(", c.id ").append(direction);
+        }
+
+        TypedQuery<Client> query = entityManager.createQuery(jpql.toString(), Client.class)
+                .setMaxResults(limit);
+        if (seek) {
+            query.setParameter("afterValue", afterValue);
+            if (!sortField.isUnique()) {
+                query.setParameter("afterId", afterId);
+            }
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public List<Client> insertAll(List<Client> clients) {
+        List<Client> inserted = new ArrayList<>(clients.size());
+        for (int from = 0; from < clients.size(); from += batchSize) {
+            List<Client> chunk = clients.subList(from, Math.min(from + batchSize, clients.size()));
+            inserted.addAll(entityManager.createNativeQuery(INSERT_ALL_IF_ABSENT, Client.class)
+                    .setParameter("firstNames", chunk.stream().map(Client::getFirstName).toArray(String[]::new))
+                    .setParameter("lastNames", chunk.stream().map(Client::getLastName).toArray(String[]::new))
+                    .setParameter("oibs", chunk.stream().map(Client::getOib).toArray(String[]::new))
+                    .setParameter("statuses", chunk.stream()
+                            .map(client -> client.getCardStatus() != null ? client.getCardStatus() : CardStatus.PENDING)
+                            .map(CardStatus::getCode)
+                            .toArray(Short[]::new))
+                    .getResultList());
+            entityManager.clear();
+        }
+        return inserted;
+    }
+
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public Optional<Client> insertIfAbsent(Client client) {
+        CardStatus cardStatus = client.getCardStatus() != null ? client.getCardStatus() : CardStatus.PENDING;
+        List<Client> inserted = entityManager.createNativeQuery(INSERT_IF_ABSENT, Client.class)
+                .setParameter("firstName", client.getFirstName())
+                .setParameter("lastName", client.getLastName())
+                .setParameter("oib", client.getOib())
+                .setParameter("cardStatus", cardStatus.getCode())
+                .getResultList();
+        return inserted.stream().findFirst();
+    }
+
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public Optional<Client> updateStatusIfNewer(String oib, CardStatus status, LocalDateTime timestamp) {
+        List<Client> updated = entityManager.createNativeQuery(UPDATE_STATUS_IF_NEWER, Client.class)
+                .setParameter("cardStatus", status.getCode())
+                .setParameter("timestamp", timestamp)
+                .setParameter("oib", oib)
+                .setParameter("allowedFrom", status.getAllowedFromMask())
+                .getResultList();
+        return updated.stream().findFirst();
+    }
+
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public Map<CardStatus, Long> reconcileStatusCounts() {
+        entityManager.createNativeQuery(LOCK_STATUS_COUNTS).executeUpdate();
+
+        Map<CardStatus, Long> drift = new EnumMap<>(CardStatus.class);
+        List<Object[]> rows = entityManager.createNativeQuery(STATUS_COUNT_DRIFT).getResultList();
+        for (Object[] row : rows) {
+            drift.put(CardStatus.fromCode(((Number) row[0]).intValue()), ((Number) row[1]).longValue());
+        }
+
+        // Rewritten even without drift, which also folds the slots back into one row each
+        entityManager.createNativeQuery("DELETE FROM client_status_counts").executeUpdate();
+        entityManager.createNativeQuery(RESET_STATUS_COUNTS).executeUpdate();
+        return drift;
+    }
+}
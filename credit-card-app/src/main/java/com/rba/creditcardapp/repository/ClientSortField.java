@@ -0,0 +1,63 @@
+package com.rba.creditcardapp.repository;
+
+import com.rba.creditcardapp.model.CardStatus;
+import com.rba.creditcardapp.model.Client;
+
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+/**
+ * Sort columns accepted by the client listing endpoints. Every entry is backed by an
+ * index whose trailing column is {@code id}, so ordering by (field, id) and seeking
+ * past a (value, id) pair is a single index range scan. {@code cardStatus} orders by
+ * the stored {@link CardStatus} code.
+ */
+public enum ClientSortField {
+
+    ID("id", true, Client::getId, Long::valueOf),
+    FIRST_NAME("firstName", false, Client::getFirstName, Function.identity()),
+    LAST_NAME("lastName", false, Client::getLastName, Function.identity()),
+    OIB("oib", true, Client::getOib, Function.identity()),
+    CARD_STATUS("cardStatus", false, Client::getCardStatus, CardStatus::valueOf),
+    CREATED_AT("createdAt", false, Client::getCreatedAt, LocalDateTime::parse);
+
+    private final String property;
+    private final boolean unique;
+    private final Function<Client, ?> accessor;
+    private final Function<String, ?> parser;
+
+    ClientSortField(String property, boolean unique, Function<Client, ?> accessor, Function<String, ?> parser) {
+        this.property = property;
+        this.unique = unique;
+        this.accessor = accessor;
+        this.parser = parser;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Whether the field alone identifies a row, so no {@code id} tie-breaker is needed.
+     */
+    public boolean isUnique() {
+        return unique;
+    }
+
+    public Object valueOf(Client client) {
+        return accessor.apply(client);
+    }
+
+    public Object parseValue(String value) {
+        return parser.apply(value);
+    }
+
+    public static ClientSortField fromProperty(String property) {
+        for (ClientSortField field : values()) {
+            if (field.property.equals(property)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Sorting by '" + property + "' is not supported");
+    }
+}
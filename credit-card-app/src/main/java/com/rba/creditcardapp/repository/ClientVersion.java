@@ -0,0 +1,9 @@
+package com.rba.creditcardapp.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Just enough of a client to tell whether it changed, for conditional requests.
+ */
+public record ClientVersion(Long id, LocalDateTime updatedAt) {
+}
@@ -0,0 +1,30 @@
+package com.rba.creditcardapp.repository;
+
+import com.rba.creditcardapp.model.ConsumerWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface ConsumerWatermarkRepository extends JpaRepository<ConsumerWatermark, ConsumerWatermark.Key> {
+
+    /**
+     * Stores the watermark, never moving an existing one backwards.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO kafka_consumer_watermark (consumer_group, topic, partition_id, last_offset, updtm)
+            VALUES (:consumerGroup, :topic, :partition, :lastOffset, CURRENT_TIMESTAMP)
+            ON CONFLICT (consumer_group, topic, partition_id) DO UPDATE
+            SET last_offset = GREATEST(kafka_consumer_watermark.last_offset, EXCLUDED.last_offset),
+                updtm = CURRENT_TIMESTAMP
+            """, nativeQuery = true)
+    int upsert(@Param("consumerGroup") String consumerGroup,
+               @Param("topic") String topic,
+               @Param("partition") int partition,
+               @Param("lastOffset") long lastOffset);
+}
@@ -0,0 +1,234 @@
+package com.rba.creditcardapp.resilience;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker.
+ * <ul>
+ *     <li>{@code CLOSED}: calls pass; the outcome of the last {@code windowSize} calls is
+ *     kept and the breaker opens once at least {@code minimumCalls} were recorded and the
+ *     failure rate reaches {@code failureRateThreshold} percent;</li>
+ *     <li>{@code OPEN}: calls are refused until {@code openDuration} has passed;</li>
+ *     <li>{@code HALF_OPEN}: up to {@code halfOpenCalls} probe calls pass. The breaker
+ *     closes when all of them succeed and opens again on the first failure.</li>
+ * </ul>
+ * Every call that was permitted must be reported exactly once through
+ * {@link #onSuccess}, {@link #onError} or {@link #releasePermission}.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoClock;
+    private final Consumer<CircuitBreakerStateChangedEvent> listener;
+
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermitted;
+    private int halfOpenSucceeded;
+
+    private final LongAdder notPermitted = new LongAdder();
+    private final Map<State, LongAdder> transitions = new EnumMap<>(State.class);
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRateThreshold,
+                          Duration openDuration, int halfOpenCalls,
+                          Consumer<CircuitBreakerStateChangedEvent> listener) {
+        this(name, windowSize, minimumCalls, failureRateThreshold, openDuration, halfOpenCalls, listener,
+                System::nanoTime);
+    }
+
+    CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRateThreshold,
+                   Duration openDuration, int halfOpenCalls,
+                   Consumer<CircuitBreakerStateChangedEvent> listener, LongSupplier nanoClock) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize || halfOpenCalls < 1) {
+            throw new IllegalArgumentException("Invalid circuit breaker settings for " + name);
+        }
+        this.name = name;
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.listener = listener;
+        this.nanoClock = nanoClock;
+        for (State s : State.values()) {
+            transitions.put(s, new LongAdder());
+        }
+    }
+
+    /**
+     * Returns whether a call may be made now, moving from {@code OPEN} to
+     * {@code HALF_OPEN} once the open duration has passed.
+     */
+    public boolean tryAcquirePermission() {
+        CircuitBreakerStateChangedEvent event = null;
+        boolean permitted;
+        synchronized (this) {
+            if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openDurationNanos) {
+                event = transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                permitted = halfOpenPermitted < halfOpenCalls;
+                if (permitted) {
+                    halfOpenPermitted++;
+                }
+            } else {
+                permitted = state == State.CLOSED;
+            }
+        }
+        if (!permitted) {
+            notPermitted.increment();
+        }
+        publish(event);
+        return permitted;
+    }
+
+    /**
+     * Like {@link #tryAcquirePermission} but without taking a permit or changing state;
+     * lets callers skip work that would only be refused.
+     */
+    public synchronized boolean isCallPermitted() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> nanoClock.getAsLong() - openedAt >= openDurationNanos;
+            case HALF_OPEN -> halfOpenPermitted < halfOpenCalls;
+        };
+    }
+
+    public void onSuccess() {
+        record(true);
+    }
+
+    public void onError() {
+        record(false);
+    }
+
+    /**
+     * Returns a permit for a call that was never made, without recording an outcome.
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermitted > halfOpenSucceeded) {
+            halfOpenPermitted--;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized double getFailureRate() {
+        return windowCount == 0 ? 0.0 : windowFailures * 100.0 / windowCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getNotPermittedCalls() {
+        return notPermitted.sum();
+    }
+
+    /**
+     * Number of times the breaker has entered {@code state}.
+     */
+    public long getTransitionCount(State state) {
+        return transitions.get(state).sum();
+    }
+
+    private void record(boolean success) {
+        CircuitBreakerStateChangedEvent event = null;
+        synchronized (this) {
+            switch (state) {
+                case CLOSED -> {
+                    if (windowCount == window.length) {
+                        if (!window[windowIndex]) {
+                            windowFailures--;
+                        }
+                    } else {
+                        windowCount++;
+                    }
+                    window[windowIndex] = success;
+                    if (!success) {
+                        windowFailures++;
+                    }
+                    windowIndex = (windowIndex + 1) % window.length;
+
+                    if (windowCount >= minimumCalls && windowFailures * 100 >= failureRateThreshold * windowCount) {
+                        event = transitionTo(State.OPEN);
+                    }
+                }
+                case HALF_OPEN -> {
+                    if (!success) {
+                        event = transitionTo(State.OPEN);
+                    } else if (++halfOpenSucceeded >= halfOpenCalls) {
+                        event = transitionTo(State.CLOSED);
+                    }
+                }
+                case OPEN -> {
+                    // Outcome of a call permitted before the breaker opened
+                }
+            }
+        }
+        publish(event);
+    }
+
+    private CircuitBreakerStateChangedEvent transitionTo(State target) {
+        State from = state;
+        state = target;
+        switch (target) {
+            case OPEN -> openedAt = nanoClock.getAsLong();
+            case HALF_OPEN -> {
+                halfOpenPermitted = 0;
+                halfOpenSucceeded = 0;
+            }
+            case CLOSED -> {
+                windowIndex = 0;
+                windowCount = 0;
+                windowFailures = 0;
+            }
+        }
+        transitions.get(target).increment();
+        return new CircuitBreakerStateChangedEvent(name, from, target, Instant.now());
+    }
+
+    private void publish(CircuitBreakerStateChangedEvent event) {
+        if (event == null) {
+            return;
+        }
+        if (event.to() == State.OPEN) {
+            log.warn("Circuit breaker '{}' changed from {} to {}", name, event.from(), event.to());
+        } else {
+            log.info("Circuit breaker '{}' changed from {} to {}", name, event.from(), event.to());
+        }
+        if (listener != null) {
+            try {
+                listener.accept(event);
+            } catch (Exception e) {
+                log.warn("Circuit breaker '{}' state listener failed: {}", name, e.getMessage());
+            }
+        }
+    }
+}
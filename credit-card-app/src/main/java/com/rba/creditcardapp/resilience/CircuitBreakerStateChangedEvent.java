@@ -0,0 +1,12 @@
+package com.rba.creditcardapp.resilience;
+
+import java.time.Instant;
+
+/**
+ * Published through the application context whenever a {@link CircuitBreaker} changes state.
+ */
+public record CircuitBreakerStateChangedEvent(String name,
+                                              CircuitBreaker.State from,
+                                              CircuitBreaker.State to,
+                                              Instant timestamp) {
+}
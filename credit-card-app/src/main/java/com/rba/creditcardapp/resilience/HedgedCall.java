@@ -0,0 +1,86 @@
+package com.rba.creditcardapp.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs an asynchronous call and, if it has not completed after {@code delay}, starts one
+ * identical backup call. The first success wins. A failure before the backup starts
+ * fails the result immediately; hedging cuts tail latency and does not retry failures.
+ * <p>
+ * Only use for calls that are safe to repeat.
+ */
+public final class HedgedCall<T> {
+
+    private final Supplier<CompletableFuture<T>> attempt;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicBoolean hedgeDecided = new AtomicBoolean();
+    private final AtomicBoolean succeeded = new AtomicBoolean();
+    private volatile boolean hedged;
+    private volatile boolean wonByHedge;
+
+    private HedgedCall(Supplier<CompletableFuture<T>> attempt) {
+        this.attempt = attempt;
+    }
+
+    public static <T> HedgedCall<T> start(Supplier<CompletableFuture<T>> attempt, Duration delay) {
+        HedgedCall<T> call = new HedgedCall<>(attempt);
+        call.launch(false);
+        Executor delayed = CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS);
+        delayed.execute(call::launchHedge);
+        return call;
+    }
+
+    public CompletableFuture<T> result() {
+        return result;
+    }
+
+    /**
+     * Whether the backup call was started.
+     */
+    public boolean isHedged() {
+        return hedged;
+    }
+
+    /**
+     * Whether the backup call completed first.
+     */
+    public boolean isWonByHedge() {
+        return wonByHedge;
+    }
+
+    private void launchHedge() {
+        if (!result.isDone() && hedgeDecided.compareAndSet(false, true)) {
+            hedged = true;
+            launch(true);
+        }
+    }
+
+    private void launch(boolean hedge) {
+        outstanding.incrementAndGet();
+        CompletableFuture<T> future;
+        try {
+            future = attempt.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((value, ex) -> {
+            if (ex == null) {
+                if (succeeded.compareAndSet(false, true)) {
+                    wonByHedge = hedge;
+                    result.complete(value);
+                }
+            } else if (outstanding.decrementAndGet() == 0) {
+                // No attempt left in flight: stop a pending hedge and fail
+                hedgeDecided.set(true);
+                result.completeExceptionally(ex);
+            }
+        });
+    }
+}
@@ -0,0 +1,218 @@
+package com.rba.creditcardapp.service;
+
+import com.rba.creditcardapp.exception.ExternalApiRejectedException;
+import com.rba.creditcardapp.model.CardRequestOutbox;
+import com.rba.creditcardapp.repository.CardRequestOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drains {@code card_request_outbox} to the external card API in the background.
+ * <p>
+ * Each poll locks a batch of due entries with {@code FOR UPDATE SKIP LOCKED}, so several
+ * instances can dispatch side by side, and only the oldest pending entry of an OIB is
+ * ever picked, which keeps requests for one client in order. A failed send is retried
+ * with exponential backoff until {@code max-attempts} is reached, after which the entry
+ * is marked {@code FAILED} and left for manual inspection. While the external API's
+ * circuit breaker is open, entries stay deferred in the outbox for {@code initial-backoff}
+ * at a time and no attempts are used up.
+ */
+@Component
+@Slf4j
+public class CardRequestOutboxDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final String IDEMPOTENCY_KEY_PREFIX = "card-request-";
+
+    private final CardRequestOutboxRepository outboxRepository;
+    private final ExternalApiClientService externalApiClientService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder deferred = new LongAdder();
+    private final LongAdder totalDispatchLagMillis = new LongAdder();
+
+    public CardRequestOutboxDispatcher(CardRequestOutboxRepository outboxRepository,
+                                       ExternalApiClientService externalApiClientService,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${external.api.outbox.enabled:true}") boolean enabled,
+                                       @Value("${external.api.outbox.batch-size:50}") int batchSize,
+                                       @Value("${external.api.outbox.max-attempts:10}") int maxAttempts,
+                                       @Value("${external.api.outbox.initial-backoff:1s}") Duration initialBackoff,
+                                       @Value("${external.api.outbox.max-backoff:5m}") Duration maxBackoff) {
+        this.outboxRepository = outboxRepository;
+        this.externalApiClientService = externalApiClientService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Dispatches batches until no due entries are left, or until sends are being rejected.
+     */
+    @Scheduled(fixedDelayString = "${external.api.outbox.poll-interval-ms:500}")
+    public void dispatch() {
+        if (!enabled) {
+            return;
+        }
+        if (!externalApiClientService.getCircuitBreaker().isCallPermitted()) {
+            log.debug("External API circuit breaker is open, deferring outbox dispatch");
+            return;
+        }
+        try {
+            Integer dispatched;
+            do {
+                dispatched = transactionTemplate.execute(status -> dispatchBatch());
+            } while (dispatched != null && dispatched == batchSize
+                    && externalApiClientService.getCircuitBreaker().isCallPermitted());
+        } catch (Exception e) {
+            log.error("Card request outbox dispatch failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the number of entries whose send was attempted; rejected ones do not count
+     */
+    private int dispatchBatch() {
+        List<CardRequestOutbox> batch = outboxRepository.lockNextBatch(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        log.debug("Dispatching {} card requests from outbox", batch.size());
+        // The batch holds at most one entry per OIB, so its requests can be in flight together
+        List<CompletableFuture<Void>> sends = new ArrayList<>(batch.size());
+        for (CardRequestOutbox entry : batch) {
+            sends.add(externalApiClientService.sendCardRequestAsync(entry.toCardRequest(),
+                    IDEMPOTENCY_KEY_PREFIX + entry.getId()));
+        }
+        int attempted = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (complete(batch.get(i), sends.get(i))) {
+                attempted++;
+            }
+        }
+        outboxRepository.saveAll(batch);
+        return attempted;
+    }
+
+    /**
+     * @return whether the send was attempted, {@code false} if it was rejected before
+     */
+    private boolean complete(CardRequestOutbox entry, CompletableFuture<Void> send) {
+        try {
+            send.join();
+            entry.setAttempts(entry.getAttempts() + 1);
+
+            LocalDateTime now = LocalDateTime.now();
+            entry.setStatus(CardRequestOutbox.Status.SENT);
+            entry.setSentAt(now);
+            entry.setLastError(null);
+            sent.increment();
+            if (entry.getCreatedAt() != null) {
+                totalDispatchLagMillis.add(Duration.between(entry.getCreatedAt(), now).toMillis());
+            }
+            log.info("Forwarded card request for OIB: {} after {} attempt(s)", entry.getOib(), entry.getAttempts());
+            return true;
+        } catch (CompletionException | CancellationException ex) {
+            Throwable e = ex.getCause() != null ? ex.getCause() : ex;
+            entry.setLastError(truncate(e.getMessage()));
+            if (e instanceof ExternalApiRejectedException) {
+                // Nothing was sent: no attempt is used up, but the entry is not picked again right away
+                entry.setNextAttemptAt(LocalDateTime.now().plus(initialBackoff));
+                deferred.increment();
+                log.debug("Card request for OIB: {} deferred: {}", entry.getOib(), e.getMessage());
+                return false;
+            }
+            entry.setAttempts(entry.getAttempts() + 1);
+            if (entry.getAttempts() >= maxAttempts) {
+                entry.setStatus(CardRequestOutbox.Status.FAILED);
+                failed.increment();
+                log.error("Giving up on card request for OIB: {} after {} attempts: {}",
+                        entry.getOib(), entry.getAttempts(), e.getMessage());
+            } else {
+                Duration backoff = backoff(entry.getAttempts());
+                entry.setNextAttemptAt(LocalDateTime.now().plus(backoff));
+                retried.increment();
+                log.warn("Card request for OIB: {} failed (attempt {}), retrying in {} ms: {}",
+                        entry.getOib(), entry.getAttempts(), backoff.toMillis(), e.getMessage());
+            }
+            return true;
+        }
+    }
+
+    /**
+     * {@code initialBackoff * 2^(attempts - 1)}, capped at {@code maxBackoff}.
+     */
+    Duration backoff(int attempts) {
+        int exponent = Math.min(attempts - 1, 30);
+        Duration backoff = initialBackoff.multipliedBy(1L << exponent);
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getRetried() {
+        return retried.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getDeferred() {
+        return deferred.sum();
+    }
+
+    /**
+     * Average time between an entry being written and being forwarded successfully.
+     */
+    public double getAverageDispatchLagMillis() {
+        long count = sent.sum();
+        return count == 0 ? 0.0 : (double) totalDispatchLagMillis.sum() / count;
+    }
+
+    public long getPendingCount() {
+        return outboxRepository.countByStatus(CardRequestOutbox.Status.PENDING);
+    }
+
+    /**
+     * Age of the oldest entry still waiting to be forwarded, or zero if there is none.
+     */
+    public Duration getOldestPendingAge() {
+        LocalDateTime oldest = outboxRepository.findOldestCreatedAt(CardRequestOutbox.Status.PENDING);
+        return oldest == null ? Duration.ZERO : Duration.between(oldest, LocalDateTime.now());
+    }
+}
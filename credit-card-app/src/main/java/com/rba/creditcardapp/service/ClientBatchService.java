@@ -0,0 +1,216 @@
+package com.rba.creditcardapp.service;
+
+import com.rba.creditcardapp.cache.ClientCache;
+import com.rba.creditcardapp.dto.BatchItemResult;
+import com.rba.creditcardapp.dto.BatchRegistrationResponse;
+import com.rba.creditcardapp.dto.ClientRequest;
+import com.rba.creditcardapp.dto.PurgeResponse;
+import com.rba.creditcardapp.model.CardStatus;
+import com.rba.creditcardapp.model.Client;
+import com.rba.creditcardapp.repository.CardRequestOutboxRepository;
+import com.rba.creditcardapp.repository.ClientRepository;
+import com.rba.creditcardapp.utils.ClientMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Registers many clients in one request. Items are validated individually and the new
+ * rows are written a chunk per statement, skipping OIBs that are already registered,
+ * so the cost is a handful of round trips rather than two per client. Purges delete in chunks of one statement each and also remove the
+ * purged clients' card request outbox entries, which hold the same personal data.
+ */
+@Service
+@Slf4j
+public class ClientBatchService {
+
+    private final ClientRepository clientRepository;
+    private final CardRequestOutboxRepository outboxRepository;
+    private final ClientMapper clientMapper;
+    private final ClientCache clientCache;
+    private final Validator validator;
+    private final int maxBatchSize;
+    private final int purgeChunkSize;
+
+    public ClientBatchService(ClientRepository clientRepository,
+                              CardRequestOutboxRepository outboxRepository,
+                              ClientMapper clientMapper,
+                              ClientCache clientCache,
+                              Validator validator,
+                              @Value("${client.batch.max-size:100000}") int maxBatchSize,
+                              @Value("${client.batch.purge-chunk-size:1000}") int purgeChunkSize) {
+        this.clientRepository = clientRepository;
+        this.outboxRepository = outboxRepository;
+        this.clientMapper = clientMapper;
+        this.clientCache = clientCache;
+        this.validator = validator;
+        this.maxBatchSize = maxBatchSize;
+        this.purgeChunkSize = purgeChunkSize;
+    }
+
+    /**
+     * Registers every valid client whose OIB is neither registered already nor repeated
+     * earlier in the batch. Rejected items do not affect the others; the result lists
+     * the outcome of each item in request order.
+     */
+    @Transactional
+    public BatchRegistrationResponse registerClients(List<ClientRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one client");
+        }
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch must not contain more than " + maxBatchSize + " clients");
+        }
+
+        log.info("Registering batch of {} clients", requests.size());
+
+        BatchItemResult[] results = new BatchItemResult[requests.size()];
+        Map<String, Integer> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            ClientRequest request = requests.get(i);
+            String error = validate(request);
+            if (error != null) {
+                results[i] = result(i, request != null ? request.getOib() : null,
+                        BatchItemResult.Status.INVALID, error);
+            } else if (candidates.putIfAbsent(request.getOib(), i) != null) {
+                results[i] = result(i, request.getOib(), BatchItemResult.Status.DUPLICATE,
+                        "OIB " + request.getOib() + " appears earlier in the batch");
+            }
+        }
+
+        if (!candidates.isEmpty()) {
+            List<Client> clients = candidates.values().stream()
+                    .map(i -> clientMapper.toEntity(requests.get(i)))
+                    .toList();
+            // The insert skips registered OIBs itself, so a concurrent registration of the
+            // same OIB is reported as a duplicate rather than failing the whole batch
+            Map<String, Long> inserted = clientRepository.insertAll(clients).stream()
+                    .collect(Collectors.toMap(Client::getOib, Client::getId));
+            // Drop any cached "not found" entries for the new OIBs
+            clientCache.invalidateAll(inserted.keySet());
+
+            for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+                int i = candidate.getValue();
+                Long id = inserted.get(candidate.getKey());
+                results[i] = id != null
+                        ? BatchItemResult.builder()
+                                .index(i)
+                                .oib(candidate.getKey())
+                                .status(BatchItemResult.Status.CREATED)
+                                .id(id)
+                                .build()
+                        : result(i, candidate.getKey(), BatchItemResult.Status.DUPLICATE,
+                                "Client with OIB " + candidate.getKey() + " already exists");
+            }
+        }
+
+        BatchRegistrationResponse response = summarize(Arrays.asList(results));
+        log.info("Batch registration finished. Created: {}, duplicates: {}, invalid: {}",
+                response.getCreated(), response.getDuplicates(), response.getInvalid());
+        return response;
+    }
+
+    /**
+     * Deletes every client whose OIB is listed, {@code client.batch.purge-chunk-size} OIBs
+     * per DELETE statement, all in one transaction. Repeated OIBs are deleted once.
+     * Outbox entries for every listed OIB are deleted too, including entries left
+     * behind by a client that no longer exists, so nothing about them survives the purge.
+     */
+    @Transactional
+    public PurgeResponse purgeClients(List<String> oibs) {
+        if (oibs == null || oibs.isEmpty()) {
+            throw new IllegalArgumentException("Purge must contain at least one OIB");
+        }
+        if (oibs.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Purge must not contain more than " + maxBatchSize + " OIBs");
+        }
+        for (String oib : oibs) {
+            if (oib == null || !oib.matches("\\d{11}")) {
+                throw new IllegalArgumentException("OIB must be exactly 11 digits: " + oib);
+            }
+        }
+
+        log.info("Purging {} clients", oibs.size());
+
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(oibs));
+        Set<String> deleted = new HashSet<>();
+        int outboxDeleted = 0;
+        for (int from = 0; from < distinct.size(); from += purgeChunkSize) {
+            List<String> chunk = distinct.subList(from, Math.min(from + purgeChunkSize, distinct.size()));
+            String[] chunkOibs = chunk.toArray(String[]::new);
+            List<String> chunkDeleted = clientRepository.deleteByOibs(chunkOibs);
+            outboxDeleted += outboxRepository.deleteByOibs(chunkOibs);
+            clientCache.invalidateAll(chunkDeleted);
+            deleted.addAll(chunkDeleted);
+        }
+
+        List<String> notFound = distinct.stream()
+                .filter(oib -> !deleted.contains(oib))
+                .toList();
+        log.info("Purge finished. Deleted: {}, not found: {}, card requests deleted: {}",
+                deleted.size(), notFound.size(), outboxDeleted);
+        return PurgeResponse.builder()
+                .requested(distinct.size())
+                .deleted(deleted.size())
+                .cardRequestsDeleted(outboxDeleted)
+                .notFound(notFound)
+                .build();
+    }
+
+    private String validate(ClientRequest request) {
+        if (request == null) {
+            return "Client must not be null";
+        }
+        Set<ConstraintViolation<ClientRequest>> violations = validator.validate(request);
+        Stream<String> errors = violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage());
+        if (request.getCardStatus() != null && CardStatus.find(request.getCardStatus()) == null) {
+            errors = Stream.concat(errors, Stream.of("cardStatus: Unknown card status " + request.getCardStatus()));
+        }
+        String error = errors.sorted().collect(Collectors.joining("; "));
+        return error.isEmpty() ? null : error;
+    }
+
+    private static BatchItemResult result(int index, String oib, BatchItemResult.Status status, String message) {
+        return BatchItemResult.builder()
+                .index(index)
+                .oib(oib)
+                .status(status)
+                .message(message)
+                .build();
+    }
+
+    private static BatchRegistrationResponse summarize(List<BatchItemResult> items) {
+        int created = 0;
+        int duplicates = 0;
+        int invalid = 0;
+        for (BatchItemResult item : items) {
+            switch (item.getStatus()) {
+                case CREATED -> created++;
+                case DUPLICATE -> duplicates++;
+                case INVALID -> invalid++;
+            }
+        }
+        return BatchRegistrationResponse.builder()
+                .total(items.size())
+                .created(created)
+                .duplicates(duplicates)
+                .invalid(invalid)
+                .items(items)
+                .build();
+    }
+}
@@ -0,0 +1,255 @@
+package com.rba.creditcardapp.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.rba.creditcardapp.dto.ClientResponse;
+import com.rba.creditcardapp.model.CardStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the clients table straight from a server-side JDBC cursor to the response.
+ * Rows are mapped to {@link ClientResponse} without going through the persistence
+ * context, so memory use does not depend on the table size.
+ */
+@Service
+@Slf4j
+public class ClientExportService {
+
+    private static final String CSV_HEADER = "id,firstName,lastName,oib,cardStatus,createdAt,updatedAt";
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+    private final Duration timeout;
+
+    public ClientExportService(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               ObjectMapper objectMapper,
+                               @Value("${client.export.fetch-size:1000}") int fetchSize,
+                               @Value("${client.export.timeout:30m}") Duration timeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+        this.timeout = timeout;
+    }
+
+    /**
+     * How long a streamed export may take; large tables outlive the usual async request
+     * timeout.
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public enum ExportFormat {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        ExportFormat(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /**
+     * Writes all clients matching the optional filters to {@code out}, ordered by id.
+     * PostgreSQL only uses a cursor inside a transaction, hence the read-only
+     * transaction around the query.
+     *
+     * @return number of rows written
+     */
+    public long export(ExportFormat format, CardStatus status, LocalDateTime createdFrom, LocalDateTime createdTo,
+                       OutputStream out) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, first_name, last_name, oib, card_status, instm, updtm FROM clients WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND card_status = ?");
+            args.add(status.getCode());
+        }
+        if (createdFrom != null) {
+            sql.append(" AND instm >= ?");
+            args.add(Timestamp.valueOf(createdFrom));
+        }
+        if (createdTo != null) {
+            sql.append(" AND instm < ?");
+            args.add(Timestamp.valueOf(createdTo));
+        }
+        sql.append(" ORDER BY id");
+
+        log.info("Exporting clients as {} (status: {}, from: {}, to: {})", format, status, createdFrom, createdTo);
+
+        Long rows = transactionTemplate.execute(tx -> {
+            try (RowSink sink = format == ExportFormat.CSV ? new CsvSink(out) : new NdjsonSink(out)) {
+                long[] count = {0};
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(sql.toString());
+                    statement.setFetchSize(fetchSize);
+                    for (int i = 0; i < args.size(); i++) {
+                        statement.setObject(i + 1, args.get(i));
+                    }
+                    return statement;
+                }, (RowCallbackHandler) rs -> {
+                    sink.write(mapRow(rs));
+                    count[0]++;
+                });
+                return count[0];
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        log.info("Exported {} clients as {}", rows, format);
+        return rows != null ? rows : 0;
+    }
+
+    private static ClientResponse mapRow(ResultSet rs) throws SQLException {
+        ClientResponse response = new ClientResponse();
+        response.setId(rs.getLong("id"));
+        response.setFirstName(rs.getString("first_name"));
+        response.setLastName(rs.getString("last_name"));
+        response.setOib(rs.getString("oib"));
+        response.setCardStatus(CardStatus.fromCode(rs.getShort("card_status")).name());
+        response.setCreatedAt(toLocalDateTime(rs.getTimestamp("instm")));
+        response.setUpdatedAt(toLocalDateTime(rs.getTimestamp("updtm")));
+        return response;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private interface RowSink extends AutoCloseable {
+        void write(ClientResponse client);
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private final class NdjsonSink implements RowSink {
+
+        private final JsonGenerator generator;
+        private final ObjectWriter writer;
+
+        private NdjsonSink(OutputStream out) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.generator.setRootValueSeparator(null);
+            this.writer = objectMapper.writerFor(ClientResponse.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        }
+
+        @Override
+        public void write(ClientResponse client) {
+            try {
+                writer.writeValue(generator, client);
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static final class CsvSink implements RowSink {
+
+        private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+        private final Writer writer;
+
+        private CsvSink(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(ClientResponse client) {
+            try {
+                writer.write(String.valueOf(client.getId()));
+                writer.write(',');
+                writeField(client.getFirstName());
+                writer.write(',');
+                writeField(client.getLastName());
+                writer.write(',');
+                writeField(client.getOib());
+                writer.write(',');
+                writeField(client.getCardStatus());
+                writer.write(',');
+                writeField(client.getCreatedAt() != null ? TIMESTAMP_FORMAT.format(client.getCreatedAt()) : null);
+                writer.write(',');
+                writeField(client.getUpdatedAt() != null ? TIMESTAMP_FORMAT.format(client.getUpdatedAt()) : null);
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (!value.isEmpty() && FORMULA_PREFIXES.indexOf(value.charAt(0)) >= 0) {
+                // Spreadsheets would run it as a formula; the quote makes it plain text
+                value = "'" + value;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                    && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+}
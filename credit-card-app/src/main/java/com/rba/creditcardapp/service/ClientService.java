@@ -1,48 +1,93 @@
 package com.rba.creditcardapp.service;
 
+import com.rba.creditcardapp.cache.ClientCache;
+import com.rba.creditcardapp.dto.CardStatusUpdate;
 import com.rba.creditcardapp.dto.ClientRequest;
 import com.rba.creditcardapp.dto.ClientResponse;
+import com.rba.creditcardapp.dto.ClientStatsResponse;
+import com.rba.creditcardapp.dto.CursorPageResponse;
+import com.rba.creditcardapp.events.CardStatusChangedEvent;
+import com.rba.creditcardapp.exception.IllegalStatusTransitionException;
+import com.rba.creditcardapp.exception.StaleStatusUpdateException;
+import com.rba.creditcardapp.model.CardRequestOutbox;
+import com.rba.creditcardapp.model.CardStatus;
 import com.rba.creditcardapp.model.NewCardRequest;
 import com.rba.creditcardapp.utils.ClientMapper;
 import com.rba.creditcardapp.model.Client;
+import com.rba.creditcardapp.repository.CardRequestOutboxRepository;
 import com.rba.creditcardapp.repository.ClientRepository;
+import com.rba.creditcardapp.repository.ClientSortField;
+import com.rba.creditcardapp.repository.ClientVersion;
+import com.rba.creditcardapp.utils.ClientCursor;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Changes run in read-write transactions; lookups are read-only, so they are served by a
+ * replica when replica routing is enabled. Lookups by OIB are the exception: they fill the
+ * client cache, which would otherwise keep a lagging replica's answer for its whole TTL.
+ */
 @Service
 @Transactional
+@Timed("client.service")
 @Slf4j
 public class ClientService {
 
+    static final int MIN_SEARCH_LENGTH = 3;
+
     private final ClientRepository clientRepository;
     private final ClientMapper clientMapper;
-    private final ExternalApiClientService externalApiClientService;
+    private final CardRequestOutboxRepository outboxRepository;
+    private final ClientCache clientCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<StatusUpdateOutcome, Counter> statusUpdateCounters = new EnumMap<>(StatusUpdateOutcome.class);
 
     public ClientService(ClientRepository clientRepository,
                          ClientMapper clientMapper,
-                         ExternalApiClientService externalApiClientService) {
+                         CardRequestOutboxRepository outboxRepository,
+                         ClientCache clientCache,
+                         ApplicationEventPublisher eventPublisher,
+                         MeterRegistry meterRegistry) {
         this.clientRepository = clientRepository;
         this.clientMapper = clientMapper;
-        this.externalApiClientService = externalApiClientService;
+        this.outboxRepository = outboxRepository;
+        this.clientCache = clientCache;
+        this.eventPublisher = eventPublisher;
+        for (StatusUpdateOutcome outcome : StatusUpdateOutcome.values()) {
+            statusUpdateCounters.put(outcome, Counter.builder("client.status.updates")
+                    .description("Card status updates from REST and Kafka, by outcome")
+                    .tag("outcome", outcome.name())
+                    .register(meterRegistry));
+        }
     }
 
     public ClientResponse registerClient(ClientRequest clientRequest) {
         log.info("Registering new client with OIB: {}", clientRequest.getOib());
 
-        if (clientRepository.existsByOib(clientRequest.getOib())) {
-            throw new IllegalArgumentException("Client with OIB " + clientRequest.getOib() + " already exists");
-        }
-
         Client client = clientMapper.toEntity(clientRequest);
-        Client savedClient = clientRepository.save(client);
+        Client savedClient = insertNew(client);
+        ClientResponse response = clientMapper.toResponse(savedClient);
+        clientCache.put(response);
 
         log.info("Successfully registered client with ID: {}", savedClient.getId());
-        return clientMapper.toResponse(savedClient);
+        return response;
     }
 
     public Client registerClientFromCardRequest(NewCardRequest cardRequest) {
@@ -51,25 +96,51 @@ public class ClientService {
 
         validateCardRequest(cardRequest);
 
-        if (clientRepository.existsByOib(cardRequest.getOib())) {
-            throw new IllegalArgumentException("Client with OIB " + cardRequest.getOib() + " already exists");
-        }
-
         Client client = createClientFromRequest(cardRequest);
-        Client savedClient = clientRepository.save(client);
+        Client savedClient = insertNew(client);
+        clientCache.invalidate(savedClient.getOib());
 
-        externalApiClientService.forwardCardRequestToExternalApi(cardRequest);
+        // Forwarded to the external API by CardRequestOutboxDispatcher once this commits
+        outboxRepository.save(CardRequestOutbox.builder()
+                .oib(savedClient.getOib())
+                .firstName(savedClient.getFirstName())
+                .lastName(savedClient.getLastName())
+                .cardStatus(savedClient.getCardStatus().name())
+                .build());
 
         log.info("Successfully processed card request for OIB: {}", cardRequest.getOib());
         return savedClient;
     }
 
+    private Client insertNew(Client client) {
+        return clientRepository.insertIfAbsent(client)
+                .orElseThrow(() -> new IllegalArgumentException("Client with OIB " + client.getOib() + " already exists"));
+    }
+
+    /**
+     * Reads through the client cache. Misses are loaded from the primary, so the cache
+     * never holds a version older than the last committed change.
+     */
     public Optional<ClientResponse> findByOib(String oib) {
         log.debug("Searching for client with OIB: {}", oib);
-        return clientRepository.findByOib(oib)
-                .map(clientMapper::toResponse);
+        return clientCache.get(oib, key -> clientRepository.findByOib(key)
+                .map(clientMapper::toResponse));
     }
 
+    /**
+     * Version of the client for answering conditional requests. Taken from the cached
+     * client when there is one, so it matches what {@link #findByOib} would return;
+     * otherwise read from the primary, which is cheaper than loading the client.
+     */
+    public Optional<ClientVersion> findVersion(String oib) {
+        Optional<ClientResponse> cached = clientCache.getIfPresent(oib);
+        if (cached != null) {
+            return cached.map(client -> new ClientVersion(client.getId(), client.getUpdatedAt()));
+        }
+        return clientRepository.findVersionByOib(oib);
+    }
+
+    @Transactional(readOnly = true)
     public Page<ClientResponse> findAll(Pageable pageable) {
         log.debug("Retrieving clients page: {}, size: {}",
                 pageable.getPageNumber(), pageable.getPageSize());
@@ -78,43 +149,280 @@ public class ClientService {
                 .map(clientMapper::toResponse);
     }
 
+    /**
+     * Number of clients per card status. Served from counters the database keeps up to
+     * date on every insert, status change and delete, so the cost does not grow with
+     * the number of clients.
+     */
+    @Transactional(readOnly = true)
+    public ClientStatsResponse getStats() {
+        long[] counts = new long[CardStatus.values().length];
+        for (ClientRepository.StatusCount statusCount : clientRepository.countByStatus()) {
+            counts[CardStatus.fromCode(statusCount.getCardStatus()).ordinal()] = statusCount.getClientCount();
+        }
+
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        long total = 0;
+        for (CardStatus status : CardStatus.values()) {
+            byStatus.put(status.name(), counts[status.ordinal()]);
+            total += counts[status.ordinal()];
+        }
+        return new ClientStatsResponse(total, byStatus);
+    }
+
+    /**
+     * Clients whose name contains or resembles {@code query}, best matches first. The
+     * query must have at least {@value #MIN_SEARCH_LENGTH} characters; shorter ones have
+     * no trigrams and could not use the index.
+     */
+    @Transactional(readOnly = true)
+    public List<ClientResponse> searchByName(String query, int limit) {
+        String trimmed = query != null ? query.trim() : "";
+        if (trimmed.length() < MIN_SEARCH_LENGTH) {
+            throw new IllegalArgumentException("Search query must have at least " + MIN_SEARCH_LENGTH + " characters");
+        }
+        log.debug("Searching for clients by name: {}, limit: {}", trimmed, limit);
+
+        String pattern = trimmed.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return clientRepository.searchByName(trimmed, pattern, limit).stream()
+                .map(clientMapper::toResponse)
+                .toList();
+    }
+
+    /**
+     * Keyset page of clients. {@code cursor} is the {@code nextCursor} of the previous
+     * page, or {@code null} for the first page; it must have been issued for the same sort.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<ClientResponse> findPage(ClientSortField sortField, boolean descending,
+                                                       String cursor, int size) {
+        log.debug("Retrieving clients after cursor: {}, size: {}", cursor, size);
+
+        Object afterValue = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            ClientCursor decoded = ClientCursor.decode(cursor);
+            if (decoded.sortField() != sortField || decoded.descending() != descending) {
+                throw new IllegalArgumentException("Cursor was issued for a different sort");
+            }
+            afterValue = decoded.parsedValue();
+            afterId = decoded.id();
+        }
+
+        // One extra row tells whether another page exists without a COUNT(*)
+        List<Client> clients = clientRepository.findPageAfter(sortField, descending, afterValue, afterId, size + 1);
+        boolean hasNext = clients.size() > size;
+        List<Client> page = hasNext ? clients.subList(0, size) : clients;
+        String nextCursor = hasNext
+                ? ClientCursor.after(sortField, descending, page.get(page.size() - 1)).encode()
+                : null;
+
+        List<ClientResponse> content = page.stream()
+                .map(clientMapper::toResponse)
+                .toList();
+        return new CursorPageResponse<>(content, size, nextCursor, hasNext);
+    }
+
+    /**
+     * Sets the client's status right away, as of now. Every applied change, here or in
+     * the methods below, is published as a {@link CardStatusChangedEvent}.
+     *
+     * @throws IllegalStatusTransitionException if the client's current status may not
+     *                                          change to {@code status}
+     * @throws StaleStatusUpdateException       if a newer change of the client got in first
+     */
     public ClientResponse updateClientStatus(String oib, String status) {
         log.info("Updating status for client with OIB: {} to {}", oib, status);
 
         validateOib(oib);
-        validateStatus(status);
-
-        Client client = clientRepository.findByOib(oib)
-                .orElseThrow(() -> new IllegalArgumentException("Client with OIB " + oib + " not found"));
+        CardStatus target = parseStatus(status);
 
-        client.setCardStatus(status);
-        Client updatedClient = clientRepository.save(client);
+        StatusChange change = changeStatus(oib, target, LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        switch (change.outcome()) {
+            case NOT_FOUND -> throw new IllegalArgumentException("Client with OIB " + oib + " not found");
+            case REJECTED -> throw new IllegalStatusTransitionException(oib, change.client().getCardStatus(), target);
+            case STALE -> throw new StaleStatusUpdateException(oib);
+            default -> {
+            }
+        }
 
         log.info("Successfully updated status for client with OIB: {}", oib);
-        return clientMapper.toResponse(updatedClient);
+        return change.response();
+    }
+
+    /**
+     * Applies a status update issued at {@link CardStatusUpdate#getTimestamp()}, or now if
+     * it carries none or one in the future. Updates older than the client's last change are dropped
+     * rather than applied out of order.
+     */
+    public StatusUpdateOutcome applyStatusUpdate(CardStatusUpdate statusUpdate) {
+        validateOib(statusUpdate.getOib());
+        CardStatus target = parseStatus(statusUpdate.getStatus());
+
+        StatusChange change = changeStatus(statusUpdate.getOib(), target, issuedAt(statusUpdate));
+        log.debug("Status update for client with OIB: {} to {}: {}",
+                statusUpdate.getOib(), target, change.outcome());
+        return change.outcome();
     }
 
-    public void deleteByOib(String oib) {
+    /**
+     * One conditional UPDATE. Only when it changes nothing is the client read, to tell
+     * the caller why.
+     */
+    private StatusChange changeStatus(String oib, CardStatus target, LocalDateTime timestamp) {
+        StatusChange change = clientRepository.updateStatusIfNewer(oib, target, timestamp)
+                .map(updated -> {
+                    ClientResponse response = clientMapper.toResponse(updated);
+                    clientCache.put(response);
+                    eventPublisher.publishEvent(new CardStatusChangedEvent(
+                            updated.getOib(), updated.getCardStatus(), updated.getUpdatedAt()));
+                    return new StatusChange(StatusUpdateOutcome.APPLIED, updated, response);
+                })
+                .orElseGet(() -> clientRepository.findByOib(oib)
+                        .map(current -> new StatusChange(
+                                classifyMiss(current, target.getAllowedFromMask(), timestamp), current, null))
+                        .orElseGet(() -> new StatusChange(StatusUpdateOutcome.NOT_FOUND, null, null)));
+        countStatusUpdate(change.outcome());
+        return change;
+    }
+
+    /**
+     * Applies a batch of status updates in a single transaction with one UPDATE
+     * statement. Each chain holds the updates of one OIB, in order, each a valid
+     * transition from the one before; callers pass at most one chain per OIB. Only the
+     * last update of a chain is written, and only if the client's status may move to
+     * any step of it, since applying the steps one by one would then end there too.
+     * Updates older than the client's last change, or that no step allows, are left
+     * out by the statement itself.
+     *
+     * @return the outcome for every OIB passed
+     */
+    public Map<String, StatusUpdateOutcome> updateClientStatuses(Collection<List<CardStatusUpdate>> chains) {
+        log.info("Updating status for {} clients", chains.size());
+
+        String[] oibs = new String[chains.size()];
+        Short[] statuses = new Short[chains.size()];
+        Integer[] allowedFrom = new Integer[chains.size()];
+        String[] timestamps = new String[chains.size()];
+        CardStatus[] targets = new CardStatus[chains.size()];
+        LocalDateTime[] issued = new LocalDateTime[chains.size()];
+        Map<String, Integer> indexByOib = new HashMap<>();
+        int i = 0;
+        for (List<CardStatusUpdate> chain : chains) {
+            CardStatusUpdate statusUpdate = chain.get(chain.size() - 1);
+            validateOib(statusUpdate.getOib());
+            int mask = 0;
+            for (CardStatusUpdate step : chain) {
+                mask |= parseStatus(step.getStatus()).getAllowedFromMask();
+            }
+            targets[i] = parseStatus(statusUpdate.getStatus());
+            issued[i] = issuedAt(statusUpdate);
+            oibs[i] = statusUpdate.getOib();
+            statuses[i] = targets[i].getCode();
+            allowedFrom[i] = mask;
+            timestamps[i] = issued[i].toString();
+            indexByOib.put(statusUpdate.getOib(), i);
+            i++;
+        }
+
+        Map<String, StatusUpdateOutcome> outcomes = new HashMap<>();
+        List<String> updatedOibs = clientRepository.bulkUpdateCardStatus(oibs, statuses, allowedFrom, timestamps);
+        for (String oib : updatedOibs) {
+            outcomes.put(oib, StatusUpdateOutcome.APPLIED);
+            int index = indexByOib.get(oib);
+            eventPublisher.publishEvent(new CardStatusChangedEvent(oib, targets[index], issued[index]));
+        }
+        clientCache.invalidateAll(updatedOibs);
+
+        if (outcomes.size() < indexByOib.size()) {
+            List<String> missed = indexByOib.keySet().stream()
+                    .filter(oib -> !outcomes.containsKey(oib))
+                    .toList();
+            for (Client current : clientRepository.findByOibIn(missed)) {
+                int index = indexByOib.get(current.getOib());
+                outcomes.put(current.getOib(), classifyMiss(current, allowedFrom[index], issued[index]));
+            }
+            for (String oib : missed) {
+                outcomes.putIfAbsent(oib, StatusUpdateOutcome.NOT_FOUND);
+            }
+        }
+        outcomes.values().forEach(this::countStatusUpdate);
+
+        log.info("Successfully updated status for {} of {} clients", updatedOibs.size(), chains.size());
+        return outcomes;
+    }
+
+    /**
+     * Why a conditional status update changed nothing. Staleness is checked first: an
+     * old update says nothing about whether the current status may move on. A change
+     * made at the same time as the update does not make it stale, matching the UPDATE.
+     */
+    static StatusUpdateOutcome classifyMiss(Client current, int allowedFromMask, LocalDateTime timestamp) {
+        if (current.getStatusEventAt() != null && current.getStatusEventAt().isAfter(timestamp)) {
+            return StatusUpdateOutcome.STALE;
+        }
+        if ((allowedFromMask & (1 << current.getCardStatus().getCode())) == 0) {
+            return StatusUpdateOutcome.REJECTED;
+        }
+        // Both checks pass now, so a concurrent change won between the UPDATE and the read
+        return StatusUpdateOutcome.STALE;
+    }
+
+    /**
+     * Timestamps ahead of now are taken as now: a producer whose clock runs ahead must not
+     * hold off every later change, REST ones included, until real time catches up. The
+     * result is cut to the microseconds {@code status_event_ts} stores, so it compares
+     * equal to the value written for it.
+     */
+    static LocalDateTime issuedAt(CardStatusUpdate statusUpdate) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime timestamp = statusUpdate.getTimestamp();
+        return (timestamp != null && timestamp.isBefore(now) ? timestamp : now).truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private void countStatusUpdate(StatusUpdateOutcome outcome) {
+        statusUpdateCounters.get(outcome).increment();
+    }
+
+    private record StatusChange(StatusUpdateOutcome outcome, Client client, ClientResponse response) {
+    }
+
+    /**
+     * Deletes the client and, in the same transaction, its card request outbox entries,
+     * which hold the same personal data. Entries are deleted even if the client is
+     * already gone, as a purge does.
+     *
+     * @return {@code false} if no client with the OIB exists
+     */
+    public boolean deleteByOib(String oib) {
         log.info("Deleting client with OIB: {}", oib);
 
-        if (!clientRepository.existsByOib(oib)) {
-            throw new IllegalArgumentException("Client with OIB " + oib + " not found");
+        int cardRequestsDeleted = outboxRepository.deleteByOibs(new String[]{oib});
+        if (cardRequestsDeleted > 0) {
+            log.info("Deleted {} card requests for OIB: {}", cardRequestsDeleted, oib);
+        }
+
+        if (clientRepository.deleteByOib(oib) == 0) {
+            log.info("Client with OIB: {} not found", oib);
+            return false;
         }
 
-        clientRepository.deleteByOib(oib);
+        clientCache.invalidate(oib);
         log.info("Successfully deleted client with OIB: {}", oib);
+        return true;
     }
 
-    private void validateOib(String oib) {
+    void validateOib(String oib) {
         if (oib == null || !oib.matches("\\d{11}")) {
             throw new IllegalArgumentException("OIB must be exactly 11 digits");
         }
     }
 
-    private void validateStatus(String status) {
-        if (status == null || status.trim().isEmpty()) {
+    private CardStatus parseStatus(String status) {
+        if (status == null || status.isBlank()) {
             throw new IllegalArgumentException("Status cannot be null or empty");
         }
+        return CardStatus.parse(status);
     }
 
     private void validateCardRequest(NewCardRequest cardRequest) {
@@ -134,7 +442,7 @@ public class ClientService {
         client.setFirstName(cardRequest.getFirstName());
         client.setLastName(cardRequest.getLastName());
         client.setOib(cardRequest.getOib());
-        client.setCardStatus(cardRequest.getStatus() != null ? cardRequest.getStatus() : "PENDING");
+        client.setCardStatus(cardRequest.getStatus() != null ? CardStatus.parse(cardRequest.getStatus()) : CardStatus.PENDING);
         return client;
     }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.rba.creditcardapp.service;
+
+import com.rba.creditcardapp.model.CardStatus;
+import com.rba.creditcardapp.repository.ClientRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Periodically recounts clients per card status and corrects the counters behind
+ * {@code GET /clients/stats}. The triggers keep them exact; they can only drift when
+ * rows change with triggers disabled, e.g. during a restore, or when the counter table
+ * is edited by hand. Writes to clients wait while a recount runs, so the interval
+ * should stay long.
+ */
+@Component
+@Slf4j
+public class ClientStatusCountReconciler {
+
+    private final ClientRepository clientRepository;
+    private final Counter corrections;
+
+    public ClientStatusCountReconciler(ClientRepository clientRepository, MeterRegistry meterRegistry) {
+        this.clientRepository = clientRepository;
+        this.corrections = Counter.builder("client.stats.corrections")
+                .description("Card statuses whose client count had drifted and was corrected")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${client.stats.reconcile-interval-ms:3600000}",
+            initialDelayString = "${client.stats.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        try {
+            Map<CardStatus, Long> drift = clientRepository.reconcileStatusCounts();
+            drift.forEach((status, difference) ->
+                    log.warn("Client count for status {} was off by {}; corrected", status, difference));
+            corrections.increment(drift.size());
+        } catch (Exception e) {
+            log.warn("Failed to reconcile client status counts: {}", e.getMessage());
+        }
+    }
+}
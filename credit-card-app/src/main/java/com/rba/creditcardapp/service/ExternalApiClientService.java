@@ -1,17 +1,65 @@
 package com.rba.creditcardapp.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rba.creditcardapp.exception.ExternalApiException;
+import com.rba.creditcardapp.exception.ExternalApiRejectedException;
 import com.rba.creditcardapp.model.NewCardRequest;
+import com.rba.creditcardapp.resilience.CircuitBreaker;
+import com.rba.creditcardapp.resilience.HedgedCall;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Client of the external card API. Requests are sent asynchronously over a pooled
+ * connection and pass through, in order:
+ * <ul>
+ *     <li>a circuit breaker, which refuses calls while the API is failing;</li>
+ *     <li>optional hedging, which sends a second copy of a request that is slower than
+ *     {@code hedging.delay} and takes whichever answers first;</li>
+ *     <li>a bulkhead of {@code max-in-flight} outstanding requests.</li>
+ * </ul>
+ * Refused calls fail immediately with {@link ExternalApiRejectedException} instead of
+ * queueing behind a slow endpoint. Every call is timed in {@code external.api.requests},
+ * tagged with its outcome: {@code SUCCESS}, {@code FAILURE} or {@code REJECTED}.
+ */
 @Service
 @Slf4j
 public class ExternalApiClientService {
 
-    private final RestTemplate restTemplate;
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Duration requestTimeout;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final CircuitBreaker circuitBreaker;
+    private final boolean hedgingEnabled;
+    private final Duration hedgingDelay;
+
+    private final Timer successTimer;
+    private final Timer failureTimer;
+    private final Timer rejectedTimer;
+
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
 
     @Value("${external.api.url}")
     private String externalApiBaseUrl;
@@ -22,57 +70,165 @@ public class ExternalApiClientService {
     @Value("${external.api.enabled}")
     private boolean externalApiEnabled;
 
-    public ExternalApiClientService(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    public ExternalApiClientService(HttpClient httpClient,
+                                    ObjectMapper objectMapper,
+                                    CircuitBreaker circuitBreaker,
+                                    @Value("${external.api.http.request-timeout:5s}") Duration requestTimeout,
+                                    @Value("${external.api.http.max-in-flight:100}") int maxInFlight,
+                                    @Value("${external.api.hedging.enabled:false}") boolean hedgingEnabled,
+                                    @Value("${external.api.hedging.delay:500ms}") Duration hedgingDelay,
+                                    MeterRegistry meterRegistry) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.circuitBreaker = circuitBreaker;
+        this.requestTimeout = requestTimeout;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.hedgingEnabled = hedgingEnabled;
+        this.hedgingDelay = hedgingDelay;
+        this.successTimer = requestTimer(meterRegistry, "SUCCESS");
+        this.failureTimer = requestTimer(meterRegistry, "FAILURE");
+        this.rejectedTimer = requestTimer(meterRegistry, "REJECTED");
+    }
+
+    private static Timer requestTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("external.api.requests")
+                .description("Card requests sent to the external API")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sends the card request. The returned future fails with {@link ExternalApiException}
+     * unless the external API accepted it, so callers can retry.
+     *
+     * @param idempotencyKey sent as {@code Idempotency-Key} so the API can drop repeats,
+     *                       e.g. hedged copies; may be {@code null}
+     */
+    public CompletableFuture<Void> sendCardRequestAsync(NewCardRequest cardRequest, String idempotencyKey) {
+        long start = System.nanoTime();
+        if (!circuitBreaker.tryAcquirePermission()) {
+            rejectedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return CompletableFuture.failedFuture(new ExternalApiRejectedException(
+                    "Circuit breaker for external API is " + circuitBreaker.getState()));
+        }
+
+        CompletableFuture<Void> future;
+        if (hedgingEnabled && idempotencyKey != null) {
+            HedgedCall<Void> call = HedgedCall.start(() -> sendWithinBulkhead(cardRequest, idempotencyKey),
+                    hedgingDelay);
+            future = call.result().whenComplete((result, ex) -> {
+                if (call.isHedged()) {
+                    hedged.increment();
+                }
+                if (call.isWonByHedge()) {
+                    hedgeWins.increment();
+                }
+            });
+        } else {
+            future = sendWithinBulkhead(cardRequest, idempotencyKey);
+        }
+
+        return future.whenComplete((result, ex) -> {
+            long elapsed = System.nanoTime() - start;
+            if (ex == null) {
+                circuitBreaker.onSuccess();
+                successTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            } else if (unwrap(ex) instanceof ExternalApiRejectedException) {
+                circuitBreaker.releasePermission();
+                rejectedTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            } else {
+                circuitBreaker.onError();
+                failureTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            }
+        });
     }
 
-    public void forwardCardRequestToExternalApi(NewCardRequest cardRequest) {
-        if (!externalApiEnabled) {
-            log.info("External API forwarding is disabled. Simulation mode active.");
-            log.info("WOULD SEND TO: {}{}", externalApiBaseUrl, cardRequestEndpoint);
-            log.info("DATA: First Name: {}, Last Name: {}, OIB: {}, Status: {}",
-                    cardRequest.getFirstName(), cardRequest.getLastName(),
-                    cardRequest.getOib(), cardRequest.getStatus());
-            simulateApiCall(cardRequest);
-            return;
+    private CompletableFuture<Void> sendWithinBulkhead(NewCardRequest cardRequest, String idempotencyKey) {
+        if (!inFlight.tryAcquire()) {
+            return CompletableFuture.failedFuture(new ExternalApiRejectedException(
+                    "Too many in-flight requests to external API (limit " + maxInFlight + ")"));
         }
 
+        CompletableFuture<Void> future;
         try {
-            String externalApiUrl = externalApiBaseUrl + cardRequestEndpoint;
+            future = externalApiEnabled ? post(cardRequest, idempotencyKey) : simulateApiCall(cardRequest);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
+        return future.whenComplete((result, ex) -> inFlight.release());
+    }
 
-            HttpEntity<NewCardRequest> request = new HttpEntity<>(cardRequest, headers);
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
 
-            log.info("Sending card request to external API: {}", externalApiUrl);
-            log.debug("Request payload: {}", cardRequest);
+    public long getHedged() {
+        return hedged.sum();
+    }
 
-            ResponseEntity<String> response = restTemplate.exchange(
-                    externalApiUrl, HttpMethod.POST, request, String.class);
+    public long getHedgeWins() {
+        return hedgeWins.sum();
+    }
 
-            if (response.getStatusCode().is2xxSuccessful()) {
-                log.info("Successfully forwarded to external API for OIB: {}. Status: {}",
-                        cardRequest.getOib(), response.getStatusCode());
-            } else {
-                log.warn("External API returned non-success status: {} for OIB: {}",
-                        response.getStatusCode(), cardRequest.getOib());
-            }
-        } catch (Exception e) {
-            log.error("Error calling external API for OIB: {}. Error: {}",
-                    cardRequest.getOib(), e.getMessage());
-            log.debug("Full error details:", e);
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    private CompletableFuture<Void> post(NewCardRequest cardRequest, String idempotencyKey) {
+        String externalApiUrl = externalApiBaseUrl + cardRequestEndpoint;
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(externalApiUrl))
+                .timeout(requestTimeout)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(toJson(cardRequest)));
+        if (idempotencyKey != null) {
+            builder.header(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
         }
+        HttpRequest request = builder.build();
+
+        log.info("Sending card request to external API: {}", externalApiUrl);
+        log.debug("Request payload: {}", cardRequest);
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, ex) -> {
+                    if (ex != null) {
+                        throw new ExternalApiException("External API call failed for OIB " + cardRequest.getOib(),
+                                unwrap(ex));
+                    }
+                    if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                        throw new ExternalApiException("External API returned " + response.statusCode()
+                                + " for OIB " + cardRequest.getOib());
+                    }
+                    log.info("Successfully forwarded to external API for OIB: {}. Status: {}",
+                            cardRequest.getOib(), response.statusCode());
+                    return null;
+                });
     }
 
-    private void simulateApiCall(NewCardRequest cardRequest) {
+    private byte[] toJson(NewCardRequest cardRequest) {
         try {
-            Thread.sleep(100);
-            log.info("SIMULATION: External API would return 201 Created for OIB: {}",
-                    cardRequest.getOib());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.warn("API simulation was interrupted");
+            return objectMapper.writeValueAsBytes(cardRequest);
+        } catch (JsonProcessingException e) {
+            throw new ExternalApiException("Could not serialize card request for OIB " + cardRequest.getOib(), e);
         }
     }
+
+    private CompletableFuture<Void> simulateApiCall(NewCardRequest cardRequest) {
+        log.info("External API forwarding is disabled. Simulation mode active.");
+        log.info("WOULD SEND TO: {}{}", externalApiBaseUrl, cardRequestEndpoint);
+        log.info("DATA: First Name: {}, Last Name: {}, OIB: {}, Status: {}",
+                cardRequest.getFirstName(), cardRequest.getLastName(),
+                cardRequest.getOib(), cardRequest.getStatus());
+
+        return CompletableFuture.runAsync(
+                () -> log.info("SIMULATION: External API would return 201 Created for OIB: {}",
+                        cardRequest.getOib()),
+                CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS));
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
 }
@@ -0,0 +1,20 @@
+package com.rba.creditcardapp.service;
+
+/**
+ * What became of a card status update. Updates carry the time they were issued, and a
+ * client is only changed by an update newer than its last change.
+ */
+public enum StatusUpdateOutcome {
+
+    /** The client now has the requested status. */
+    APPLIED,
+
+    /** The client was changed at or after the update's timestamp; the update was dropped. */
+    STALE,
+
+    /** The client's current status may not change to the requested one. */
+    REJECTED,
+
+    /** No client with the OIB exists. */
+    NOT_FOUND
+}
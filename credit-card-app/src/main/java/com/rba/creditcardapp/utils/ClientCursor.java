@@ -0,0 +1,48 @@
+package com.rba.creditcardapp.utils;
+
+import com.rba.creditcardapp.model.Client;
+import com.rba.creditcardapp.repository.ClientSortField;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+/**
+ * Opaque continuation token for keyset pagination. It carries the sort it was issued
+ * for and the (sort value, id) of the last row returned.
+ */
+public record ClientCursor(ClientSortField sortField, boolean descending, Long id, String value) {
+
+    private static final String SEPARATOR = "|";
+
+    public static ClientCursor after(ClientSortField sortField, boolean descending, Client client) {
+        return new ClientCursor(sortField, descending, client.getId(),
+                String.valueOf(sortField.valueOf(client)));
+    }
+
+    public String encode() {
+        String raw = sortField.name() + SEPARATOR + (descending ? "d" : "a") + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ClientCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // The sort value goes last so it may itself contain the separator
+            String[] parts = raw.split(Pattern.quote(SEPARATOR), 4);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            ClientCursor cursor = new ClientCursor(ClientSortField.valueOf(parts[0]), "d".equals(parts[1]),
+                    Long.valueOf(parts[2]), parts[3]);
+            cursor.parsedValue();
+            return cursor;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public Object parsedValue() {
+        return sortField.parseValue(value);
+    }
+}
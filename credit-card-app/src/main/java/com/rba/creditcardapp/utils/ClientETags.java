@@ -0,0 +1,71 @@
+package com.rba.creditcardapp.utils;
+
+import com.rba.creditcardapp.dto.ClientResponse;
+import com.rba.creditcardapp.dto.CursorPageResponse;
+import com.rba.creditcardapp.dto.PageResponse;
+import com.rba.creditcardapp.repository.ClientVersion;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Weak entity tags for client reads. Every change of a client moves its {@code updtm},
+ * so id and change time identify what a client looks like. A page's tag is a hash of
+ * the tags of its rows, in order, and of the paging fields.
+ */
+public final class ClientETags {
+
+    private ClientETags() {
+    }
+
+    public static String of(ClientVersion version) {
+        return weak(version(version.id(), version.updatedAt()));
+    }
+
+    public static String of(ClientResponse client) {
+        return weak(version(client.getId(), client.getUpdatedAt()));
+    }
+
+    public static String ofPage(PageResponse<ClientResponse> page) {
+        return ofContent(page.getContent(),
+                page.getCurrentPage() + "|" + page.getPageSize() + "|" + page.getTotalItems());
+    }
+
+    public static String ofPage(CursorPageResponse<ClientResponse> page) {
+        return ofContent(page.getContent(), page.getPageSize() + "|" + page.getNextCursor());
+    }
+
+    private static String ofContent(List<ClientResponse> content, String paging) {
+        MessageDigest digest = sha256();
+        digest.update(paging.getBytes(StandardCharsets.UTF_8));
+        for (ClientResponse client : content) {
+            digest.update(("|" + version(client.getId(), client.getUpdatedAt())).getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] hash = Arrays.copyOf(digest.digest(), 12);
+        return weak(Base64.getUrlEncoder().withoutPadding().encodeToString(hash));
+    }
+
+    private static String version(Long id, LocalDateTime updatedAt) {
+        long micros = updatedAt == null ? 0
+                : updatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + updatedAt.getNano() / 1_000;
+        return id + "-" + Long.toString(micros, 36);
+    }
+
+    private static String weak(String value) {
+        return "W/\"" + value + "\"";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.rba.creditcardapp.utils;
 
 import com.rba.creditcardapp.dto.ClientRequest;
 import com.rba.creditcardapp.dto.ClientResponse;
+import com.rba.creditcardapp.model.CardStatus;
 import com.rba.creditcardapp.model.Client;
 import org.springframework.stereotype.Component;
 
@@ -16,7 +17,7 @@ public class ClientMapper {
         response.setFirstName(client.getFirstName());
         response.setLastName(client.getLastName());
         response.setOib(client.getOib());
-        response.setCardStatus(client.getCardStatus());
+        response.setCardStatus(client.getCardStatus() != null ? client.getCardStatus().name() : null);
         response.setCreatedAt(client.getCreatedAt());
         response.setUpdatedAt(client.getUpdatedAt());
         return response;
@@ -30,7 +31,7 @@ public class ClientMapper {
         client.setLastName(request.getLastName());
         client.setOib(request.getOib());
         client.setCardStatus(request.getCardStatus() != null ?
-                request.getCardStatus() : "PENDING");
+                CardStatus.parse(request.getCardStatus()) : CardStatus.PENDING);
         return client;
     }
 }
\ No newline at end of file
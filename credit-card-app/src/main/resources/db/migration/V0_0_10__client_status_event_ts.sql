@@ -0,0 +1,9 @@
+-- Version of a client's card status: when the change that set it was issued. Status
+-- updates only apply over an older version. It used to be kept in updtm, which the
+-- database and the application also stamp on their own clocks; kept apart, updtm is
+-- again just the last modification time and staleness only compares change times.
+ALTER TABLE clients ADD COLUMN status_event_ts TIMESTAMP;
+
+-- Carries over the ordering of changes already applied, without keeping any version
+-- ahead of now that would hold off later changes
+UPDATE clients SET status_event_ts = LEAST(updtm, LOCALTIMESTAMP);
@@ -0,0 +1,6 @@
+-- Keyset pages sorted by createdAt compare (instm, id) row values, which never match a
+-- NULL instm, and their cursors cannot carry one. Rows inserted without it get the
+-- closest time known.
+UPDATE clients SET instm = COALESCE(updtm, LOCALTIMESTAMP) WHERE instm IS NULL;
+
+ALTER TABLE clients ALTER COLUMN instm SET NOT NULL;
@@ -0,0 +1,2 @@
+-- Purges delete outbox entries by OIB regardless of status
+CREATE INDEX idx_card_request_outbox_oib ON card_request_outbox(oib);
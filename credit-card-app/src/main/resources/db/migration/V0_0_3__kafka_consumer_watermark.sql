@@ -0,0 +1,8 @@
+CREATE TABLE kafka_consumer_watermark (
+    consumer_group VARCHAR(255) NOT NULL,
+    topic VARCHAR(249) NOT NULL,
+    partition_id INTEGER NOT NULL,
+    last_offset BIGINT NOT NULL,
+    updtm TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (consumer_group, topic, partition_id)
+);
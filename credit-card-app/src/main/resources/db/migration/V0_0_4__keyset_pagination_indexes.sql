@@ -0,0 +1,10 @@
+-- Composite indexes backing keyset pagination: ORDER BY <field>, id and
+-- WHERE (<field>, id) > (?, ?) resolve to a single index range scan.
+-- id and oib are already covered by the primary key and the unique constraint.
+CREATE INDEX idx_clients_first_name_id ON clients(first_name, id);
+CREATE INDEX idx_clients_last_name_id ON clients(last_name, id);
+CREATE INDEX idx_clients_instm_id ON clients(instm, id);
+
+-- Supersedes idx_clients_status, which is a prefix of the new index
+CREATE INDEX idx_clients_status_id ON clients(card_status, id);
+DROP INDEX idx_clients_status;
@@ -0,0 +1,4 @@
+-- Hibernate's pooled optimizer reserves ids in blocks of the sequence increment,
+-- which lets inserts be JDBC-batched (IDENTITY forces one round trip per row).
+-- Must match allocationSize on Client.id.
+ALTER SEQUENCE clients_id_seq INCREMENT BY 50;
@@ -0,0 +1,19 @@
+CREATE TABLE card_request_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    oib VARCHAR(11) NOT NULL,
+    first_name VARCHAR(255) NOT NULL,
+    last_name VARCHAR(255) NOT NULL,
+    card_status VARCHAR(50),
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error VARCHAR(1000),
+    sent_at TIMESTAMP,
+    instm TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updtm TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Dispatcher polling: due pending entries in insertion order
+CREATE INDEX idx_card_request_outbox_pending ON card_request_outbox(next_attempt_at, id) WHERE status = 'PENDING';
+-- Per-OIB ordering check: is there an older pending entry for the same OIB?
+CREATE INDEX idx_card_request_outbox_pending_oib ON card_request_outbox(oib, id) WHERE status = 'PENDING';
@@ -0,0 +1,18 @@
+-- Card status is stored as the code of com.rba.creditcardapp.model.CardStatus:
+-- 0 PENDING, 1 APPROVED, 2 REJECTED, 3 IN_PROGRESS, 4 COMPLETED, 5 SHIPPED.
+-- Codes are persisted and must never be renumbered. Unknown values have no
+-- mapping and make the migration fail instead of being silently rewritten.
+ALTER TABLE clients ALTER COLUMN card_status DROP DEFAULT;
+
+ALTER TABLE clients ALTER COLUMN card_status TYPE SMALLINT USING
+    CASE UPPER(TRIM(card_status))
+        WHEN 'PENDING' THEN 0
+        WHEN 'APPROVED' THEN 1
+        WHEN 'REJECTED' THEN 2
+        WHEN 'IN_PROGRESS' THEN 3
+        WHEN 'COMPLETED' THEN 4
+        WHEN 'SHIPPED' THEN 5
+    END;
+
+ALTER TABLE clients ALTER COLUMN card_status SET DEFAULT 0;
+ALTER TABLE clients ADD CONSTRAINT chk_clients_card_status CHECK (card_status BETWEEN 0 AND 5);
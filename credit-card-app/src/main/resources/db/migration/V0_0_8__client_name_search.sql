@@ -0,0 +1,7 @@
+-- Name search: substring (LIKE '%q%') and fuzzy (<%) matches on the lower-cased full name
+-- are both answered from one trigram index instead of a sequential scan.
+-- The indexed expression must match the one in ClientRepository.searchByName exactly.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX idx_clients_full_name_trgm
+    ON clients USING gin (lower(first_name || ' ' || last_name) gin_trgm_ops);
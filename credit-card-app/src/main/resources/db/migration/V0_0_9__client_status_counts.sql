@@ -0,0 +1,65 @@
+-- Number of clients per card status, kept current by statement-level triggers on
+-- clients so that reading the counts never scans the table. Every statement adds its
+-- net change per status in one upsert. The change goes to one of 16 slots picked by
+-- backend, so concurrent transactions rarely queue on the same row. The count of a
+-- status is the sum over its slots.
+CREATE TABLE client_status_counts (
+    card_status SMALLINT NOT NULL,
+    slot SMALLINT NOT NULL,
+    client_count BIGINT NOT NULL,
+    PRIMARY KEY (card_status, slot)
+);
+
+INSERT INTO client_status_counts (card_status, slot, client_count)
+SELECT card_status, 0, COUNT(*) FROM clients GROUP BY card_status;
+
+CREATE FUNCTION client_status_counts_apply() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO client_status_counts (card_status, slot, client_count)
+        SELECT card_status, pg_backend_pid() % 16, COUNT(*) FROM new_rows GROUP BY card_status
+        ON CONFLICT (card_status, slot)
+            DO UPDATE SET client_count = client_status_counts.client_count + EXCLUDED.client_count;
+    ELSIF TG_OP = 'DELETE' THEN
+        INSERT INTO client_status_counts (card_status, slot, client_count)
+        SELECT card_status, pg_backend_pid() % 16, -COUNT(*) FROM old_rows GROUP BY card_status
+        ON CONFLICT (card_status, slot)
+            DO UPDATE SET client_count = client_status_counts.client_count + EXCLUDED.client_count;
+    ELSE
+        -- Updates that leave the status alone net out to zero and touch no slot
+        INSERT INTO client_status_counts (card_status, slot, client_count)
+        SELECT card_status, pg_backend_pid() % 16, SUM(delta)
+        FROM (SELECT card_status, 1 AS delta FROM new_rows
+              UNION ALL
+              SELECT card_status, -1 FROM old_rows) AS changes
+        GROUP BY card_status
+        HAVING SUM(delta) <> 0
+        ON CONFLICT (card_status, slot)
+            DO UPDATE SET client_count = client_status_counts.client_count + EXCLUDED.client_count;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION client_status_counts_reset() RETURNS trigger AS $$
+BEGIN
+    DELETE FROM client_status_counts;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_clients_status_counts_insert
+    AFTER INSERT ON clients REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION client_status_counts_apply();
+
+CREATE TRIGGER trg_clients_status_counts_update
+    AFTER UPDATE ON clients REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION client_status_counts_apply();
+
+CREATE TRIGGER trg_clients_status_counts_delete
+    AFTER DELETE ON clients REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION client_status_counts_apply();
+
+CREATE TRIGGER trg_clients_status_counts_truncate
+    AFTER TRUNCATE ON clients
+    FOR EACH STATEMENT EXECUTE FUNCTION client_status_counts_reset();
@@ -0,0 +1,126 @@
+package com.rba.creditcardapp.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaRoutingDataSourceTest {
+
+    private static final String REPLICA_1 = "replica-1";
+    private static final String REPLICA_2 = "replica-2";
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica1;
+
+    @Mock
+    private DataSource replica2;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put(REPLICA_1, replica1);
+        replicas.put(REPLICA_2, replica2);
+        routingDataSource = new ReplicaRoutingDataSource(primary, replicas, Duration.ofSeconds(5), meterRegistry);
+        routingDataSource.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void readWriteTransaction_UsesPrimary() {
+        routingDataSource.updateLag(REPLICA_1, Duration.ZERO);
+
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, routingDataSource.determineCurrentLookupKey());
+        assertEquals(1, routingCount(ReplicaRoutingDataSource.PRIMARY, ReplicaRoutingDataSource.ROUTE_READ_WRITE));
+    }
+
+    @Test
+    void readOnlyTransaction_AlternatesBetweenReplicas() {
+        routingDataSource.updateLag(REPLICA_1, Duration.ZERO);
+        routingDataSource.updateLag(REPLICA_2, Duration.ofSeconds(1));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        Object first = routingDataSource.determineCurrentLookupKey();
+        Object second = routingDataSource.determineCurrentLookupKey();
+
+        assertNotEquals(first, second);
+        assertEquals(1, routingCount(REPLICA_1, ReplicaRoutingDataSource.ROUTE_READ_ONLY));
+        assertEquals(1, routingCount(REPLICA_2, ReplicaRoutingDataSource.ROUTE_READ_ONLY));
+    }
+
+    @Test
+    void readOnlyTransaction_SkipsLaggingReplica() {
+        routingDataSource.updateLag(REPLICA_1, Duration.ofSeconds(30));
+        routingDataSource.updateLag(REPLICA_2, Duration.ZERO);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(REPLICA_2, routingDataSource.determineCurrentLookupKey());
+        }
+        assertFalse(routingDataSource.isAvailable(REPLICA_1));
+        assertEquals(30.0, meterRegistry.get("datasource.replica.lag").tag("pool", REPLICA_1).gauge().value());
+    }
+
+    @Test
+    void readOnlyTransaction_FallsBackToPrimary() {
+        routingDataSource.updateLag(REPLICA_1, null);
+        routingDataSource.updateLag(REPLICA_2, Duration.ofMinutes(1));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, routingDataSource.determineCurrentLookupKey());
+        assertEquals(1, routingCount(ReplicaRoutingDataSource.PRIMARY, ReplicaRoutingDataSource.ROUTE_FALLBACK));
+    }
+
+    @Test
+    void replicaUnusedUntilLagMeasured() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, routingDataSource.determineCurrentLookupKey());
+
+        routingDataSource.updateLag(REPLICA_1, Duration.ZERO);
+        assertEquals(REPLICA_1, routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void replicaRecoversWhenCaughtUp() {
+        routingDataSource.updateLag(REPLICA_1, Duration.ofSeconds(10));
+        assertFalse(routingDataSource.isAvailable(REPLICA_1));
+
+        routingDataSource.updateLag(REPLICA_1, Duration.ofMillis(200));
+        assertTrue(routingDataSource.isAvailable(REPLICA_1));
+        assertEquals(1.0, meterRegistry.get("datasource.replica.available").tag("pool", REPLICA_1).gauge().value());
+    }
+
+    @Test
+    void unknownReplica_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> routingDataSource.updateLag("other", Duration.ZERO));
+    }
+
+    private double routingCount(String pool, String route) {
+        return meterRegistry.get("datasource.routing").tag("pool", pool).tag("route", route).counter().count();
+    }
+}
@@ -0,0 +1,81 @@
+package com.rba.creditcardapp.diagnostics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ResponseMetricsValveTest {
+
+    private MeterRegistry meterRegistry;
+    private ResponseMetricsValve valve;
+    private Request request;
+    private Response response;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        valve = new ResponseMetricsValve(meterRegistry);
+        request = mock(Request.class);
+        response = mock(Response.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE)).thenReturn("/api/v1/clients/{oib}");
+    }
+
+    @Test
+    void log_CountsConditionalRequestsByOutcome() {
+        when(request.getHeader("If-None-Match")).thenReturn("W/\"1-abc\"");
+        when(response.getStatus()).thenReturn(304, 200);
+
+        valve.log(request, response, 1);
+        valve.log(request, response, 1);
+
+        assertEquals(1.0, conditionalRequests("NOT_MODIFIED"));
+        assertEquals(1.0, conditionalRequests("MODIFIED"));
+    }
+
+    @Test
+    void log_IgnoresUnconditionalRequests() {
+        when(response.getStatus()).thenReturn(200);
+
+        valve.log(request, response, 1);
+
+        assertNull(meterRegistry.find("http.server.conditional.requests").counter());
+    }
+
+    @Test
+    void log_CountsBytesSavedByCompression() {
+        when(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE)).thenReturn("/api/v1/clients");
+        when(response.getHeader("Content-Encoding")).thenReturn("gzip");
+        when(response.getContentWritten()).thenReturn(10_000L);
+        when(response.getBytesWritten(false)).thenReturn(1_500L);
+
+        valve.log(request, response, 1);
+
+        assertEquals(8_500.0, meterRegistry.get("http.server.compression.saved")
+                .tag("uri", "/api/v1/clients").counter().count());
+    }
+
+    @Test
+    void log_IgnoresUncompressedResponses() {
+        when(response.getContentWritten()).thenReturn(10_000L);
+        when(response.getBytesWritten(false)).thenReturn(10_000L);
+
+        valve.log(request, response, 1);
+
+        assertNull(meterRegistry.find("http.server.compression.saved").counter());
+    }
+
+    private double conditionalRequests(String outcome) {
+        return meterRegistry.get("http.server.conditional.requests")
+                .tag("uri", "/api/v1/clients/{oib}")
+                .tag("outcome", outcome)
+                .counter().count();
+    }
+}
@@ -0,0 +1,179 @@
+package com.rba.creditcardapp.events;
+
+import com.rba.creditcardapp.exception.TooManySubscribersException;
+import com.rba.creditcardapp.model.CardStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardStatusEventBroadcasterTest {
+
+    private static final LocalDateTime CHANGED_AT = LocalDateTime.of(2025, 1, 10, 12, 0);
+
+    private final List<Runnable> pendingSends = new ArrayList<>();
+    private final List<RecordingEmitter> emitters = new ArrayList<>();
+
+    private CardStatusEventBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = broadcaster(2, 3, 10, Runnable::run);
+    }
+
+    @Test
+    void subscribe_ReceivesMatchingChanges() {
+        RecordingEmitter all = subscribe(Set.of(), Set.of(), null);
+        RecordingEmitter oneClient = subscribe(Set.of("12345678901"), Set.of(), null);
+        RecordingEmitter approved = subscribe(Set.of(), EnumSet.of(CardStatus.APPROVED), null);
+
+        broadcaster.onStatusChanged(change("12345678901", CardStatus.APPROVED));
+        broadcaster.onStatusChanged(change("10987654321", CardStatus.REJECTED));
+
+        assertEquals(List.of("status 12345678901 APPROVED", "status 10987654321 REJECTED"), all.events);
+        assertEquals(List.of("status 12345678901 APPROVED"), oneClient.events);
+        assertEquals(List.of("status 12345678901 APPROVED"), approved.events);
+    }
+
+    @Test
+    void subscribe_ResumesAfterLastEventId() {
+        RecordingEmitter first = subscribe(Set.of(), Set.of(), null);
+        broadcaster.onStatusChanged(change("12345678901", CardStatus.APPROVED));
+        broadcaster.onStatusChanged(change("12345678901", CardStatus.IN_PROGRESS));
+        broadcaster.onStatusChanged(change("12345678901", CardStatus.SHIPPED));
+
+        RecordingEmitter resumed = subscribe(Set.of(), Set.of(), first.ids.get(0));
+
+        assertEquals(List.of("status 12345678901 IN_PROGRESS", "status 12345678901 SHIPPED"), resumed.events);
+    }
+
+    @Test
+    void subscribe_ResetsWhenHistoryNoLongerReachesBack() {
+        RecordingEmitter first = subscribe(Set.of(), Set.of(), null);
+        broadcaster.onStatusChanged(change("12345678901", CardStatus.APPROVED));
+        for (int i = 0; i < 4; i++) {
+            broadcaster.onStatusChanged(change("10987654321", CardStatus.APPROVED));
+        }
+
+        RecordingEmitter resumed = subscribe(Set.of(), Set.of(), first.ids.get(0));
+
+        assertEquals(List.of("reset"), resumed.events);
+        assertEquals(first.ids.get(first.ids.size() - 1), resumed.ids.get(0));
+    }
+
+    @Test
+    void subscribe_ResetsOnIdFromAnotherInstance() {
+        RecordingEmitter resumed = subscribe(Set.of(), Set.of(), "abc-1");
+
+        assertEquals(List.of("reset"), resumed.events);
+    }
+
+    @Test
+    void subscribe_RefusedAboveLimit() {
+        broadcaster = broadcaster(2, 3, 1, Runnable::run);
+        subscribe(Set.of(), Set.of(), null);
+
+        assertThrows(TooManySubscribersException.class, () -> broadcaster.subscribe(Set.of(), Set.of(), null));
+    }
+
+    @Test
+    void onStatusChanged_DropsSubscriberThatFallsBehind() {
+        broadcaster = broadcaster(2, 3, 10, pendingSends::add);
+        RecordingEmitter slow = subscribe(Set.of(), Set.of(), null);
+
+        broadcaster.onStatusChanged(change("12345678901", CardStatus.APPROVED));
+        broadcaster.onStatusChanged(change("12345678901", CardStatus.IN_PROGRESS));
+        assertEquals(1, broadcaster.getSubscriberCount());
+
+        broadcaster.onStatusChanged(change("12345678901", CardStatus.SHIPPED));
+
+        assertEquals(0, broadcaster.getSubscriberCount());
+        assertEquals(1, broadcaster.getDropped());
+        pendingSends.forEach(Runnable::run);
+        assertTrue(slow.completed);
+    }
+
+    @Test
+    void heartbeat_RemovesSubscriberThatWentAway() {
+        RecordingEmitter gone = subscribe(Set.of(), Set.of(), null);
+        gone.failSends = true;
+
+        broadcaster.heartbeat();
+
+        assertEquals(0, broadcaster.getSubscriberCount());
+        assertEquals(0, broadcaster.getDropped());
+    }
+
+    private CardStatusEventBroadcaster broadcaster(int bufferSize, int historySize, int maxSubscribers,
+                                                   Executor sender) {
+        return new CardStatusEventBroadcaster(bufferSize, historySize, maxSubscribers, Duration.ofMinutes(1), sender) {
+            @Override
+            SseEmitter createEmitter(long timeoutMillis) {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    private RecordingEmitter subscribe(Set<String> oibs, Set<CardStatus> statuses, String lastEventId) {
+        broadcaster.subscribe(oibs, statuses, lastEventId);
+        return emitters.get(emitters.size() - 1);
+    }
+
+    private static CardStatusChangedEvent change(String oib, CardStatus status) {
+        return new CardStatusChangedEvent(oib, status, CHANGED_AT);
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> events = new ArrayList<>();
+        private final List<String> ids = new ArrayList<>();
+        private boolean failSends;
+        private boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failSends) {
+                throw new IOException("Broken pipe");
+            }
+            String id = null;
+            String name = null;
+            CardStatusChangedEvent event = null;
+            for (var part : builder.build()) {
+                Object data = part.getData();
+                if (data instanceof CardStatusChangedEvent changed) {
+                    event = changed;
+                } else {
+                    for (String line : data.toString().split("\n")) {
+                        if (line.startsWith("id:")) {
+                            id = line.substring(3);
+                        } else if (line.startsWith("event:")) {
+                            name = line.substring(6);
+                        }
+                    }
+                }
+            }
+            if (name == null) {
+                return;
+            }
+            ids.add(id);
+            events.add(event != null ? name + " " + event.oib() + " " + event.status() : name);
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}
@@ -2,39 +2,81 @@ package com.rba.creditcardapp.kafka;
 
 import com.rba.creditcardapp.dto.CardStatusUpdate;
 import com.rba.creditcardapp.service.ClientService;
+import com.rba.creditcardapp.service.StatusUpdateOutcome;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class CardStatusConsumerTest {
 
+    private static final String TOPIC = "card-status-topic";
+
     @Mock
     private ClientService clientService;
 
-    @InjectMocks
+    @Mock
+    private CardStatusDeduplicator deduplicator;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private CardStatusConsumer cardStatusConsumer;
 
+    @BeforeEach
+    void setUp() {
+        cardStatusConsumer = new CardStatusConsumer(clientService, deduplicator, meterRegistry);
+    }
+
     @Test
     void receiveCardStatusUpdate_Success() {
         CardStatusUpdate statusUpdate = createValidStatusUpdate();
 
-        cardStatusConsumer.receiveCardStatusUpdate(statusUpdate);
+        when(clientService.applyStatusUpdate(statusUpdate)).thenReturn(StatusUpdateOutcome.APPLIED);
+
+        cardStatusConsumer.receiveCardStatusUpdate(statusUpdate, TOPIC, 0, 0L);
 
-        verify(clientService).updateClientStatus("12345678901", "APPROVED");
+        verify(clientService).applyStatusUpdate(statusUpdate);
+        assertEquals(1, recordCount(CardStatusConsumer.OUTCOME_SUCCESS));
+        assertEquals(1, meterRegistry.get("card.status.consumer.record").tag("topic", TOPIC).timer().count());
     }
 
     @Test
     void receiveCardStatusUpdate_InvalidOib() {
         CardStatusUpdate statusUpdate = new CardStatusUpdate("123", "APPROVED", "Test reason");
 
-        cardStatusConsumer.receiveCardStatusUpdate(statusUpdate);
+        cardStatusConsumer.receiveCardStatusUpdate(statusUpdate, TOPIC, 0, 0L);
 
-        verify(clientService, never()).updateClientStatus(anyString(), anyString());
+        verify(clientService, never()).applyStatusUpdate(any());
+    }
+
+    @Test
+    void isValidStatusUpdate_RejectsNonDigitOib() {
+        assertFalse(cardStatusConsumer.isValidStatusUpdate(
+                new CardStatusUpdate("1234567890A", "APPROVED", "Test reason")));
     }
 
     @Test
@@ -44,24 +86,24 @@ class CardStatusConsumerTest {
         statusUpdate.setStatus(null);
         statusUpdate.setUpdateReason("Test reason");
 
-        cardStatusConsumer.receiveCardStatusUpdate(statusUpdate);
+        cardStatusConsumer.receiveCardStatusUpdate(statusUpdate, TOPIC, 0, 0L);
 
-        verify(clientService, never()).updateClientStatus(anyString(), anyString());
+        verify(clientService, never()).applyStatusUpdate(any());
     }
 
     @Test
     void receiveCardStatusUpdate_InvalidStatusValue() {
         CardStatusUpdate statusUpdate = new CardStatusUpdate("12345678901", "INVALID_STATUS", "Test reason");
 
-        cardStatusConsumer.receiveCardStatusUpdate(statusUpdate);
+        cardStatusConsumer.receiveCardStatusUpdate(statusUpdate, TOPIC, 0, 0L);
 
-        verify(clientService, never()).updateClientStatus(anyString(), anyString());
+        verify(clientService, never()).applyStatusUpdate(any());
     }
 
     @Test
     void receiveCardStatusUpdate_NullUpdate() {
-        cardStatusConsumer.receiveCardStatusUpdate(null);
-        verify(clientService, never()).updateClientStatus(anyString(), anyString());
+        cardStatusConsumer.receiveCardStatusUpdate(null, TOPIC, 0, 0L);
+        verify(clientService, never()).applyStatusUpdate(any());
     }
 
     @Test
@@ -70,12 +112,324 @@ class CardStatusConsumerTest {
 
         doThrow(new RuntimeException("Service error"))
                 .when(clientService)
-                .updateClientStatus("12345678901", "APPROVED");
+                .applyStatusUpdate(statusUpdate);
+
+        // Rethrown so the record is forwarded to the retry topics instead of being lost
+        assertThrows(RuntimeException.class,
+                () -> cardStatusConsumer.receiveCardStatusUpdate(statusUpdate, TOPIC, 0, 0L));
+
+        verify(clientService).applyStatusUpdate(statusUpdate);
+        assertEquals(1, recordCount(CardStatusConsumer.OUTCOME_ERROR));
+    }
+
+    @Test
+    void receiveCardStatusUpdate_IllegalTransitionMarkedProcessed() {
+        CardStatusUpdate statusUpdate = createValidStatusUpdate();
+
+        when(clientService.applyStatusUpdate(statusUpdate)).thenReturn(StatusUpdateOutcome.REJECTED);
+
+        cardStatusConsumer.receiveCardStatusUpdate(statusUpdate, TOPIC, 0, 3L);
+
+        verify(deduplicator).markProcessed(TOPIC, 0, 3L, statusUpdate);
+        assertEquals(1, recordCount(CardStatusConsumer.OUTCOME_REJECTED));
+    }
+
+    @Test
+    void receiveCardStatusUpdate_StaleMarkedProcessed() {
+        CardStatusUpdate statusUpdate = createValidStatusUpdate();
+
+        when(clientService.applyStatusUpdate(statusUpdate)).thenReturn(StatusUpdateOutcome.STALE);
+
+        cardStatusConsumer.receiveCardStatusUpdate(statusUpdate, TOPIC, 0, 4L);
+
+        verify(deduplicator).markProcessed(TOPIC, 0, 4L, statusUpdate);
+        assertEquals(1, recordCount(CardStatusConsumer.OUTCOME_STALE));
+    }
+
+    @Test
+    void receiveCardStatusUpdate_NotFoundMarksOffsetOnly() {
+        CardStatusUpdate statusUpdate = createValidStatusUpdate();
+
+        when(clientService.applyStatusUpdate(statusUpdate)).thenReturn(StatusUpdateOutcome.NOT_FOUND);
+
+        cardStatusConsumer.receiveCardStatusUpdate(statusUpdate, TOPIC, 0, 5L);
+
+        verify(deduplicator, never()).markProcessed(anyString(), anyInt(), anyLong(), any());
+        verify(deduplicator).markOffsetProcessed(TOPIC, 0, 5L);
+        assertEquals(1, recordCount(CardStatusConsumer.OUTCOME_NOT_FOUND));
+    }
+
+    @Test
+    void isValidStatusUpdate_CaseInsensitive() {
+        assertTrue(cardStatusConsumer.isValidStatusUpdate(new CardStatusUpdate("12345678901", "in_progress", "Test")));
+        assertFalse(cardStatusConsumer.isValidStatusUpdate(new CardStatusUpdate("12345678901", "IN-PROGRESS", "Test")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void receiveCardStatusUpdates_CoalescesChainPerOib() {
+        LocalDateTime now = LocalDateTime.now();
+        CardStatusUpdate first = CardStatusUpdate.builder()
+                .oib("12345678901").status("APPROVED").timestamp(now.minusMinutes(2)).build();
+        CardStatusUpdate second = CardStatusUpdate.builder()
+                .oib("12345678901").status("IN_PROGRESS").timestamp(now.minusMinutes(1)).build();
+        CardStatusUpdate third = CardStatusUpdate.builder()
+                .oib("12345678901").status("SHIPPED").timestamp(now).build();
+        CardStatusUpdate other = CardStatusUpdate.builder()
+                .oib("10987654321").status("REJECTED").timestamp(now).build();
+
+        when(clientService.updateClientStatuses(anyCollection())).thenReturn(Map.of(
+                "12345678901", StatusUpdateOutcome.APPLIED,
+                "10987654321", StatusUpdateOutcome.APPLIED));
+
+        // Arrival order differs from issue order
+        receiveBatch(List.of(second, third, first, other));
+
+        ArgumentCaptor<Collection<List<CardStatusUpdate>>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(clientService).updateClientStatuses(captor.capture());
+        assertEquals(List.of(List.of(first, second, third), List.of(other)), new ArrayList<>(captor.getValue()));
+        verify(clientService, never()).applyStatusUpdate(any());
+        assertEquals(2, recordCount(CardStatusConsumer.OUTCOME_SUCCESS));
+        assertEquals(2, recordCount(CardStatusConsumer.OUTCOME_COALESCED));
+        verify(deduplicator).markProcessed(TOPIC, 0, 0L, second);
+        verify(deduplicator).markProcessed(TOPIC, 0, 2L, first);
+    }
+
+    @Test
+    void receiveCardStatusUpdates_InvalidChainAppliedInOrder() {
+        LocalDateTime now = LocalDateTime.now();
+        CardStatusUpdate approved = CardStatusUpdate.builder()
+                .oib("12345678901").status("APPROVED").timestamp(now.minusMinutes(1)).build();
+        // APPROVED cannot move to SHIPPED, so only applying them in order gives the right answer
+        CardStatusUpdate shipped = CardStatusUpdate.builder()
+                .oib("12345678901").status("SHIPPED").timestamp(now).build();
+        CardStatusUpdate other = CardStatusUpdate.builder()
+                .oib("10987654321").status("REJECTED").timestamp(now).build();
+
+        when(clientService.updateClientStatuses(anyCollection()))
+                .thenReturn(Map.of("10987654321", StatusUpdateOutcome.APPLIED));
+        when(clientService.applyStatusUpdate(approved)).thenReturn(StatusUpdateOutcome.APPLIED);
+        when(clientService.applyStatusUpdate(shipped)).thenReturn(StatusUpdateOutcome.REJECTED);
+
+        receiveBatch(List.of(approved, shipped, other));
+
+        verify(clientService).updateClientStatuses(argThat(updates ->
+                new ArrayList<>(updates).equals(List.of(List.of(other)))));
+        InOrder inOrder = inOrder(clientService);
+        inOrder.verify(clientService).applyStatusUpdate(approved);
+        inOrder.verify(clientService).applyStatusUpdate(shipped);
+        assertNull(meterRegistry.find("card.status.consumer.records")
+                .tag("outcome", CardStatusConsumer.OUTCOME_COALESCED).counter());
+        assertEquals(1, recordCount(CardStatusConsumer.OUTCOME_REJECTED));
+    }
+
+    @Test
+    void chain_NullWhenAStepIsNotAValidTransition() {
+        LocalDateTime now = LocalDateTime.now();
+        CardStatusUpdate pending = CardStatusUpdate.builder()
+                .oib("12345678901").status("PENDING").timestamp(now.minusMinutes(2)).build();
+        CardStatusUpdate approved = CardStatusUpdate.builder()
+                .oib("12345678901").status("APPROVED").timestamp(now.minusMinutes(1)).build();
+        CardStatusUpdate inProgress = CardStatusUpdate.builder()
+                .oib("12345678901").status("IN_PROGRESS").timestamp(now).build();
+        CardStatusUpdate rejected = CardStatusUpdate.builder()
+                .oib("12345678901").status("REJECTED").timestamp(now.minusSeconds(30)).build();
+
+        assertEquals(List.of(pending, approved, inProgress),
+                CardStatusConsumer.chain(List.of(inProgress, pending, approved)));
+        assertNull(CardStatusConsumer.chain(List.of(pending, inProgress)));
+        assertNull(CardStatusConsumer.chain(List.of(approved, rejected, inProgress)));
+    }
+
+    @Test
+    void receiveCardStatusUpdates_SkipsInvalidRecords() {
+        CardStatusUpdate valid = createValidStatusUpdate();
+        CardStatusUpdate invalidOib = new CardStatusUpdate("123", "APPROVED", "Test reason");
+        CardStatusUpdate nonDigitOib = new CardStatusUpdate("1234567890A", "APPROVED", "Test reason");
+        CardStatusUpdate invalidStatus = new CardStatusUpdate("10987654321", "INVALID_STATUS", "Test reason");
+
+        when(clientService.updateClientStatuses(anyCollection()))
+                .thenReturn(Map.of("12345678901", StatusUpdateOutcome.APPLIED));
+
+        receiveBatch(Arrays.asList(invalidOib, valid, nonDigitOib, invalidStatus));
+
+        verify(clientService).updateClientStatuses(argThat(updates ->
+                new ArrayList<>(updates).equals(List.of(List.of(valid)))));
+    }
+
+    @Test
+    void receiveCardStatusUpdates_ReportsUnreadableRecordAfterApplyingTheRest() {
+        CardStatusUpdate valid = createValidStatusUpdate();
+        CardStatusUpdate other = new CardStatusUpdate("10987654321", "SHIPPED", "Test reason");
 
-        // Should not throw exception to the caller (should be caught and logged)
-        cardStatusConsumer.receiveCardStatusUpdate(statusUpdate);
+        when(clientService.updateClientStatuses(anyCollection())).thenReturn(Map.of(
+                "12345678901", StatusUpdateOutcome.APPLIED,
+                "10987654321", StatusUpdateOutcome.APPLIED));
+
+        BatchListenerFailedException e = assertThrows(BatchListenerFailedException.class,
+                () -> receiveBatch(Arrays.asList(valid, null, other, null)));
+
+        assertEquals(1, e.getIndex());
+        verify(clientService).updateClientStatuses(argThat(updates ->
+                new ArrayList<>(updates).equals(List.of(List.of(valid), List.of(other)))));
+        verify(deduplicator).markProcessed(TOPIC, 0, 2L, other);
+    }
+
+    @Test
+    void receiveCardStatusUpdates_AllInvalid() {
+        CardStatusUpdate invalidOib = new CardStatusUpdate("123", "APPROVED", "Test reason");
+
+        receiveBatch(List.of(invalidOib));
+
+        verify(clientService, never()).updateClientStatuses(anyCollection());
+    }
+
+    @Test
+    void receiveCardStatusUpdates_ServiceThrowsException_ReportsFailedRecord() {
+        CardStatusUpdate valid = createValidStatusUpdate();
+        CardStatusUpdate failing = new CardStatusUpdate("10987654321", "SHIPPED", "Test reason");
+        CardStatusUpdate after = new CardStatusUpdate("11111111111", "APPROVED", "Test reason");
+
+        when(clientService.updateClientStatuses(anyCollection()))
+                .thenThrow(new RuntimeException("Service error"));
+        when(clientService.applyStatusUpdate(valid)).thenReturn(StatusUpdateOutcome.APPLIED);
+        when(clientService.applyStatusUpdate(failing)).thenThrow(new RuntimeException("Service error"));
+
+        // The error handler commits the record before it and retries only this one
+        BatchListenerFailedException e = assertThrows(BatchListenerFailedException.class,
+                () -> receiveBatch(List.of(valid, failing, after)));
+
+        assertEquals(1, e.getIndex());
+        verify(clientService, never()).applyStatusUpdate(after);
+        verify(deduplicator).markProcessed(TOPIC, 0, 0L, valid);
+        verify(deduplicator, never()).markProcessed(TOPIC, 0, 1L, failing);
+        verify(deduplicator).markForwarded(TOPIC, 0, 1L);
+        assertEquals(1, recordCount(CardStatusConsumer.OUTCOME_SUCCESS));
+        assertEquals(1, recordCount(CardStatusConsumer.OUTCOME_ERROR));
+    }
+
+    @Test
+    void receiveCardStatusUpdates_ServiceThrowsAfterUnreadable_ReportsUnreadableRecord() {
+        CardStatusUpdate failing = createValidStatusUpdate();
+
+        when(clientService.updateClientStatuses(anyCollection()))
+                .thenThrow(new RuntimeException("Service error"));
+        when(clientService.applyStatusUpdate(failing)).thenThrow(new RuntimeException("Service error"));
+
+        BatchListenerFailedException e = assertThrows(BatchListenerFailedException.class,
+                () -> receiveBatch(Arrays.asList(null, failing)));
+
+        assertEquals(0, e.getIndex());
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    }
+
+    @Test
+    void receiveCardStatusUpdate_DuplicateSkipped() {
+        CardStatusUpdate statusUpdate = createValidStatusUpdate();
+
+        when(deduplicator.isDuplicate(TOPIC, 0, 5L, statusUpdate)).thenReturn(true);
+
+        cardStatusConsumer.receiveCardStatusUpdate(statusUpdate, TOPIC, 0, 5L);
+
+        verify(clientService, never()).applyStatusUpdate(any());
+        verify(deduplicator, never()).markProcessed(anyString(), anyInt(), anyLong(), any());
+    }
+
+    @Test
+    void receiveCardStatusUpdate_MarksProcessedOnSuccess() {
+        CardStatusUpdate statusUpdate = createValidStatusUpdate();
+
+        when(clientService.applyStatusUpdate(statusUpdate)).thenReturn(StatusUpdateOutcome.APPLIED);
+
+        cardStatusConsumer.receiveCardStatusUpdate(statusUpdate, TOPIC, 1, 7L);
+
+        verify(clientService).applyStatusUpdate(statusUpdate);
+        verify(deduplicator).markProcessed(TOPIC, 1, 7L, statusUpdate);
+    }
+
+    @Test
+    void receiveCardStatusUpdate_FailureMarkedForwarded() {
+        CardStatusUpdate statusUpdate = createValidStatusUpdate();
+
+        doThrow(new RuntimeException("Service error"))
+                .when(clientService)
+                .applyStatusUpdate(statusUpdate);
+
+        assertThrows(RuntimeException.class,
+                () -> cardStatusConsumer.receiveCardStatusUpdate(statusUpdate, TOPIC, 1, 7L));
+
+        verify(deduplicator, never()).markProcessed(anyString(), anyInt(), anyLong(), any());
+        verify(deduplicator, never()).markKeyProcessed(any());
+        verify(deduplicator).markForwarded(TOPIC, 1, 7L);
+    }
+
+    @Test
+    void receiveDeadLetter_CountsRecord() {
+        cardStatusConsumer.receiveDeadLetter(createValidStatusUpdate(), TOPIC + "-dlt",
+                "Service error".getBytes(StandardCharsets.UTF_8));
+        cardStatusConsumer.receiveDeadLetter(null, TOPIC + "-dlt", null);
+
+        assertEquals(2, meterRegistry.get("card.status.consumer.records")
+                .tag("topic", TOPIC + "-dlt")
+                .tag("outcome", CardStatusConsumer.OUTCOME_DEAD_LETTER)
+                .counter().count());
+        verifyNoInteractions(clientService);
+    }
+
+    @Test
+    void receiveCardStatusUpdates_DuplicatesSkipped() {
+        CardStatusUpdate duplicate = createValidStatusUpdate();
+        CardStatusUpdate fresh = new CardStatusUpdate("10987654321", "SHIPPED", "Test reason");
+
+        when(deduplicator.isDuplicate(TOPIC, 0, 0L, duplicate)).thenReturn(true);
+        when(deduplicator.isDuplicate(TOPIC, 0, 1L, fresh)).thenReturn(false);
+        when(clientService.updateClientStatuses(anyCollection()))
+                .thenReturn(Map.of("10987654321", StatusUpdateOutcome.APPLIED));
+
+        receiveBatch(List.of(duplicate, fresh));
+
+        verify(clientService).updateClientStatuses(argThat(updates ->
+                new ArrayList<>(updates).equals(List.of(List.of(fresh)))));
+        verify(deduplicator).markProcessed(TOPIC, 0, 1L, fresh);
+        verify(deduplicator, never()).markProcessed(TOPIC, 0, 0L, duplicate);
+    }
+
+    @Test
+    void receiveCardStatusUpdates_CountsOutcomes() {
+        CardStatusUpdate applied = createValidStatusUpdate();
+        CardStatusUpdate stale = new CardStatusUpdate("10987654321", "SHIPPED", "Test reason");
+        CardStatusUpdate missing = new CardStatusUpdate("11111111111", "APPROVED", "Test reason");
+
+        when(clientService.updateClientStatuses(anyCollection())).thenReturn(Map.of(
+                "12345678901", StatusUpdateOutcome.APPLIED,
+                "10987654321", StatusUpdateOutcome.STALE,
+                "11111111111", StatusUpdateOutcome.NOT_FOUND));
+
+        receiveBatch(List.of(applied, stale, missing));
+
+        assertEquals(1, recordCount(CardStatusConsumer.OUTCOME_SUCCESS));
+        assertEquals(1, recordCount(CardStatusConsumer.OUTCOME_STALE));
+        assertEquals(1, recordCount(CardStatusConsumer.OUTCOME_NOT_FOUND));
+        verify(deduplicator).markProcessed(TOPIC, 0, 1L, stale);
+        verify(deduplicator, never()).markProcessed(TOPIC, 0, 2L, missing);
+        verify(deduplicator).markOffsetProcessed(TOPIC, 0, 2L);
+    }
+
+    private void receiveBatch(List<CardStatusUpdate> statusUpdates) {
+        List<String> topics = new ArrayList<>();
+        List<Integer> partitions = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        for (long offset = 0; offset < statusUpdates.size(); offset++) {
+            topics.add(TOPIC);
+            partitions.add(0);
+            offsets.add(offset);
+        }
+        cardStatusConsumer.receiveCardStatusUpdates(statusUpdates, topics, partitions, offsets);
+    }
 
-        verify(clientService).updateClientStatus("12345678901", "APPROVED");
+    private double recordCount(String outcome) {
+        return meterRegistry.get("card.status.consumer.records")
+                .tag("topic", TOPIC).tag("outcome", outcome).counter().count();
     }
 
     private CardStatusUpdate createValidStatusUpdate() {
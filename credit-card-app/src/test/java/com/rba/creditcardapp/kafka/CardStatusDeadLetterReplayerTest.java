@@ -0,0 +1,129 @@
+package com.rba.creditcardapp.kafka;
+
+import com.rba.creditcardapp.dto.DeadLetterReplayResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardStatusDeadLetterReplayerTest {
+
+    private static final String TOPIC = "card-status-topic";
+    private static final String DLT = TOPIC + "-dlt";
+    private static final TopicPartition DLT_PARTITION = new TopicPartition(DLT, 0);
+    private static final String VALID = "{\"oib\":\"12345678901\",\"status\":\"APPROVED\"}";
+
+    @Mock
+    private ConsumerFactory<String, byte[]> consumerFactory;
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Stays open after the replay so its committed offsets can be checked
+    private final MockConsumer<String, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST) {
+        @Override
+        public synchronized void close() {
+        }
+    };
+
+    private CardStatusDeadLetterReplayer replayer;
+
+    @BeforeEach
+    void setUp() {
+        consumer.updatePartitions(DLT, List.of(new PartitionInfo(DLT, 0, Node.noNode(), null, null)));
+        consumer.updateBeginningOffsets(Map.of(DLT_PARTITION, 0L));
+        lenient().when(consumerFactory.createConsumer()).thenReturn(consumer);
+        replayer = new CardStatusDeadLetterReplayer(consumerFactory, kafkaTemplate, TOPIC, meterRegistry);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replay_RepublishesWithoutFailureHeaders() {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(new RecordHeader("__TypeId__", "cardStatusUpdate".getBytes(StandardCharsets.UTF_8)));
+        headers.add(new RecordHeader("kafka_dlt-exception-message", "boom".getBytes(StandardCharsets.UTF_8)));
+        headers.add(new RecordHeader("retry_topic-attempts", new byte[] {0, 0, 0, 4}));
+        consumer.schedulePollTask(() -> consumer.addRecord(record(0, VALID, headers)));
+
+        DeadLetterReplayResponse response = replayer.replay(10);
+
+        assertEquals(1, response.getReplayed());
+        assertEquals(0, response.getSkipped());
+        ArgumentCaptor<ProducerRecord<String, Object>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(sent.capture());
+        assertEquals(TOPIC, sent.getValue().topic());
+        assertEquals("12345678901", sent.getValue().key());
+        assertNotNull(sent.getValue().headers().lastHeader("__TypeId__"));
+        assertNull(sent.getValue().headers().lastHeader("kafka_dlt-exception-message"));
+        assertNull(sent.getValue().headers().lastHeader("retry_topic-attempts"));
+        assertEquals(1L, consumer.committed(DLT_PARTITION).offset());
+    }
+
+    @Test
+    void replay_SkipsUnreadableRecords() {
+        consumer.schedulePollTask(() -> consumer.addRecord(record(0, "{not json", new RecordHeaders())));
+
+        DeadLetterReplayResponse response = replayer.replay(10);
+
+        assertEquals(0, response.getReplayed());
+        assertEquals(1, response.getSkipped());
+        verifyNoInteractions(kafkaTemplate);
+        assertEquals(1L, consumer.committed(DLT_PARTITION).offset());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replay_StopsAtMaxAndCommitsOnlyWhatWasReplayed() {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+        consumer.schedulePollTask(() -> {
+            for (int offset = 0; offset < 3; offset++) {
+                consumer.addRecord(record(offset, VALID, new RecordHeaders()));
+            }
+        });
+
+        DeadLetterReplayResponse response = replayer.replay(2);
+
+        assertEquals(2, response.getReplayed());
+        verify(kafkaTemplate, times(2)).send(any(ProducerRecord.class));
+        assertEquals(2L, consumer.committed(DLT_PARTITION).offset());
+    }
+
+    @Test
+    void replay_RejectsNonPositiveMax() {
+        assertThrows(IllegalArgumentException.class, () -> replayer.replay(0));
+    }
+
+    private static ConsumerRecord<String, byte[]> record(long offset, String value, RecordHeaders headers) {
+        return new ConsumerRecord<>(DLT, 0, offset, 0L, TimestampType.CREATE_TIME, 0, 0, "12345678901",
+                value.getBytes(StandardCharsets.UTF_8), headers, Optional.empty());
+    }
+}
@@ -0,0 +1,230 @@
+package com.rba.creditcardapp.kafka;
+
+import com.rba.creditcardapp.dto.CardStatusUpdate;
+import com.rba.creditcardapp.model.ConsumerWatermark;
+import com.rba.creditcardapp.repository.ConsumerWatermarkRepository;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CardStatusDeduplicatorTest {
+
+    private static final String TOPIC = "card-status-topic";
+    private static final String GROUP = "card-status-group";
+    private static final LocalDateTime EVENT_TIME = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Mock
+    private ConsumerWatermarkRepository watermarkRepository;
+
+    private CardStatusDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        when(watermarkRepository.findById(any())).thenReturn(Optional.empty());
+        deduplicator = new CardStatusDeduplicator(watermarkRepository, GROUP, true, 100, 60_000);
+    }
+
+    @Test
+    void isDuplicate_FirstDeliveryIsMiss() {
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 0L, createStatusUpdate("APPROVED")));
+
+        assertEquals(0, deduplicator.getHits());
+        assertEquals(1, deduplicator.getMisses());
+    }
+
+    @Test
+    void isDuplicate_ProducerRetryUnderNewOffset() {
+        CardStatusUpdate statusUpdate = createStatusUpdate("APPROVED");
+        deduplicator.markProcessed(TOPIC, 0, 0L, statusUpdate);
+
+        assertTrue(deduplicator.isDuplicate(TOPIC, 0, 1L, copyOf(statusUpdate)));
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 2L, createStatusUpdate("SHIPPED")));
+
+        assertEquals(1, deduplicator.getHits());
+        assertEquals(1, deduplicator.getMisses());
+    }
+
+    @Test
+    void isDuplicate_RedeliveryBelowWatermark() {
+        deduplicator.markProcessed(TOPIC, 0, 10L, createStatusUpdate("APPROVED"));
+
+        assertTrue(deduplicator.isDuplicate(TOPIC, 0, 9L, createStatusUpdate("REJECTED")));
+        assertFalse(deduplicator.isDuplicate(TOPIC, 1, 9L, createStatusUpdate("REJECTED")));
+    }
+
+    @Test
+    void markKeyProcessed_LeavesWatermarkAlone() {
+        CardStatusUpdate statusUpdate = createStatusUpdate("APPROVED");
+        deduplicator.markKeyProcessed(statusUpdate);
+
+        assertTrue(deduplicator.isDuplicate(TOPIC, 0, 10L, copyOf(statusUpdate)));
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 9L, createStatusUpdate("REJECTED")));
+
+        deduplicator.advanceWatermark(TOPIC, 0, 10L);
+
+        assertTrue(deduplicator.isDuplicate(TOPIC, 0, 9L, createStatusUpdate("REJECTED")));
+    }
+
+    @Test
+    void isDuplicate_FailedRecordNotSuppressed() {
+        CardStatusUpdate statusUpdate = createStatusUpdate("APPROVED");
+
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 0L, statusUpdate));
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 0L, statusUpdate));
+    }
+
+    @Test
+    void markOffsetProcessed_MovesWatermarkButNotKey() {
+        CardStatusUpdate statusUpdate = createStatusUpdate("APPROVED");
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 0L, statusUpdate));
+        deduplicator.markOffsetProcessed(TOPIC, 0, 0L);
+
+        assertTrue(deduplicator.isDuplicate(TOPIC, 0, 0L, statusUpdate));
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 1L, copyOf(statusUpdate)));
+    }
+
+    @Test
+    void markForwarded_RedeliveredRecordLetThrough() {
+        CardStatusUpdate statusUpdate = createStatusUpdate("APPROVED");
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 0L, statusUpdate));
+        deduplicator.markForwarded(TOPIC, 0, 0L);
+
+        // The error handler sought back to it, so it was not forwarded
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 0L, statusUpdate));
+    }
+
+    @Test
+    void markForwarded_WatermarkMovesOnceLaterRecordArrives() {
+        CardStatusUpdate failed = createStatusUpdate("APPROVED");
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 0L, failed));
+        deduplicator.markForwarded(TOPIC, 0, 0L);
+
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 1L, createStatusUpdate("SHIPPED")));
+        deduplicator.markProcessed(TOPIC, 0, 1L, createStatusUpdate("SHIPPED"));
+
+        assertTrue(deduplicator.isDuplicate(TOPIC, 0, 0L, failed));
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 2L, copyOf(failed)));
+        deduplicator.flushWatermarks();
+        verify(watermarkRepository).upsert(GROUP, TOPIC, 0, 1L);
+    }
+
+    @Test
+    void isDuplicate_WatermarkLoadedAfterRestart() {
+        when(watermarkRepository.findById(new ConsumerWatermark.Key(GROUP, TOPIC, 2)))
+                .thenReturn(Optional.of(ConsumerWatermark.builder().lastOffset(42L).build()));
+
+        assertTrue(deduplicator.isDuplicate(TOPIC, 2, 42L, createStatusUpdate("APPROVED")));
+        assertFalse(deduplicator.isDuplicate(TOPIC, 2, 43L, createStatusUpdate("APPROVED")));
+
+        verify(watermarkRepository, times(1)).findById(new ConsumerWatermark.Key(GROUP, TOPIC, 2));
+    }
+
+    @Test
+    void isDuplicate_OldestKeysEvictedWhenFull() {
+        deduplicator = new CardStatusDeduplicator(watermarkRepository, GROUP, true, 2, 60_000);
+        CardStatusUpdate first = createStatusUpdate("APPROVED");
+        deduplicator.markProcessed(TOPIC, 0, 0L, first);
+        deduplicator.markProcessed(TOPIC, 0, 1L, createStatusUpdate("IN_PROGRESS"));
+        deduplicator.markProcessed(TOPIC, 0, 2L, createStatusUpdate("SHIPPED"));
+
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 3L, copyOf(first)));
+    }
+
+    @Test
+    void flushWatermarks_PersistsHighestOffset() {
+        deduplicator.markProcessed(TOPIC, 0, 3L, createStatusUpdate("APPROVED"));
+        deduplicator.markProcessed(TOPIC, 0, 7L, createStatusUpdate("SHIPPED"));
+
+        deduplicator.flushWatermarks();
+        deduplicator.flushWatermarks();
+
+        verify(watermarkRepository, times(1)).upsert(GROUP, TOPIC, 0, 7L);
+    }
+
+    @Test
+    void markProcessed_WatermarkStaysBelowRecordNotApplied() {
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 0L, createStatusUpdate("APPROVED")));
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 1L, createStatusUpdate("IN_PROGRESS")));
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 2L, createStatusUpdate("SHIPPED")));
+
+        deduplicator.markProcessed(TOPIC, 0, 0L, createStatusUpdate("APPROVED"));
+        deduplicator.markProcessed(TOPIC, 0, 2L, createStatusUpdate("SHIPPED"));
+
+        assertTrue(deduplicator.isDuplicate(TOPIC, 0, 0L, createStatusUpdate("REJECTED")));
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 1L, createStatusUpdate("IN_PROGRESS")));
+
+        deduplicator.markProcessed(TOPIC, 0, 1L, createStatusUpdate("IN_PROGRESS"));
+
+        assertTrue(deduplicator.isDuplicate(TOPIC, 0, 2L, createStatusUpdate("REJECTED")));
+    }
+
+    @Test
+    void advanceWatermark_PassesRecordsLetThrough() {
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 0L, createStatusUpdate("APPROVED")));
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 1L, createStatusUpdate("SHIPPED")));
+
+        deduplicator.advanceWatermark(TOPIC, 0, 1L);
+
+        assertTrue(deduplicator.isDuplicate(TOPIC, 0, 1L, createStatusUpdate("REJECTED")));
+    }
+
+    @Test
+    void forget_PersistsWatermarkAndReloadsItOnReassignment() {
+        deduplicator.markProcessed(TOPIC, 0, 5L, createStatusUpdate("APPROVED"));
+
+        deduplicator.forget(List.of(new TopicPartition(TOPIC, 0)));
+
+        verify(watermarkRepository).upsert(GROUP, TOPIC, 0, 5L);
+        when(watermarkRepository.findById(new ConsumerWatermark.Key(GROUP, TOPIC, 0)))
+                .thenReturn(Optional.of(ConsumerWatermark.builder().lastOffset(9L).build()));
+        assertTrue(deduplicator.isDuplicate(TOPIC, 0, 9L, createStatusUpdate("REJECTED")));
+
+        deduplicator.flushWatermarks();
+        verify(watermarkRepository, times(1)).upsert(any(), any(), anyInt(), anyLong());
+    }
+
+    @Test
+    void isDuplicate_Disabled() {
+        deduplicator = new CardStatusDeduplicator(watermarkRepository, GROUP, false, 100, 60_000);
+        CardStatusUpdate statusUpdate = createStatusUpdate("APPROVED");
+        deduplicator.markProcessed(TOPIC, 0, 0L, statusUpdate);
+
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, 0L, statusUpdate));
+        verifyNoInteractions(watermarkRepository);
+    }
+
+    private CardStatusUpdate createStatusUpdate(String status) {
+        return CardStatusUpdate.builder()
+                .oib("12345678901")
+                .status(status)
+                .updateReason("Test reason")
+                .timestamp(EVENT_TIME)
+                .build();
+    }
+
+    private CardStatusUpdate copyOf(CardStatusUpdate statusUpdate) {
+        return CardStatusUpdate.builder()
+                .oib(statusUpdate.getOib())
+                .status(statusUpdate.getStatus())
+                .updateReason(statusUpdate.getUpdateReason())
+                .timestamp(statusUpdate.getTimestamp())
+                .build();
+    }
+}
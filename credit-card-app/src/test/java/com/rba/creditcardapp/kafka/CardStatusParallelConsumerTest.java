@@ -0,0 +1,170 @@
+package com.rba.creditcardapp.kafka;
+
+import com.rba.creditcardapp.dto.CardStatusUpdate;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardStatusParallelConsumerTest {
+
+    private static final String TOPIC = "card-status-topic";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+    @Mock
+    private CardStatusConsumer cardStatusConsumer;
+
+    @Mock
+    private CardStatusDeduplicator deduplicator;
+
+    @Mock
+    private ConsumerRecordRecoverer deadLetterRecoverer;
+
+    private final List<Object> laneKeys = new ArrayList<>();
+    private final List<Runnable> laneTasks = new ArrayList<>();
+
+    private CardStatusParallelConsumer parallelConsumer;
+
+    @BeforeEach
+    void setUp() {
+        KeyOrderedExecutor lanes = new KeyOrderedExecutor("test-lane-", 1, 1) {
+            @Override
+            public void execute(Object key, Runnable task) {
+                laneKeys.add(key);
+                laneTasks.add(task);
+            }
+        };
+        parallelConsumer = new CardStatusParallelConsumer(cardStatusConsumer, deduplicator, deadLetterRecoverer,
+                lanes, new FixedBackOff(0, 1), new FixedBackOff(0, 1), Duration.ofMillis(10));
+    }
+
+    @Test
+    void receiveCardStatusUpdate_DispatchesByOib() {
+        parallelConsumer.receiveCardStatusUpdate(record(0, "12345678901"), mock(Acknowledgment.class));
+        parallelConsumer.receiveCardStatusUpdate(record(1, "10987654321"), mock(Acknowledgment.class));
+
+        assertEquals(List.of("12345678901", "10987654321"), laneKeys);
+        verifyNoInteractions(cardStatusConsumer);
+    }
+
+    @Test
+    void receiveCardStatusUpdate_AcknowledgesOnlyUpToLowestPending() {
+        Acknowledgment first = mock(Acknowledgment.class);
+        Acknowledgment second = mock(Acknowledgment.class);
+        Acknowledgment third = mock(Acknowledgment.class);
+        parallelConsumer.receiveCardStatusUpdate(record(0, "12345678901"), first);
+        parallelConsumer.receiveCardStatusUpdate(record(1, "10987654321"), second);
+        parallelConsumer.receiveCardStatusUpdate(record(2, "11111111111"), third);
+
+        laneTasks.get(2).run();
+        laneTasks.get(1).run();
+
+        verifyNoInteractions(first, second, third);
+        assertEquals(3, parallelConsumer.getUncommitted());
+
+        laneTasks.get(0).run();
+
+        verify(third).acknowledge();
+        verifyNoInteractions(first, second);
+        verify(deduplicator).advanceWatermark(TOPIC, 0, 2L);
+        verify(cardStatusConsumer, times(3)).process(any(), eq(TOPIC), eq(0), anyLong(), eq(false));
+        assertEquals(0, parallelConsumer.getUncommitted());
+    }
+
+    @Test
+    void receiveCardStatusUpdate_RetriesThenDeadLetters() {
+        ConsumerRecord<String, CardStatusUpdate> record = record(0, "12345678901");
+        RuntimeException failure = new RuntimeException("Database unavailable");
+        doThrow(failure).when(cardStatusConsumer).process(record.value(), TOPIC, 0, 0L, false);
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+
+        parallelConsumer.receiveCardStatusUpdate(record, acknowledgment);
+        laneTasks.get(0).run();
+
+        verify(cardStatusConsumer, times(2)).process(record.value(), TOPIC, 0, 0L, false);
+        verify(deadLetterRecoverer).accept(record, failure);
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void receiveCardStatusUpdate_DeadLettersIllegalArgumentRightAway() {
+        ConsumerRecord<String, CardStatusUpdate> record = record(0, "12345678901");
+        IllegalArgumentException failure = new IllegalArgumentException("Invalid OIB");
+        doThrow(failure).when(cardStatusConsumer).process(record.value(), TOPIC, 0, 0L, false);
+
+        parallelConsumer.receiveCardStatusUpdate(record, mock(Acknowledgment.class));
+        laneTasks.get(0).run();
+
+        verify(cardStatusConsumer).process(record.value(), TOPIC, 0, 0L, false);
+        verify(deadLetterRecoverer).accept(record, failure);
+    }
+
+    @Test
+    void onPartitionsRevokedBeforeCommit_ForgetsRecordsStillInLanes() {
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+        parallelConsumer.receiveCardStatusUpdate(record(0, "12345678901"), acknowledgment);
+
+        parallelConsumer.onPartitionsRevokedBeforeCommit(null, List.of(PARTITION));
+        laneTasks.get(0).run();
+
+        assertEquals(0, parallelConsumer.getUncommitted());
+        verifyNoInteractions(acknowledgment, cardStatusConsumer);
+        verify(deduplicator, never()).advanceWatermark(anyString(), anyInt(), anyLong());
+    }
+
+    @Test
+    void receiveCardStatusUpdate_SkipsEarlierRunOfRedeliveredRecord() {
+        ConsumerRecord<String, CardStatusUpdate> record = record(0, "12345678901");
+        Acknowledgment earlier = mock(Acknowledgment.class);
+        Acknowledgment redelivered = mock(Acknowledgment.class);
+        parallelConsumer.receiveCardStatusUpdate(record, earlier);
+        parallelConsumer.receiveCardStatusUpdate(record, redelivered);
+
+        laneTasks.get(0).run();
+        laneTasks.get(1).run();
+
+        verify(cardStatusConsumer, times(1)).process(record.value(), TOPIC, 0, 0L, false);
+        verifyNoInteractions(earlier);
+        verify(redelivered).acknowledge();
+    }
+
+    @Test
+    void receiveCardStatusUpdate_SeeksBackWhenDeadLetteringFails() {
+        ConsumerSeekAware.ConsumerSeekCallback seekCallback = mock(ConsumerSeekAware.ConsumerSeekCallback.class);
+        parallelConsumer.onPartitionsAssigned(Map.of(PARTITION, 0L), seekCallback);
+        ConsumerRecord<String, CardStatusUpdate> record = record(0, "12345678901");
+        RuntimeException failure = new RuntimeException("Database unavailable");
+        doThrow(failure).when(cardStatusConsumer).process(record.value(), TOPIC, 0, 0L, false);
+        doThrow(new RuntimeException("Kafka unavailable")).when(deadLetterRecoverer).accept(record, failure);
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+
+        parallelConsumer.receiveCardStatusUpdate(record, acknowledgment);
+        laneTasks.get(0).run();
+
+        verify(deadLetterRecoverer, times(2)).accept(record, failure);
+        verify(seekCallback).seek(TOPIC, 0, 0L);
+        verifyNoInteractions(acknowledgment);
+        assertEquals(1, parallelConsumer.getUncommitted());
+    }
+
+    private static ConsumerRecord<String, CardStatusUpdate> record(long offset, String oib) {
+        return new ConsumerRecord<>(TOPIC, 0, offset, oib, new CardStatusUpdate(oib, "APPROVED", "Test reason"));
+    }
+}
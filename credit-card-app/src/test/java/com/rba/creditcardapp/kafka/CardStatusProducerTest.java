@@ -0,0 +1,123 @@
+package com.rba.creditcardapp.kafka;
+
+import com.rba.creditcardapp.dto.CardStatusUpdate;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardStatusProducerTest {
+
+    private static final String TOPIC = "card-status-topic";
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CardStatusProducer cardStatusProducer;
+
+    @BeforeEach
+    void setUp() {
+        cardStatusProducer = new CardStatusProducer(kafkaTemplate, TOPIC, meterRegistry);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sendCardStatusUpdate_CompletesOnAck() {
+        CardStatusUpdate statusUpdate = createStatusUpdate("12345678901");
+        SendResult<String, Object> sendResult = mock(SendResult.class);
+
+        when(kafkaTemplate.send(TOPIC, "12345678901", statusUpdate))
+                .thenReturn(CompletableFuture.completedFuture(sendResult));
+
+        CompletableFuture<SendResult<String, Object>> future = cardStatusProducer.sendCardStatusUpdate(statusUpdate);
+
+        assertSame(sendResult, future.join());
+        assertEquals(1, sendCount("SUCCESS"));
+        assertNull(meterRegistry.find("card.status.producer.send").tag("outcome", "FAILURE").timer());
+    }
+
+    @Test
+    void sendCardStatusUpdate_FailureSurfacedToCaller() {
+        CardStatusUpdate statusUpdate = createStatusUpdate("12345678901");
+
+        when(kafkaTemplate.send(TOPIC, "12345678901", statusUpdate))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Broker unavailable")));
+
+        CompletableFuture<SendResult<String, Object>> future = cardStatusProducer.sendCardStatusUpdate(statusUpdate);
+
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(1, sendCount("FAILURE"));
+    }
+
+    @Test
+    void sendCardStatusUpdate_SynchronousSendErrorReturnsFailedFuture() {
+        CardStatusUpdate statusUpdate = createStatusUpdate("12345678901");
+
+        when(kafkaTemplate.send(TOPIC, "12345678901", statusUpdate))
+                .thenThrow(new IllegalStateException("Producer closed"));
+
+        CompletableFuture<SendResult<String, Object>> future = cardStatusProducer.sendCardStatusUpdate(statusUpdate);
+
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(1, sendCount("FAILURE"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sendAll_SendsEveryUpdateWithoutWaiting() {
+        SendResult<String, Object> sendResult = mock(SendResult.class);
+        when(kafkaTemplate.send(eq(TOPIC), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(sendResult));
+
+        List<CardStatusUpdate> statusUpdates = List.of(
+                createStatusUpdate("12345678901"),
+                createStatusUpdate("10987654321"),
+                createStatusUpdate("11223344556"));
+
+        cardStatusProducer.sendAll(statusUpdates).join();
+
+        verify(kafkaTemplate, times(3)).send(eq(TOPIC), any(), any());
+        assertEquals(3, sendCount("SUCCESS"));
+    }
+
+    @Test
+    void sendAll_FailsWhenAnySendFails() {
+        CompletableFuture<SendResult<String, Object>> pending = new CompletableFuture<>();
+        when(kafkaTemplate.send(eq(TOPIC), any(), any()))
+                .thenReturn(pending)
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Broker unavailable")));
+
+        CompletableFuture<Void> result = cardStatusProducer.sendAll(List.of(
+                createStatusUpdate("12345678901"),
+                createStatusUpdate("10987654321")));
+
+        assertFalse(result.isDone());
+        pending.complete(null);
+        assertTrue(result.isCompletedExceptionally());
+    }
+
+    private long sendCount(String outcome) {
+        return meterRegistry.get("card.status.producer.send")
+                .tag("topic", TOPIC).tag("outcome", outcome).timer().count();
+    }
+
+    private CardStatusUpdate createStatusUpdate(String oib) {
+        return new CardStatusUpdate(oib, "APPROVED", "Card production completed");
+    }
+}
@@ -0,0 +1,117 @@
+package com.rba.creditcardapp.kafka;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyOrderedExecutorTest {
+
+    private KeyOrderedExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.shutdown(Duration.ofSeconds(1));
+        }
+    }
+
+    @Test
+    void execute_KeepsOrderPerKey() throws InterruptedException {
+        executor = new KeyOrderedExecutor("test-lane-", 4, 1000);
+        List<String> first = Collections.synchronizedList(new ArrayList<>());
+        List<String> second = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(200);
+
+        for (int i = 0; i < 100; i++) {
+            String value = Integer.toString(i);
+            executor.execute("12345678901", () -> {
+                first.add(value);
+                done.countDown();
+            });
+            executor.execute("10987654321", () -> {
+                second.add(value);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add(Integer.toString(i));
+        }
+        assertEquals(expected, first);
+        assertEquals(expected, second);
+    }
+
+    @Test
+    void execute_RunsDifferentLanesConcurrently() throws InterruptedException {
+        executor = new KeyOrderedExecutor("test-lane-", 2, 10);
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable task = () -> {
+            bothRunning.countDown();
+            awaitQuietly(release);
+        };
+
+        // 0 and 1 hash to different lanes of two
+        executor.execute(0, task);
+        executor.execute(1, task);
+
+        assertTrue(bothRunning.await(5, TimeUnit.SECONDS));
+        assertEquals(2, executor.getQueued());
+        release.countDown();
+    }
+
+    @Test
+    void execute_BlocksWhileLaneIsFull() throws InterruptedException {
+        executor = new KeyOrderedExecutor("test-lane-", 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute("a", () -> awaitQuietly(release));
+
+        Thread submitter = new Thread(() -> {
+            try {
+                executor.execute("b", () -> { });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        submitter.start();
+        submitter.join(200);
+        assertTrue(submitter.isAlive());
+
+        release.countDown();
+        submitter.join(5000);
+        assertFalse(submitter.isAlive());
+    }
+
+    @Test
+    void execute_RejectedAfterShutdown() {
+        executor = new KeyOrderedExecutor("test-lane-", 1, 1);
+        executor.shutdown(Duration.ZERO);
+
+        assertThrows(RejectedExecutionException.class, () -> executor.execute("a", () -> { }));
+        assertEquals(0, executor.getQueued());
+    }
+
+    @Test
+    void constructor_RejectsEmptyLanes() {
+        assertThrows(IllegalArgumentException.class, () -> new KeyOrderedExecutor("test-lane-", 0, 1));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
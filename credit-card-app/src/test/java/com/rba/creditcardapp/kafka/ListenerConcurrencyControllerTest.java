@@ -0,0 +1,199 @@
+package com.rba.creditcardapp.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ListenerConcurrencyControllerTest {
+
+    private static final String TOPIC = "card-status-topic";
+    private static final String LISTENER_ID = "cardStatusListener";
+
+    @Mock
+    private KafkaListenerEndpointRegistry endpointRegistry;
+
+    @Mock
+    private ConcurrentMessageListenerContainer<?, ?> container;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Map<TopicPartition, Long> lag = new HashMap<>();
+    private long now;
+    private boolean lagUnavailable;
+
+    private ListenerConcurrencyController controller;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(endpointRegistry.getListenerContainer(LISTENER_ID)).thenReturn(container);
+        lenient().when(container.isRunning()).thenReturn(true);
+        lenient().when(container.getConcurrency()).thenReturn(1);
+
+        ListenerConcurrencyController.Settings settings = new ListenerConcurrencyController.Settings(
+                LISTENER_ID, TOPIC, "card-status-group", 1, 0, Duration.ofSeconds(60), Duration.ofSeconds(5),
+                2, 2, Duration.ofMinutes(2), Duration.ofSeconds(2), Duration.ofSeconds(30));
+        controller = new ListenerConcurrencyController(endpointRegistry, mock(KafkaAdmin.class), meterRegistry,
+                eventPublisher, () -> now, settings) {
+            @Override
+            Map<TopicPartition, Long> readLag() throws TimeoutException {
+                if (lagUnavailable) {
+                    throw new TimeoutException("Timed out waiting for a node assignment");
+                }
+                return lag;
+            }
+        };
+    }
+
+    @Test
+    void adjust_ScalesUpAfterConsecutiveChecks() {
+        setLag(400);
+        processed(10, Duration.ofMillis(100));
+
+        controller.adjust();
+        verify(container, never()).setConcurrency(anyInt());
+
+        controller.adjust();
+
+        // 1200 records at 100 ms take 120 s on one thread, so two clear them within 60 s
+        verify(container).setConcurrency(2);
+        verify(container).stop();
+        verify(container).start();
+        ListenerConcurrencyChangedEvent event = publishedEvent();
+        assertEquals(ListenerConcurrencyChangedEvent.Action.SCALE_UP, event.action());
+        assertEquals(1, event.fromConcurrency());
+        assertEquals(2, event.toConcurrency());
+        assertEquals(1200, event.lag());
+        assertEquals(1.0, meterRegistry.get("card.status.consumer.autoscale.decisions")
+                .tag("action", "SCALE_UP").counter().count());
+    }
+
+    @Test
+    void adjust_CapsConcurrencyAtPartitionCount() {
+        setLag(100_000);
+        processed(10, Duration.ofMillis(100));
+
+        controller.adjust();
+        controller.adjust();
+
+        verify(container).setConcurrency(3);
+    }
+
+    @Test
+    void adjust_WaitsForCooldownBetweenChanges() {
+        setLag(400);
+        processed(10, Duration.ofMillis(100));
+        controller.adjust();
+        controller.adjust();
+        when(container.getConcurrency()).thenReturn(2);
+        setLag(5000);
+
+        controller.adjust();
+        controller.adjust();
+        verify(container, never()).setConcurrency(3);
+
+        now += TimeUnit.MINUTES.toNanos(2);
+        controller.adjust();
+
+        verify(container).setConcurrency(3);
+    }
+
+    @Test
+    void adjust_ScalesDownOneAtATimeWhenCaughtUp() {
+        when(container.getConcurrency()).thenReturn(3);
+        setLag(0);
+        processed(10, Duration.ofMillis(100));
+
+        controller.adjust();
+        controller.adjust();
+
+        verify(container).setConcurrency(2);
+        assertEquals(ListenerConcurrencyChangedEvent.Action.SCALE_DOWN, publishedEvent().action());
+    }
+
+    @Test
+    void adjust_PausesWhenRecordsAreSlowAndResumesLater() {
+        setLag(1000);
+        processed(10, Duration.ofSeconds(3));
+
+        controller.adjust();
+
+        verify(container).pause();
+        verify(container, never()).setConcurrency(anyInt());
+        when(container.isPauseRequested()).thenReturn(true);
+
+        now += TimeUnit.SECONDS.toNanos(10);
+        controller.adjust();
+        verify(container, never()).resume();
+
+        now += TimeUnit.SECONDS.toNanos(20);
+        controller.adjust();
+
+        verify(container).resume();
+        assertEquals(ListenerConcurrencyChangedEvent.Action.RESUME, publishedEvent().action());
+    }
+
+    @Test
+    void adjust_SkipsCheckWhenLagCannotBeRead() {
+        lagUnavailable = true;
+
+        controller.adjust();
+        controller.adjust();
+
+        verify(container, never()).setConcurrency(anyInt());
+        verify(container, never()).pause();
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void constructor_RejectsParallelListener() {
+        ListenerConcurrencyController.Settings settings = new ListenerConcurrencyController.Settings(
+                CardStatusParallelConsumer.LISTENER_ID, TOPIC, "card-status-group", 1, 0, Duration.ofSeconds(60),
+                Duration.ofSeconds(5), 2, 2, Duration.ofMinutes(2), Duration.ofSeconds(2), Duration.ofSeconds(30));
+
+        assertThrows(IllegalArgumentException.class, () -> new ListenerConcurrencyController(endpointRegistry,
+                mock(KafkaAdmin.class), meterRegistry, eventPublisher, () -> now, settings));
+    }
+
+    private void setLag(long perPartition) {
+        for (int partition = 0; partition < 3; partition++) {
+            lag.put(new TopicPartition(TOPIC, partition), perPartition);
+        }
+    }
+
+    private void processed(int records, Duration perRecord) {
+        for (int i = 0; i < records; i++) {
+            meterRegistry.timer("card.status.consumer.record", "topic", TOPIC).record(perRecord);
+        }
+        meterRegistry.counter("card.status.consumer.records", "topic", TOPIC, "outcome", "APPLIED")
+                .increment(records);
+    }
+
+    private ListenerConcurrencyChangedEvent publishedEvent() {
+        ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, atLeastOnce()).publishEvent(event.capture());
+        return (ListenerConcurrencyChangedEvent) event.getValue();
+    }
+}
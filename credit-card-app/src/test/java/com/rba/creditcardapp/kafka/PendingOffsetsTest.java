@@ -0,0 +1,83 @@
+package com.rba.creditcardapp.kafka;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PendingOffsetsTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("card-status-topic", 0);
+    private static final TopicPartition OTHER = new TopicPartition("card-status-topic", 1);
+
+    private final PendingOffsets<String> pending = new PendingOffsets<>();
+
+    @Test
+    void complete_CommitsOnlyUpToLowestPending() {
+        pending.add(PARTITION, 5L, "a");
+        pending.add(PARTITION, 6L, "b");
+        pending.add(PARTITION, 8L, "c");
+
+        assertNull(pending.complete(PARTITION, 8L, "c"));
+        assertNull(pending.complete(PARTITION, 6L, "b"));
+        assertEquals(3, pending.size());
+
+        PendingOffsets.Completed<String> committable = pending.complete(PARTITION, 5L, "a");
+
+        assertEquals(8L, committable.offset());
+        assertEquals("c", committable.value());
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    void complete_PartitionsAreIndependent() {
+        pending.add(PARTITION, 0L, "a");
+        pending.add(OTHER, 0L, "b");
+
+        assertEquals(0L, pending.complete(OTHER, 0L, "b").offset());
+        assertEquals(1, pending.size());
+    }
+
+    @Test
+    void complete_IgnoresRunFromBeforeRebalance() {
+        pending.add(PARTITION, 5L, "old");
+        pending.remove(List.of(PARTITION));
+        pending.add(PARTITION, 5L, "new");
+
+        assertNull(pending.complete(PARTITION, 5L, "old"));
+        assertEquals(5L, pending.complete(PARTITION, 5L, "new").offset());
+    }
+
+    @Test
+    void isPending_FalseOnceDoneRemovedOrHandedOutAgain() {
+        pending.add(PARTITION, 5L, "first");
+        pending.add(PARTITION, 6L, "second");
+        assertTrue(pending.isPending(PARTITION, 5L, "first"));
+
+        pending.add(PARTITION, 5L, "again");
+        assertFalse(pending.isPending(PARTITION, 5L, "first"));
+
+        pending.complete(PARTITION, 6L, "second");
+        assertFalse(pending.isPending(PARTITION, 6L, "second"));
+
+        pending.remove(List.of(PARTITION));
+        assertFalse(pending.isPending(PARTITION, 5L, "again"));
+    }
+
+    @Test
+    void awaitDone_WaitsForRevokedPartitionsOnly() throws InterruptedException {
+        pending.add(PARTITION, 0L, "a");
+        pending.add(OTHER, 0L, "b");
+
+        assertFalse(pending.awaitDone(List.of(PARTITION), Duration.ofMillis(20)));
+
+        Thread completer = new Thread(() -> pending.complete(PARTITION, 0L, "a"));
+        completer.start();
+
+        assertTrue(pending.awaitDone(List.of(PARTITION), Duration.ofSeconds(5)));
+        assertEquals(1, pending.size());
+    }
+}
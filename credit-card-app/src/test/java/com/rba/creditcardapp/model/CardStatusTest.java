@@ -0,0 +1,78 @@
+package com.rba.creditcardapp.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardStatusTest {
+
+    @Test
+    void findsEveryStatusIgnoringCaseAndWhitespace() {
+        for (CardStatus status : CardStatus.values()) {
+            assertSame(status, CardStatus.find(status.name()));
+            assertSame(status, CardStatus.find(status.name().toLowerCase()));
+            assertSame(status, CardStatus.find("  " + status.name() + "\t"));
+        }
+        assertSame(CardStatus.IN_PROGRESS, CardStatus.find("In_Progress"));
+    }
+
+    @Test
+    void unknownValuesAreNotFound() {
+        assertNull(CardStatus.find(null));
+        assertNull(CardStatus.find(""));
+        assertNull(CardStatus.find("   "));
+        assertNull(CardStatus.find("LOST"));
+        assertNull(CardStatus.find("PENDINGS"));
+        assertNull(CardStatus.find("PENDIN"));
+        assertNull(CardStatus.find("IN PROGRESS"));
+    }
+
+    @Test
+    void parseRejectsUnknownValues() {
+        assertSame(CardStatus.SHIPPED, CardStatus.parse("shipped"));
+        assertThrows(IllegalArgumentException.class, () -> CardStatus.parse("LOST"));
+        assertThrows(IllegalArgumentException.class, () -> CardStatus.parse(null));
+    }
+
+    @Test
+    void codesRoundTrip() {
+        for (CardStatus status : CardStatus.values()) {
+            assertSame(status, CardStatus.fromCode(status.getCode()));
+        }
+        assertThrows(IllegalArgumentException.class, () -> CardStatus.fromCode(-1));
+        assertThrows(IllegalArgumentException.class, () -> CardStatus.fromCode(CardStatus.values().length));
+    }
+
+    @Test
+    void followsLifecycle() {
+        assertTrue(CardStatus.PENDING.canTransitionTo(CardStatus.APPROVED));
+        assertTrue(CardStatus.APPROVED.canTransitionTo(CardStatus.IN_PROGRESS));
+        assertTrue(CardStatus.IN_PROGRESS.canTransitionTo(CardStatus.SHIPPED));
+        assertTrue(CardStatus.SHIPPED.canTransitionTo(CardStatus.COMPLETED));
+        assertTrue(CardStatus.IN_PROGRESS.canTransitionTo(CardStatus.REJECTED));
+
+        assertFalse(CardStatus.PENDING.canTransitionTo(CardStatus.SHIPPED));
+        assertFalse(CardStatus.SHIPPED.canTransitionTo(CardStatus.PENDING));
+        assertFalse(CardStatus.SHIPPED.canTransitionTo(CardStatus.REJECTED));
+        assertFalse(CardStatus.REJECTED.canTransitionTo(CardStatus.APPROVED));
+        assertTrue(CardStatus.COMPLETED.isFinal());
+        assertTrue(CardStatus.REJECTED.isFinal());
+    }
+
+    @Test
+    void sameStatusIsAlwaysAllowed() {
+        for (CardStatus status : CardStatus.values()) {
+            assertTrue(status.canTransitionTo(status));
+        }
+    }
+
+    @Test
+    void allowedFromMaskMatchesTransitions() {
+        for (CardStatus from : CardStatus.values()) {
+            for (CardStatus to : CardStatus.values()) {
+                boolean allowedByMask = (to.getAllowedFromMask() & (1 << from.getCode())) != 0;
+                assertEquals(from.canTransitionTo(to), allowedByMask, from + " -> " + to);
+            }
+        }
+    }
+}
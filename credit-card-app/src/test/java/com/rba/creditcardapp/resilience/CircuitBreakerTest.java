@@ -0,0 +1,115 @@
+package com.rba.creditcardapp.resilience;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<CircuitBreakerStateChangedEvent> events = new ArrayList<>();
+
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreaker = new CircuitBreaker("test", 4, 4, 50, Duration.ofSeconds(10), 2,
+                events::add, clock::get);
+    }
+
+    @Test
+    void staysClosedBelowMinimumCalls() {
+        fail(3);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void opensAtFailureRateThreshold() {
+        succeed(2);
+        fail(2);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        assertEquals(1, circuitBreaker.getNotPermittedCalls());
+        assertEquals(List.of(CircuitBreaker.State.OPEN), events.stream().map(CircuitBreakerStateChangedEvent::to).toList());
+    }
+
+    @Test
+    void slidingWindowForgetsOldFailures() {
+        fail(1);
+        succeed(3);
+        // Window is now [fail, ok, ok, ok]; the next success pushes the failure out
+        succeed(1);
+        fail(1);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(25.0, circuitBreaker.getFailureRate());
+    }
+
+    @Test
+    void halfOpenProbesCloseTheBreaker() {
+        fail(4);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        assertTrue(circuitBreaker.isCallPermitted());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        // Only two probes at a time
+        assertFalse(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(1, circuitBreaker.getTransitionCount(CircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    void failedProbeReopensTheBreaker() {
+        fail(4);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onError();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.isCallPermitted());
+        assertEquals(2, circuitBreaker.getTransitionCount(CircuitBreaker.State.OPEN));
+    }
+
+    @Test
+    void releasedProbePermitCanBeReused() {
+        fail(4);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.releasePermission();
+
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    private void succeed(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onError();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.rba.creditcardapp.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgedCallTest {
+
+    @Test
+    void fastCall_IsNotHedged() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+
+        HedgedCall<String> call = HedgedCall.start(() -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.completedFuture("ok");
+        }, Duration.ofMillis(50));
+
+        assertEquals("ok", call.result().get(1, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(1, attempts.get());
+        assertFalse(call.isHedged());
+    }
+
+    @Test
+    void slowCall_BackupWins() throws Exception {
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        AtomicInteger attempts = new AtomicInteger();
+
+        HedgedCall<String> call = HedgedCall.start(() -> attempts.incrementAndGet() == 1
+                ? slow
+                : CompletableFuture.completedFuture("backup"), Duration.ofMillis(20));
+
+        assertEquals("backup", call.result().get(1, TimeUnit.SECONDS));
+        assertTrue(call.isHedged());
+        assertTrue(call.isWonByHedge());
+    }
+
+    @Test
+    void failureBeforeDelay_FailsWithoutHedging() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+
+        HedgedCall<String> call = HedgedCall.start(() -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalStateException("down"));
+        }, Duration.ofMillis(20));
+
+        CompletionException exception = assertThrows(CompletionException.class, () -> call.result().join());
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+        Thread.sleep(60);
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void bothAttemptsFail_FailsOnceNoneIsLeft() throws Exception {
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        AtomicInteger attempts = new AtomicInteger();
+
+        HedgedCall<String> call = HedgedCall.start(() -> attempts.incrementAndGet() == 1
+                ? slow
+                : CompletableFuture.failedFuture(new IllegalStateException("backup down")), Duration.ofMillis(20));
+
+        while (attempts.get() < 2) {
+            Thread.sleep(5);
+        }
+        // The primary is still running, so the backup failure alone does not fail the call
+        assertFalse(call.result().isDone());
+
+        slow.completeExceptionally(new IllegalStateException("primary down"));
+
+        assertTrue(call.result().isCompletedExceptionally());
+    }
+}
@@ -0,0 +1,203 @@
+package com.rba.creditcardapp.service;
+
+import com.rba.creditcardapp.exception.ExternalApiException;
+import com.rba.creditcardapp.exception.ExternalApiRejectedException;
+import com.rba.creditcardapp.model.CardRequestOutbox;
+import com.rba.creditcardapp.repository.CardRequestOutboxRepository;
+import com.rba.creditcardapp.resilience.CircuitBreaker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardRequestOutboxDispatcherTest {
+
+    @Mock
+    private CardRequestOutboxRepository outboxRepository;
+
+    @Mock
+    private ExternalApiClientService externalApiClientService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CircuitBreaker circuitBreaker;
+
+    private CardRequestOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreaker = new CircuitBreaker("test", 2, 2, 50, Duration.ofMinutes(1), 1, null);
+        lenient().when(externalApiClientService.getCircuitBreaker()).thenReturn(circuitBreaker);
+        dispatcher = new CardRequestOutboxDispatcher(outboxRepository, externalApiClientService, transactionManager,
+                true, 2, 3, Duration.ofSeconds(1), Duration.ofSeconds(3));
+    }
+
+    @Test
+    void dispatch_MarksSentEntries() {
+        CardRequestOutbox entry = entry("12345678901", 0);
+        when(outboxRepository.lockNextBatch(2)).thenReturn(List.of(entry));
+        when(externalApiClientService.sendCardRequestAsync(any(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+
+        dispatcher.dispatch();
+
+        verify(externalApiClientService).sendCardRequestAsync(
+                argThat(request -> request.getOib().equals("12345678901")), eq("card-request-12345678901"));
+        verify(outboxRepository).saveAll(List.of(entry));
+        assertEquals(CardRequestOutbox.Status.SENT, entry.getStatus());
+        assertEquals(1, entry.getAttempts());
+        assertNotNull(entry.getSentAt());
+        assertEquals(1, dispatcher.getSent());
+    }
+
+    @Test
+    void dispatch_FailedSend_SchedulesRetryWithBackoff() {
+        CardRequestOutbox entry = entry("12345678901", 1);
+        when(outboxRepository.lockNextBatch(2)).thenReturn(List.of(entry));
+        when(externalApiClientService.sendCardRequestAsync(any(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new ExternalApiException("503")));
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatch();
+
+        assertEquals(CardRequestOutbox.Status.PENDING, entry.getStatus());
+        assertEquals(2, entry.getAttempts());
+        assertEquals("503", entry.getLastError());
+        assertFalse(entry.getNextAttemptAt().isBefore(before.plusSeconds(2)));
+        assertEquals(1, dispatcher.getRetried());
+    }
+
+    @Test
+    void dispatch_LastAttemptFails_MarksFailed() {
+        CardRequestOutbox entry = entry("12345678901", 2);
+        when(outboxRepository.lockNextBatch(2)).thenReturn(List.of(entry));
+        when(externalApiClientService.sendCardRequestAsync(any(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new ExternalApiException("503")));
+
+        dispatcher.dispatch();
+
+        assertEquals(CardRequestOutbox.Status.FAILED, entry.getStatus());
+        assertEquals(1, dispatcher.getFailed());
+    }
+
+    @Test
+    void dispatch_FullBatch_PollsAgain() {
+        when(outboxRepository.lockNextBatch(2))
+                .thenReturn(List.of(entry("12345678901", 0), entry("12345678902", 0)))
+                .thenReturn(List.of());
+        when(externalApiClientService.sendCardRequestAsync(any(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+
+        dispatcher.dispatch();
+
+        verify(outboxRepository, times(2)).lockNextBatch(2);
+        verify(externalApiClientService, times(2)).sendCardRequestAsync(any(), anyString());
+    }
+
+    @Test
+    void dispatch_Rejected_DefersWithoutUsingAttempt() {
+        CardRequestOutbox entry = entry("12345678901", 1);
+        when(outboxRepository.lockNextBatch(2)).thenReturn(List.of(entry));
+        when(externalApiClientService.sendCardRequestAsync(any(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new ExternalApiRejectedException("bulkhead full")));
+
+        dispatcher.dispatch();
+
+        assertEquals(CardRequestOutbox.Status.PENDING, entry.getStatus());
+        assertEquals(1, entry.getAttempts());
+        assertEquals(1, dispatcher.getDeferred());
+        assertEquals(0, dispatcher.getRetried());
+    }
+
+    @Test
+    void dispatch_CircuitOpensDuringFullBatch_StopsAndDefers() {
+        CardRequestOutbox first = entry("12345678901", 0);
+        CardRequestOutbox second = entry("12345678902", 0);
+        when(outboxRepository.lockNextBatch(2)).thenReturn(List.of(first, second));
+        when(externalApiClientService.sendCardRequestAsync(any(), anyString()))
+                .thenAnswer(invocation -> {
+                    circuitBreaker.onError();
+                    return CompletableFuture.failedFuture(new ExternalApiException("503"));
+                })
+                .thenAnswer(invocation -> {
+                    circuitBreaker.onError();
+                    return CompletableFuture.failedFuture(new ExternalApiRejectedException("Circuit breaker is OPEN"));
+                });
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatch();
+
+        verify(outboxRepository, times(1)).lockNextBatch(2);
+        assertEquals(1, first.getAttempts());
+        assertEquals(0, second.getAttempts());
+        assertFalse(second.getNextAttemptAt().isBefore(before.plusSeconds(1)));
+        assertEquals(1, dispatcher.getDeferred());
+    }
+
+    @Test
+    void dispatch_RejectedBatch_DoesNotPollAgain() {
+        when(outboxRepository.lockNextBatch(2))
+                .thenReturn(List.of(entry("12345678901", 0), entry("12345678902", 0)));
+        when(externalApiClientService.sendCardRequestAsync(any(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new ExternalApiRejectedException("bulkhead full")));
+
+        dispatcher.dispatch();
+
+        verify(outboxRepository, times(1)).lockNextBatch(2);
+        assertEquals(2, dispatcher.getDeferred());
+    }
+
+    @Test
+    void dispatch_CircuitOpen_LeavesOutboxUntouched() {
+        circuitBreaker.onError();
+        circuitBreaker.onError();
+
+        dispatcher.dispatch();
+
+        verify(outboxRepository, never()).lockNextBatch(anyInt());
+    }
+
+    @Test
+    void dispatch_Disabled_DoesNothing() {
+        dispatcher = new CardRequestOutboxDispatcher(outboxRepository, externalApiClientService, transactionManager,
+                false, 2, 3, Duration.ofSeconds(1), Duration.ofSeconds(3));
+
+        dispatcher.dispatch();
+
+        verify(outboxRepository, never()).lockNextBatch(anyInt());
+    }
+
+    @Test
+    void backoff_DoublesUpToMax() {
+        assertEquals(Duration.ofSeconds(1), dispatcher.backoff(1));
+        assertEquals(Duration.ofSeconds(2), dispatcher.backoff(2));
+        assertEquals(Duration.ofSeconds(3), dispatcher.backoff(3));
+        assertEquals(Duration.ofSeconds(3), dispatcher.backoff(40));
+    }
+
+    private static CardRequestOutbox entry(String oib, int attempts) {
+        return CardRequestOutbox.builder()
+                .id(Long.valueOf(oib))
+                .oib(oib)
+                .firstName("Ivan")
+                .lastName("Horvat")
+                .cardStatus("PENDING")
+                .attempts(attempts)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
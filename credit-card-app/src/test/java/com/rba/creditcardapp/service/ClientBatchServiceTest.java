@@ -0,0 +1,190 @@
+package com.rba.creditcardapp.service;
+
+import com.rba.creditcardapp.cache.ClientCache;
+import com.rba.creditcardapp.dto.BatchItemResult;
+import com.rba.creditcardapp.dto.BatchRegistrationResponse;
+import com.rba.creditcardapp.dto.ClientRequest;
+import com.rba.creditcardapp.dto.ClientResponse;
+import com.rba.creditcardapp.dto.PurgeResponse;
+import com.rba.creditcardapp.model.Client;
+import com.rba.creditcardapp.repository.CardRequestOutboxRepository;
+import com.rba.creditcardapp.repository.ClientRepository;
+import com.rba.creditcardapp.utils.ClientMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClientBatchServiceTest {
+
+    @Mock
+    private ClientRepository clientRepository;
+
+    @Mock
+    private CardRequestOutboxRepository outboxRepository;
+
+    private ClientCache clientCache;
+
+    private ClientBatchService clientBatchService;
+
+    @BeforeEach
+    void setUp() {
+        clientCache = new ClientCache(true, 100, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        clientBatchService = new ClientBatchService(clientRepository, outboxRepository, new ClientMapper(), clientCache,
+                Validation.buildDefaultValidatorFactory().getValidator(), 3, 2);
+    }
+
+    @Test
+    void registerClients_ReportsOutcomePerItem() {
+        List<ClientRequest> requests = List.of(
+                request("12345678901"),
+                request("123"),
+                request("12345678901"),
+                request("98765432109"),
+                request("11111111111"));
+        clientBatchService = new ClientBatchService(clientRepository, outboxRepository, new ClientMapper(), clientCache,
+                Validation.buildDefaultValidatorFactory().getValidator(), 10, 2);
+
+        // 98765432109 is registered already, possibly by a concurrent request
+        when(clientRepository.insertAll(anyList())).thenAnswer(invocation -> {
+            List<Client> clients = invocation.getArgument(0);
+            List<Client> inserted = new ArrayList<>();
+            long id = 100;
+            for (Client client : clients) {
+                if (!client.getOib().equals("98765432109")) {
+                    client.setId(id++);
+                    inserted.add(client);
+                }
+            }
+            return inserted;
+        });
+
+        BatchRegistrationResponse response = clientBatchService.registerClients(requests);
+
+        assertEquals(5, response.getTotal());
+        assertEquals(2, response.getCreated());
+        assertEquals(2, response.getDuplicates());
+        assertEquals(1, response.getInvalid());
+
+        List<BatchItemResult> items = response.getItems();
+        assertEquals(BatchItemResult.Status.CREATED, items.get(0).getStatus());
+        assertEquals(100L, items.get(0).getId());
+        assertEquals(BatchItemResult.Status.INVALID, items.get(1).getStatus());
+        assertTrue(items.get(1).getMessage().contains("oib"));
+        assertEquals(BatchItemResult.Status.DUPLICATE, items.get(2).getStatus());
+        assertEquals(BatchItemResult.Status.DUPLICATE, items.get(3).getStatus());
+        assertTrue(items.get(3).getMessage().contains("already exists"));
+        assertEquals(BatchItemResult.Status.CREATED, items.get(4).getStatus());
+        assertEquals(101L, items.get(4).getId());
+
+        verify(clientRepository).insertAll(argThat(clients -> clients.stream().map(Client::getOib).toList()
+                .equals(List.of("12345678901", "98765432109", "11111111111"))));
+        verify(clientRepository, never()).save(any());
+    }
+
+    @Test
+    void registerClients_InvalidatesCachedMisses() {
+        clientCache.get("12345678901", oib -> Optional.<ClientResponse>empty());
+        when(clientRepository.insertAll(anyList())).thenAnswer(invocation -> {
+            List<Client> clients = invocation.getArgument(0);
+            clients.forEach(client -> client.setId(1L));
+            return clients;
+        });
+
+        clientBatchService.registerClients(List.of(request("12345678901")));
+
+        assertEquals(0, clientCache.getNativeCache().asMap().size());
+    }
+
+    @Test
+    void registerClients_AllRejected_SkipsInsert() {
+        BatchRegistrationResponse response = clientBatchService.registerClients(List.of(request("1")));
+
+        assertEquals(1, response.getInvalid());
+        verify(clientRepository, never()).insertAll(anyList());
+    }
+
+    @Test
+    void registerClients_TooLarge_ThrowsException() {
+        List<ClientRequest> requests = List.of(request("12345678901"), request("12345678902"),
+                request("12345678903"), request("12345678904"));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> clientBatchService.registerClients(requests));
+
+        assertEquals("Batch must not contain more than 3 clients", exception.getMessage());
+        verifyNoInteractions(clientRepository);
+    }
+
+    @Test
+    void registerClients_Empty_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> clientBatchService.registerClients(List.of()));
+    }
+
+    @Test
+    void purgeClients_DeletesInChunks() {
+        clientBatchService = new ClientBatchService(clientRepository, outboxRepository, new ClientMapper(), clientCache,
+                Validation.buildDefaultValidatorFactory().getValidator(), 10, 2);
+        clientCache.put(ClientResponse.builder().oib("12345678901").build());
+
+        when(clientRepository.deleteByOibs(new String[]{"12345678901", "98765432109"}))
+                .thenReturn(List.of("12345678901"));
+        when(clientRepository.deleteByOibs(new String[]{"11111111111"}))
+                .thenReturn(List.of("11111111111"));
+        when(outboxRepository.deleteByOibs(new String[]{"12345678901", "98765432109"})).thenReturn(2);
+        when(outboxRepository.deleteByOibs(new String[]{"11111111111"})).thenReturn(0);
+
+        PurgeResponse response = clientBatchService.purgeClients(
+                List.of("12345678901", "98765432109", "12345678901", "11111111111"));
+
+        assertEquals(3, response.getRequested());
+        assertEquals(2, response.getDeleted());
+        assertEquals(List.of("98765432109"), response.getNotFound());
+        assertEquals(2, response.getCardRequestsDeleted());
+        verify(clientRepository, times(2)).deleteByOibs(any());
+        verify(outboxRepository, times(2)).deleteByOibs(any());
+        assertNull(clientCache.getNativeCache().getIfPresent("12345678901"));
+    }
+
+    @Test
+    void purgeClients_InvalidOib_ThrowsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> clientBatchService.purgeClients(List.of("12345678901", "123")));
+
+        verifyNoInteractions(clientRepository, outboxRepository);
+    }
+
+    @Test
+    void purgeClients_TooLarge_ThrowsException() {
+        List<String> oibs = List.of("12345678901", "12345678902", "12345678903", "12345678904");
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> clientBatchService.purgeClients(oibs));
+
+        assertEquals("Purge must not contain more than 3 OIBs", exception.getMessage());
+        verifyNoInteractions(clientRepository, outboxRepository);
+    }
+
+    private static ClientRequest request(String oib) {
+        return ClientRequest.builder()
+                .firstName("Ivan")
+                .lastName("Horvat")
+                .oib(oib)
+                .cardStatus("PENDING")
+                .build();
+    }
+}
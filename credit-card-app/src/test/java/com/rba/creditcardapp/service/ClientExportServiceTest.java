@@ -0,0 +1,135 @@
+package com.rba.creditcardapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.rba.creditcardapp.model.CardStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ClientExportServiceTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2025, 3, 1, 10, 15, 30);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private ClientExportService clientExportService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        clientExportService = new ClientExportService(jdbcTemplate, transactionManager, objectMapper, 500,
+                Duration.ofMinutes(30));
+
+        when(resultSet.getLong("id")).thenReturn(1L, 2L);
+        when(resultSet.getString("first_name")).thenReturn("Ivo", "Ana, Marija");
+        when(resultSet.getString("last_name")).thenReturn("Ivic", "Anic \"Ana\"");
+        when(resultSet.getString("oib")).thenReturn("12345678901", "72384659863");
+        when(resultSet.getShort("card_status")).thenReturn((short) 0, (short) 2);
+        when(resultSet.getTimestamp("instm")).thenReturn(Timestamp.valueOf(CREATED));
+        when(resultSet.getTimestamp("updtm")).thenReturn(null);
+
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(resultSet);
+            handler.processRow(resultSet);
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void export_Ndjson() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = clientExportService.export(ClientExportService.ExportFormat.NDJSON, null, null, null, out);
+
+        assertEquals(2, rows);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,\"firstName\":\"Ivo\""));
+        assertTrue(lines[0].contains("\"createdAt\":\"2025-03-01 10:15:30\""));
+        assertTrue(lines[1].contains("\"oib\":\"72384659863\""));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void export_CsvQuotesSpecialCharacters() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        clientExportService.export(ClientExportService.ExportFormat.CSV, null, null, null, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("id,firstName,lastName,oib,cardStatus,createdAt,updatedAt", lines[0]);
+        assertEquals("1,Ivo,Ivic,12345678901,PENDING,2025-03-01 10:15:30,", lines[1]);
+        assertEquals("2,\"Ana, Marija\",\"Anic \"\"Ana\"\"\",72384659863,REJECTED,2025-03-01 10:15:30,", lines[2]);
+    }
+
+    @Test
+    void export_CsvDefusesFormulas() throws Exception {
+        when(resultSet.getString("first_name")).thenReturn("=HYPERLINK(\"http://x\")", "@SUM(A1)");
+        when(resultSet.getString("last_name")).thenReturn("+Ivic", "-Anic");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        clientExportService.export(ClientExportService.ExportFormat.CSV, null, null, null, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("1,\"'=HYPERLINK(\"\"http://x\"\")\",'+Ivic,12345678901,PENDING,2025-03-01 10:15:30,", lines[1]);
+        assertEquals("2,'@SUM(A1),'-Anic,72384659863,REJECTED,2025-03-01 10:15:30,", lines[2]);
+    }
+
+    @Test
+    void export_FiltersBoundAndFetchSizeSet() throws Exception {
+        ArgumentCaptor<PreparedStatementCreator> creator = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(any())).thenReturn(statement);
+
+        clientExportService.export(ClientExportService.ExportFormat.CSV, CardStatus.APPROVED,
+                CREATED, CREATED.plusDays(1), new ByteArrayOutputStream());
+
+        verify(jdbcTemplate).query(creator.capture(), any(RowCallbackHandler.class));
+        creator.getValue().createPreparedStatement(connection);
+
+        verify(connection).prepareStatement(
+                "SELECT id, first_name, last_name, oib, card_status, instm, updtm FROM clients WHERE 1 = 1"
+                        + " AND card_status = ? AND instm >= ? AND instm < ? ORDER BY id");
+        verify(statement).setFetchSize(500);
+        verify(statement).setObject(1, (short) 1);
+        verify(statement).setObject(2, Timestamp.valueOf(CREATED));
+        verify(statement).setObject(3, Timestamp.valueOf(CREATED.plusDays(1)));
+    }
+}
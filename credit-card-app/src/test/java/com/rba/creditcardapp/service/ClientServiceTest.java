@@ -1,11 +1,27 @@
 package com.rba.creditcardapp.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rba.creditcardapp.cache.ClientCache;
+import com.rba.creditcardapp.dto.CardStatusUpdate;
 import com.rba.creditcardapp.dto.ClientRequest;
 import com.rba.creditcardapp.dto.ClientResponse;
+import com.rba.creditcardapp.dto.ClientStatsResponse;
+import com.rba.creditcardapp.dto.CursorPageResponse;
+import com.rba.creditcardapp.events.CardStatusChangedEvent;
+import com.rba.creditcardapp.exception.IllegalStatusTransitionException;
+import com.rba.creditcardapp.exception.StaleStatusUpdateException;
 import com.rba.creditcardapp.utils.ClientMapper;
+import com.rba.creditcardapp.model.CardRequestOutbox;
+import com.rba.creditcardapp.model.CardStatus;
 import com.rba.creditcardapp.model.NewCardRequest;
 import com.rba.creditcardapp.model.Client;
+import com.rba.creditcardapp.repository.CardRequestOutboxRepository;
 import com.rba.creditcardapp.repository.ClientRepository;
+import com.rba.creditcardapp.repository.ClientVersion;
+import com.rba.creditcardapp.repository.ClientSortField;
+import com.rba.creditcardapp.utils.ClientCursor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,13 +29,17 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.kafka.support.JacksonUtils;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -34,16 +54,26 @@ class ClientServiceTest {
     private ClientRepository clientRepository;
 
     @Mock
-    private ExternalApiClientService externalApiClientService;
+    private CardRequestOutboxRepository outboxRepository;
 
     @Mock
     private ClientMapper clientMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ClientCache clientCache;
+
+    private MeterRegistry meterRegistry;
+
     private ClientService clientService;
 
     @BeforeEach
     void setUp() {
-        clientService = new ClientService(clientRepository, clientMapper, externalApiClientService);
+        clientCache = new ClientCache(true, 100, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        meterRegistry = new SimpleMeterRegistry();
+        clientService = new ClientService(clientRepository, clientMapper, outboxRepository, clientCache,
+                eventPublisher, meterRegistry);
     }
 
     @Test
@@ -53,9 +83,8 @@ class ClientServiceTest {
         Client savedClient = createTestClient();
         savedClient.setId(1L);
 
-        when(clientRepository.existsByOib("12345678901")).thenReturn(false);
         when(clientMapper.toEntity(any(ClientRequest.class))).thenReturn(client);
-        when(clientRepository.save(any(Client.class))).thenReturn(savedClient);
+        when(clientRepository.insertIfAbsent(any(Client.class))).thenReturn(Optional.of(savedClient));
 
         Client result = clientService.registerClientFromCardRequest(cardRequest);
 
@@ -63,23 +92,25 @@ class ClientServiceTest {
         assertEquals("John", result.getFirstName());
         assertEquals("12345678901", result.getOib());
 
-        verify(clientRepository).existsByOib("12345678901");
-        verify(clientRepository).save(any(Client.class));
-        verify(externalApiClientService).forwardCardRequestToExternalApi(cardRequest);
+        verify(clientRepository).insertIfAbsent(argThat(c -> c.getOib().equals("12345678901")));
+        verify(clientRepository, never()).existsByOib(any());
+        verify(clientRepository, never()).save(any(Client.class));
+        verify(outboxRepository).save(argThat(entry -> entry.getOib().equals("12345678901")
+                && entry.getStatus() == CardRequestOutbox.Status.PENDING));
     }
 
     @Test
     void registerClientFromCardRequest_ClientAlreadyExists() {
         NewCardRequest cardRequest = createTestCardRequest();
 
-        when(clientRepository.existsByOib("12345678901")).thenReturn(true);
+        when(clientRepository.insertIfAbsent(any(Client.class))).thenReturn(Optional.empty());
 
-        assertThrows(IllegalArgumentException.class,
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
                 () -> clientService.registerClientFromCardRequest(cardRequest));
 
-        verify(clientRepository).existsByOib("12345678901");
+        assertTrue(exception.getMessage().contains("already exists"));
         verify(clientRepository, never()).save(any(Client.class));
-        verify(externalApiClientService, never()).forwardCardRequestToExternalApi(any());
+        verify(outboxRepository, never()).save(any());
     }
 
     @Test
@@ -90,9 +121,8 @@ class ClientServiceTest {
         savedClient.setId(1L);
         ClientResponse expectedResponse = createTestClientResponse();
 
-        when(clientRepository.existsByOib("12345678901")).thenReturn(false);
         when(clientMapper.toEntity(clientRequest)).thenReturn(clientEntity);
-        when(clientRepository.save(clientEntity)).thenReturn(savedClient);
+        when(clientRepository.insertIfAbsent(clientEntity)).thenReturn(Optional.of(savedClient));
         when(clientMapper.toResponse(savedClient)).thenReturn(expectedResponse);
 
         ClientResponse result = clientService.registerClient(clientRequest);
@@ -102,22 +132,25 @@ class ClientServiceTest {
         assertEquals("John", result.getFirstName());
         assertEquals("12345678901", result.getOib());
 
-        verify(clientRepository).existsByOib("12345678901");
         verify(clientMapper).toEntity(clientRequest);
-        verify(clientRepository).save(clientEntity);
+        verify(clientRepository).insertIfAbsent(clientEntity);
+        verify(clientRepository, never()).existsByOib(any());
+        verify(clientRepository, never()).save(any(Client.class));
         verify(clientMapper).toResponse(savedClient);
     }
 
     @Test
     void registerClient_ClientAlreadyExists() {
         ClientRequest clientRequest = createTestClientRequest();
+        Client clientEntity = createTestClient();
 
-        when(clientRepository.existsByOib("12345678901")).thenReturn(true);
+        when(clientMapper.toEntity(clientRequest)).thenReturn(clientEntity);
+        when(clientRepository.insertIfAbsent(clientEntity)).thenReturn(Optional.empty());
 
-        assertThrows(IllegalArgumentException.class,
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
                 () -> clientService.registerClient(clientRequest));
 
-        verify(clientRepository).existsByOib("12345678901");
+        assertTrue(exception.getMessage().contains("already exists"));
         verify(clientRepository, never()).save(any(Client.class));
         verify(clientMapper, never()).toResponse(any());
     }
@@ -157,29 +190,150 @@ class ClientServiceTest {
     }
 
     @Test
-    void deleteByOib_Success() {
+    void findByOib_ServedFromCache() {
+        String oib = "12345678901";
+        Client client = createTestClient();
+        ClientResponse expectedResponse = createTestClientResponse();
+
+        when(clientRepository.findByOib(oib)).thenReturn(Optional.of(client));
+        when(clientMapper.toResponse(client)).thenReturn(expectedResponse);
+
+        clientService.findByOib(oib);
+        Optional<ClientResponse> result = clientService.findByOib(oib);
+
+        assertTrue(result.isPresent());
+        verify(clientRepository, times(1)).findByOib(oib);
+        assertEquals(1, clientCache.getStats().hitCount());
+    }
+
+    @Test
+    void findByOib_NegativeEntryCached() {
         String oib = "12345678901";
 
-        when(clientRepository.existsByOib(oib)).thenReturn(true);
-        doNothing().when(clientRepository).deleteByOib(oib);
+        when(clientRepository.findByOib(oib)).thenReturn(Optional.empty());
 
+        clientService.findByOib(oib);
+        Optional<ClientResponse> result = clientService.findByOib(oib);
+
+        assertTrue(result.isEmpty());
+        verify(clientRepository, times(1)).findByOib(oib);
+    }
+
+    @Test
+    void findVersion_ServedFromCache() {
+        String oib = "12345678901";
+        Client client = createTestClient();
+        ClientResponse cached = createTestClientResponse();
+
+        when(clientRepository.findByOib(oib)).thenReturn(Optional.of(client));
+        when(clientMapper.toResponse(client)).thenReturn(cached);
+        clientService.findByOib(oib);
+
+        Optional<ClientVersion> version = clientService.findVersion(oib);
+
+        assertEquals(Optional.of(new ClientVersion(cached.getId(), cached.getUpdatedAt())), version);
+        verify(clientRepository, never()).findVersionByOib(any());
+    }
+
+    @Test
+    void findVersion_NotCached_ReadsVersion() {
+        String oib = "12345678901";
+        ClientVersion stored = new ClientVersion(1L, LocalDateTime.now());
+
+        when(clientRepository.findVersionByOib(oib)).thenReturn(Optional.of(stored));
+
+        assertEquals(Optional.of(stored), clientService.findVersion(oib));
+        verify(clientRepository, never()).findByOib(any());
+    }
+
+    @Test
+    void findVersion_UnknownOibCached() {
+        String oib = "12345678901";
+
+        when(clientRepository.findByOib(oib)).thenReturn(Optional.empty());
+        clientService.findByOib(oib);
+
+        assertTrue(clientService.findVersion(oib).isEmpty());
+        verify(clientRepository, never()).findVersionByOib(any());
+    }
+
+    @Test
+    void registerClient_ReplacesNegativeEntry() {
+        ClientRequest clientRequest = createTestClientRequest();
+        Client clientEntity = createTestClient();
+        ClientResponse expectedResponse = createTestClientResponse();
+
+        when(clientRepository.findByOib("12345678901")).thenReturn(Optional.empty());
+        when(clientMapper.toEntity(clientRequest)).thenReturn(clientEntity);
+        when(clientRepository.insertIfAbsent(clientEntity)).thenReturn(Optional.of(clientEntity));
+        when(clientMapper.toResponse(clientEntity)).thenReturn(expectedResponse);
+
+        assertTrue(clientService.findByOib("12345678901").isEmpty());
+        clientService.registerClient(clientRequest);
+
+        assertEquals(Optional.of(expectedResponse), clientService.findByOib("12345678901"));
+        verify(clientRepository, times(1)).findByOib("12345678901");
+    }
+
+    @Test
+    void updateClientStatus_RefreshesCache() {
+        String oib = "12345678901";
+        Client existingClient = createTestClient();
+        ClientResponse cachedResponse = createTestClientResponse();
+        ClientResponse updatedResponse = createTestClientResponse();
+        updatedResponse.setCardStatus("APPROVED");
+
+        when(clientRepository.findByOib(oib)).thenReturn(Optional.of(existingClient));
+        when(clientMapper.toResponse(existingClient)).thenReturn(cachedResponse, updatedResponse);
+        when(clientRepository.updateStatusIfNewer(eq(oib), eq(CardStatus.APPROVED), any()))
+                .thenReturn(Optional.of(existingClient));
+
+        clientService.findByOib(oib);
+        clientService.updateClientStatus(oib, "APPROVED");
+
+        assertEquals("APPROVED", clientService.findByOib(oib).orElseThrow().getCardStatus());
+    }
+
+    @Test
+    void deleteByOib_InvalidatesCache() {
+        String oib = "12345678901";
+        Client client = createTestClient();
+
+        when(clientRepository.findByOib(oib)).thenReturn(Optional.of(client), Optional.empty());
+        when(clientMapper.toResponse(client)).thenReturn(createTestClientResponse());
+        when(clientRepository.deleteByOib(oib)).thenReturn(1);
+
+        assertTrue(clientService.findByOib(oib).isPresent());
         clientService.deleteByOib(oib);
 
-        verify(clientRepository).existsByOib(oib);
+        assertTrue(clientService.findByOib(oib).isEmpty());
+    }
+
+    @Test
+    void deleteByOib_Success() {
+        String oib = "12345678901";
+
+        when(clientRepository.deleteByOib(oib)).thenReturn(1);
+
+        assertTrue(clientService.deleteByOib(oib));
+
         verify(clientRepository).deleteByOib(oib);
+        verify(outboxRepository).deleteByOibs(new String[]{oib});
+        verify(clientRepository, never()).existsByOib(any());
     }
 
     @Test
     void deleteByOib_ClientNotFound() {
         String oib = "12345678901";
 
-        when(clientRepository.existsByOib(oib)).thenReturn(false);
+        when(clientRepository.deleteByOib(oib)).thenReturn(0);
+        when(outboxRepository.deleteByOibs(new String[]{oib})).thenReturn(1);
 
-        assertThrows(IllegalArgumentException.class,
-                () -> clientService.deleteByOib(oib));
+        assertFalse(clientService.deleteByOib(oib));
 
-        verify(clientRepository).existsByOib(oib);
-        verify(clientRepository, never()).deleteByOib(oib);
+        verify(clientRepository).deleteByOib(oib);
+        verify(outboxRepository).deleteByOibs(new String[]{oib});
+        verify(clientRepository, never()).existsByOib(any());
     }
 
     @Test
@@ -205,19 +359,128 @@ class ClientServiceTest {
         verify(clientMapper).toResponse(client);
     }
 
+    @Test
+    void searchByName_MapsMatchesInOrder() {
+        Client ivan = createTestClient();
+        ivan.setFirstName("Ivan");
+        Client ivana = createTestClient();
+        ivana.setFirstName("Ivana");
+        ClientResponse ivanResponse = createTestClientResponse();
+        ClientResponse ivanaResponse = createTestClientResponse();
+
+        when(clientRepository.searchByName("Iva", "Iva", 20)).thenReturn(List.of(ivan, ivana));
+        when(clientMapper.toResponse(ivan)).thenReturn(ivanResponse);
+        when(clientMapper.toResponse(ivana)).thenReturn(ivanaResponse);
+
+        List<ClientResponse> result = clientService.searchByName("  Iva ", 20);
+
+        assertEquals(List.of(ivanResponse, ivanaResponse), result);
+    }
+
+    @Test
+    void searchByName_EscapesLikeWildcards() {
+        when(clientRepository.searchByName(any(), any(), anyInt())).thenReturn(List.of());
+
+        clientService.searchByName("a_b%c\\", 10);
+
+        verify(clientRepository).searchByName("a_b%c\\", "a\\_b\\%c\\\\", 10);
+    }
+
+    @Test
+    void searchByName_TooShort() {
+        assertThrows(IllegalArgumentException.class, () -> clientService.searchByName(" ab ", 20));
+        assertThrows(IllegalArgumentException.class, () -> clientService.searchByName(null, 20));
+
+        verify(clientRepository, never()).searchByName(any(), any(), anyInt());
+    }
+
+    @Test
+    void getStats_ListsEveryStatusWithTotal() {
+        when(clientRepository.countByStatus()).thenReturn(List.of(
+                statusCount(CardStatus.PENDING, 7),
+                statusCount(CardStatus.SHIPPED, 3)));
+
+        ClientStatsResponse stats = clientService.getStats();
+
+        assertEquals(10, stats.getTotal());
+        assertEquals(List.of("PENDING", "APPROVED", "REJECTED", "IN_PROGRESS", "COMPLETED", "SHIPPED"),
+                List.copyOf(stats.getByStatus().keySet()));
+        assertEquals(7L, stats.getByStatus().get("PENDING"));
+        assertEquals(0L, stats.getByStatus().get("APPROVED"));
+        assertEquals(3L, stats.getByStatus().get("SHIPPED"));
+        verify(clientRepository, never()).count();
+    }
+
+    @Test
+    void findPage_FirstPageReturnsCursorOfLastRow() {
+        Client first = createTestClient();
+        Client second = createTestClient();
+        second.setId(2L);
+        second.setFirstName("Kate");
+        Client extra = createTestClient();
+        extra.setId(3L);
+
+        when(clientRepository.findPageAfter(ClientSortField.FIRST_NAME, false, null, null, 3))
+                .thenReturn(List.of(first, second, extra));
+        when(clientMapper.toResponse(any(Client.class))).thenReturn(createTestClientResponse());
+
+        CursorPageResponse<ClientResponse> result = clientService.findPage(ClientSortField.FIRST_NAME, false, null, 2);
+
+        assertEquals(2, result.getContent().size());
+        assertTrue(result.isHasNext());
+        ClientCursor cursor = ClientCursor.decode(result.getNextCursor());
+        assertEquals(ClientSortField.FIRST_NAME, cursor.sortField());
+        assertEquals(2L, cursor.id());
+        assertEquals("Kate", cursor.value());
+        verify(clientRepository, never()).count();
+    }
+
+    @Test
+    void findPage_ContinuesAfterCursor() {
+        String cursor = new ClientCursor(ClientSortField.FIRST_NAME, false, 2L, "Kate").encode();
+
+        when(clientRepository.findPageAfter(ClientSortField.FIRST_NAME, false, "Kate", 2L, 11))
+                .thenReturn(List.of(createTestClient()));
+        when(clientMapper.toResponse(any(Client.class))).thenReturn(createTestClientResponse());
+
+        CursorPageResponse<ClientResponse> result = clientService.findPage(ClientSortField.FIRST_NAME, false, cursor, 10);
+
+        assertEquals(1, result.getContent().size());
+        assertFalse(result.isHasNext());
+        assertNull(result.getNextCursor());
+        verify(clientRepository).findPageAfter(ClientSortField.FIRST_NAME, false, "Kate", 2L, 11);
+    }
+
+    @Test
+    void findPage_CursorForDifferentSort() {
+        String cursor = new ClientCursor(ClientSortField.LAST_NAME, false, 2L, "Doe").encode();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> clientService.findPage(ClientSortField.FIRST_NAME, false, cursor, 10));
+
+        verify(clientRepository, never()).findPageAfter(any(), anyBoolean(), any(), any(), anyInt());
+    }
+
+    @Test
+    void findPage_MalformedCursor() {
+        assertThrows(IllegalArgumentException.class,
+                () -> clientService.findPage(ClientSortField.CREATED_AT, false, "not-a-cursor", 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> clientService.findPage(ClientSortField.CREATED_AT, false,
+                        new ClientCursor(ClientSortField.CREATED_AT, false, 1L, "yesterday").encode(), 10));
+    }
+
     @Test
     void updateClientStatus_Success() {
         String oib = "12345678901";
         String newStatus = "APPROVED";
-        Client existingClient = createTestClient();
-        existingClient.setId(1L);
         Client updatedClient = createTestClient();
-        updatedClient.setCardStatus(newStatus);
+        updatedClient.setCardStatus(CardStatus.APPROVED);
         ClientResponse expectedResponse = createTestClientResponse();
         expectedResponse.setCardStatus(newStatus);
 
-        when(clientRepository.findByOib(oib)).thenReturn(Optional.of(existingClient));
-        when(clientRepository.save(existingClient)).thenReturn(updatedClient);
+        when(clientRepository.updateStatusIfNewer(eq(oib), eq(CardStatus.APPROVED), any()))
+                .thenReturn(Optional.of(updatedClient));
         when(clientMapper.toResponse(updatedClient)).thenReturn(expectedResponse);
 
         ClientResponse result = clientService.updateClientStatus(oib, newStatus);
@@ -226,9 +489,12 @@ class ClientServiceTest {
         assertEquals(newStatus, result.getCardStatus());
         assertEquals("John", result.getFirstName());
 
-        verify(clientRepository).findByOib(oib);
-        verify(clientRepository).save(existingClient);
+        verify(clientRepository, never()).findByOib(any());
+        verify(clientRepository, never()).save(any());
         verify(clientMapper).toResponse(updatedClient);
+        verify(eventPublisher).publishEvent(new CardStatusChangedEvent(
+                oib, CardStatus.APPROVED, updatedClient.getUpdatedAt()));
+        assertEquals(1, statusUpdateCount(StatusUpdateOutcome.APPLIED));
     }
 
     @Test
@@ -236,6 +502,8 @@ class ClientServiceTest {
         String oib = "12345678901";
         String newStatus = "APPROVED";
 
+        when(clientRepository.updateStatusIfNewer(eq(oib), eq(CardStatus.APPROVED), any()))
+                .thenReturn(Optional.empty());
         when(clientRepository.findByOib(oib)).thenReturn(Optional.empty());
 
         assertThrows(IllegalArgumentException.class,
@@ -244,6 +512,8 @@ class ClientServiceTest {
         verify(clientRepository).findByOib(oib);
         verify(clientRepository, never()).save(any());
         verify(clientMapper, never()).toResponse(any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+        assertEquals(1, statusUpdateCount(StatusUpdateOutcome.NOT_FOUND));
     }
 
     @Test
@@ -254,8 +524,8 @@ class ClientServiceTest {
         assertThrows(IllegalArgumentException.class,
                 () -> clientService.updateClientStatus(invalidOib, newStatus));
 
+        verify(clientRepository, never()).updateStatusIfNewer(any(), any(), any());
         verify(clientRepository, never()).findByOib(any());
-        verify(clientRepository, never()).save(any());
     }
 
     @Test
@@ -266,11 +536,269 @@ class ClientServiceTest {
         assertThrows(IllegalArgumentException.class,
                 () -> clientService.updateClientStatus(oib, invalidStatus));
 
+        verify(clientRepository, never()).updateStatusIfNewer(any(), any(), any());
+        verify(clientRepository, never()).findByOib(any());
+    }
+
+    @Test
+    void updateClientStatus_UnknownStatus() {
+        String oib = "12345678901";
+
+        assertThrows(IllegalArgumentException.class,
+                () -> clientService.updateClientStatus(oib, "LOST"));
+
+        verify(clientRepository, never()).updateStatusIfNewer(any(), any(), any());
+        verify(clientRepository, never()).findByOib(any());
+    }
+
+    @Test
+    void updateClientStatus_CaseInsensitive() {
+        String oib = "12345678901";
+        Client updatedClient = createTestClient();
+        updatedClient.setCardStatus(CardStatus.APPROVED);
+
+        when(clientRepository.updateStatusIfNewer(eq(oib), eq(CardStatus.APPROVED), any()))
+                .thenReturn(Optional.of(updatedClient));
+        when(clientMapper.toResponse(updatedClient)).thenReturn(createTestClientResponse());
+
+        clientService.updateClientStatus(oib, " approved ");
+
+        verify(clientRepository).updateStatusIfNewer(eq(oib), eq(CardStatus.APPROVED), any());
+    }
+
+    @Test
+    void updateClientStatus_IllegalTransition() {
+        String oib = "12345678901";
+        Client existingClient = createTestClient();
+        existingClient.setCardStatus(CardStatus.REJECTED);
+        existingClient.setStatusEventAt(LocalDateTime.now().minusMinutes(1));
+
+        when(clientRepository.updateStatusIfNewer(eq(oib), eq(CardStatus.SHIPPED), any()))
+                .thenReturn(Optional.empty());
+        when(clientRepository.findByOib(oib)).thenReturn(Optional.of(existingClient));
+
+        IllegalStatusTransitionException exception = assertThrows(IllegalStatusTransitionException.class,
+                () -> clientService.updateClientStatus(oib, "SHIPPED"));
+
+        assertEquals(CardStatus.REJECTED, exception.getFrom());
+        assertEquals(CardStatus.SHIPPED, exception.getTo());
+        verify(clientRepository, never()).save(any());
+        assertEquals(1, statusUpdateCount(StatusUpdateOutcome.REJECTED));
+    }
+
+    @Test
+    void updateClientStatus_NewerChangeWins() {
+        String oib = "12345678901";
+        Client existingClient = createTestClient();
+        existingClient.setStatusEventAt(LocalDateTime.now().plusMinutes(1));
+
+        when(clientRepository.updateStatusIfNewer(eq(oib), eq(CardStatus.APPROVED), any()))
+                .thenReturn(Optional.empty());
+        when(clientRepository.findByOib(oib)).thenReturn(Optional.of(existingClient));
+
+        assertThrows(StaleStatusUpdateException.class,
+                () -> clientService.updateClientStatus(oib, "APPROVED"));
+        assertEquals(1, statusUpdateCount(StatusUpdateOutcome.STALE));
+    }
+
+    @Test
+    void applyStatusUpdate_Applied() {
+        LocalDateTime issuedAt = LocalDateTime.of(2025, 1, 10, 12, 0);
+        CardStatusUpdate statusUpdate = CardStatusUpdate.builder()
+                .oib("12345678901").status("APPROVED").timestamp(issuedAt).build();
+        Client updatedClient = createTestClient();
+        updatedClient.setCardStatus(CardStatus.APPROVED);
+
+        when(clientRepository.updateStatusIfNewer("12345678901", CardStatus.APPROVED, issuedAt))
+                .thenReturn(Optional.of(updatedClient));
+        when(clientMapper.toResponse(updatedClient)).thenReturn(createTestClientResponse());
+
+        assertEquals(StatusUpdateOutcome.APPLIED, clientService.applyStatusUpdate(statusUpdate));
         verify(clientRepository, never()).findByOib(any());
+        assertEquals(1, statusUpdateCount(StatusUpdateOutcome.APPLIED));
+    }
+
+    @Test
+    void applyStatusUpdate_OlderThanLastChangeIsStale() {
+        LocalDateTime issuedAt = LocalDateTime.of(2025, 1, 10, 12, 0);
+        CardStatusUpdate statusUpdate = CardStatusUpdate.builder()
+                .oib("12345678901").status("APPROVED").timestamp(issuedAt).build();
+        Client currentClient = createTestClient();
+        currentClient.setCardStatus(CardStatus.SHIPPED);
+        currentClient.setStatusEventAt(issuedAt.plusSeconds(5));
+
+        when(clientRepository.updateStatusIfNewer("12345678901", CardStatus.APPROVED, issuedAt))
+                .thenReturn(Optional.empty());
+        when(clientRepository.findByOib("12345678901")).thenReturn(Optional.of(currentClient));
+
+        assertEquals(StatusUpdateOutcome.STALE, clientService.applyStatusUpdate(statusUpdate));
+        assertEquals(1, statusUpdateCount(StatusUpdateOutcome.STALE));
+        assertEquals(0, statusUpdateCount(StatusUpdateOutcome.REJECTED));
+    }
+
+    @Test
+    void applyStatusUpdate_FutureTimestampCountsAsNow() {
+        LocalDateTime issuedAt = LocalDateTime.now().plusHours(1);
+        CardStatusUpdate statusUpdate = CardStatusUpdate.builder()
+                .oib("12345678901").status("APPROVED").timestamp(issuedAt).build();
+
+        when(clientRepository.updateStatusIfNewer(eq("12345678901"), eq(CardStatus.APPROVED), any()))
+                .thenReturn(Optional.empty());
+
+        clientService.applyStatusUpdate(statusUpdate);
+
+        verify(clientRepository).updateStatusIfNewer(eq("12345678901"), eq(CardStatus.APPROVED),
+                argThat(timestamp -> !timestamp.isAfter(LocalDateTime.now())));
+    }
+
+    @Test
+    void applyStatusUpdate_SameSecondUpdatesKeepTheirOrder() throws Exception {
+        ObjectMapper objectMapper = JacksonUtils.enhancedObjectMapper();
+        LocalDateTime second = LocalDateTime.of(2025, 1, 10, 12, 0, 0);
+        CardStatusUpdate approved = objectMapper.readValue(objectMapper.writeValueAsString(CardStatusUpdate.builder()
+                .oib("12345678901").status("APPROVED").timestamp(second.plusNanos(250_000_000)).build()),
+                CardStatusUpdate.class);
+        CardStatusUpdate inProgress = objectMapper.readValue(objectMapper.writeValueAsString(CardStatusUpdate.builder()
+                .oib("12345678901").status("IN_PROGRESS").timestamp(second.plusNanos(750_000_000)).build()),
+                CardStatusUpdate.class);
+        assertTrue(inProgress.getTimestamp().isAfter(approved.getTimestamp()));
+
+        Client current = createTestClient();
+        current.setCardStatus(CardStatus.APPROVED);
+        current.setStatusEventAt(approved.getTimestamp());
+        when(clientRepository.updateStatusIfNewer("12345678901", CardStatus.IN_PROGRESS, inProgress.getTimestamp()))
+                .thenReturn(Optional.of(current));
+        when(clientMapper.toResponse(current)).thenReturn(createTestClientResponse());
+
+        assertEquals(StatusUpdateOutcome.APPLIED, clientService.applyStatusUpdate(inProgress));
+        // A change made at the same instant is not newer; only the transition check decides
+        assertEquals(StatusUpdateOutcome.REJECTED, ClientService.classifyMiss(current,
+                CardStatus.PENDING.getAllowedFromMask(), approved.getTimestamp()));
+        assertEquals(StatusUpdateOutcome.STALE, ClientService.classifyMiss(current,
+                CardStatus.PENDING.getAllowedFromMask(), approved.getTimestamp().minusNanos(1_000)));
+    }
+
+    @Test
+    void applyStatusUpdate_NotFound() {
+        CardStatusUpdate statusUpdate = new CardStatusUpdate("12345678901", "APPROVED", "Test");
+
+        when(clientRepository.updateStatusIfNewer(eq("12345678901"), eq(CardStatus.APPROVED), any()))
+                .thenReturn(Optional.empty());
+        when(clientRepository.findByOib("12345678901")).thenReturn(Optional.empty());
+
+        assertEquals(StatusUpdateOutcome.NOT_FOUND, clientService.applyStatusUpdate(statusUpdate));
+        assertEquals(1, statusUpdateCount(StatusUpdateOutcome.NOT_FOUND));
+    }
+
+    @Test
+    void updateClientStatuses_SingleBulkUpdate() {
+        LocalDateTime issuedAt = LocalDateTime.of(2025, 1, 10, 12, 0);
+        List<CardStatusUpdate> updates = List.of(
+                CardStatusUpdate.builder().oib("12345678901").status("APPROVED").timestamp(issuedAt).build(),
+                CardStatusUpdate.builder().oib("10987654321").status("shipped").timestamp(issuedAt).build());
+
+        when(clientRepository.bulkUpdateCardStatus(
+                new String[]{"12345678901", "10987654321"},
+                new Short[]{CardStatus.APPROVED.getCode(), CardStatus.SHIPPED.getCode()},
+                new Integer[]{CardStatus.APPROVED.getAllowedFromMask(), CardStatus.SHIPPED.getAllowedFromMask()},
+                new String[]{"2025-01-10T12:00", "2025-01-10T12:00"}))
+                .thenReturn(List.of("12345678901", "10987654321"));
+
+        Map<String, StatusUpdateOutcome> result = clientService.updateClientStatuses(chains(updates));
+
+        assertEquals(Map.of("12345678901", StatusUpdateOutcome.APPLIED,
+                "10987654321", StatusUpdateOutcome.APPLIED), result);
+        verify(clientRepository).bulkUpdateCardStatus(any(), any(), any(), any());
+        verify(clientRepository, never()).findByOibIn(any());
         verify(clientRepository, never()).save(any());
+        verify(eventPublisher).publishEvent(new CardStatusChangedEvent("12345678901", CardStatus.APPROVED, issuedAt));
+        verify(eventPublisher).publishEvent(new CardStatusChangedEvent("10987654321", CardStatus.SHIPPED, issuedAt));
+    }
+
+    @Test
+    void updateClientStatuses_ClassifiesMisses() {
+        LocalDateTime issuedAt = LocalDateTime.of(2025, 1, 10, 12, 0);
+        List<CardStatusUpdate> updates = List.of(
+                CardStatusUpdate.builder().oib("12345678901").status("APPROVED").timestamp(issuedAt).build(),
+                CardStatusUpdate.builder().oib("10987654321").status("SHIPPED").timestamp(issuedAt).build(),
+                CardStatusUpdate.builder().oib("11111111111").status("APPROVED").timestamp(issuedAt).build(),
+                CardStatusUpdate.builder().oib("22222222222").status("APPROVED").timestamp(issuedAt).build());
+        Client newer = createTestClient();
+        newer.setOib("10987654321");
+        newer.setStatusEventAt(issuedAt.plusMinutes(1));
+        Client rejected = createTestClient();
+        rejected.setOib("11111111111");
+        rejected.setCardStatus(CardStatus.COMPLETED);
+        rejected.setStatusEventAt(issuedAt.minusMinutes(1));
+
+        when(clientRepository.bulkUpdateCardStatus(any(), any(), any(), any())).thenReturn(List.of("12345678901"));
+        when(clientRepository.findByOibIn(any())).thenReturn(List.of(newer, rejected));
+
+        Map<String, StatusUpdateOutcome> result = clientService.updateClientStatuses(chains(updates));
+
+        assertEquals(Map.of(
+                "12345678901", StatusUpdateOutcome.APPLIED,
+                "10987654321", StatusUpdateOutcome.STALE,
+                "11111111111", StatusUpdateOutcome.REJECTED,
+                "22222222222", StatusUpdateOutcome.NOT_FOUND), result);
+        verify(clientRepository).findByOibIn(argThat(oibs -> oibs.size() == 3 && !oibs.contains("12345678901")));
+        verify(eventPublisher, times(1)).publishEvent(any(Object.class));
+        assertEquals(1, statusUpdateCount(StatusUpdateOutcome.STALE));
+        assertEquals(1, statusUpdateCount(StatusUpdateOutcome.NOT_FOUND));
+    }
+
+    @Test
+    void updateClientStatuses_ChainAllowedFromAnyStep() {
+        LocalDateTime issuedAt = LocalDateTime.of(2025, 1, 10, 12, 0);
+        List<CardStatusUpdate> chain = List.of(
+                CardStatusUpdate.builder().oib("12345678901").status("APPROVED").timestamp(issuedAt).build(),
+                CardStatusUpdate.builder().oib("12345678901").status("IN_PROGRESS").timestamp(issuedAt.plusSeconds(1)).build());
+
+        when(clientRepository.bulkUpdateCardStatus(
+                new String[]{"12345678901"},
+                new Short[]{CardStatus.IN_PROGRESS.getCode()},
+                new Integer[]{CardStatus.APPROVED.getAllowedFromMask() | CardStatus.IN_PROGRESS.getAllowedFromMask()},
+                new String[]{"2025-01-10T12:00:01"}))
+                .thenReturn(List.of("12345678901"));
+
+        Map<String, StatusUpdateOutcome> result = clientService.updateClientStatuses(List.of(chain));
+
+        assertEquals(Map.of("12345678901", StatusUpdateOutcome.APPLIED), result);
+        // From PENDING only the first step is allowed, which is what lets the chain through
+        assertTrue((CardStatus.IN_PROGRESS.getAllowedFromMask() & (1 << CardStatus.PENDING.getCode())) == 0);
+        verify(eventPublisher).publishEvent(new CardStatusChangedEvent(
+                "12345678901", CardStatus.IN_PROGRESS, issuedAt.plusSeconds(1)));
+    }
+
+    @Test
+    void updateClientStatuses_InvalidOib() {
+        List<CardStatusUpdate> updates = List.of(new CardStatusUpdate("123", "APPROVED", "Batch"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> clientService.updateClientStatuses(chains(updates)));
+
+        verify(clientRepository, never()).bulkUpdateCardStatus(any(), any(), any(), any());
+    }
+
+    @Test
+    void updateClientStatuses_UnknownStatus() {
+        List<CardStatusUpdate> updates = List.of(new CardStatusUpdate("12345678901", "LOST", "Batch"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> clientService.updateClientStatuses(chains(updates)));
+
+        verify(clientRepository, never()).bulkUpdateCardStatus(any(), any(), any(), any());
     }
 
     // Helper methods
+    private static List<List<CardStatusUpdate>> chains(List<CardStatusUpdate> updates) {
+        return updates.stream().map(List::of).toList();
+    }
+
+    private double statusUpdateCount(StatusUpdateOutcome outcome) {
+        return meterRegistry.get("client.status.updates").tag("outcome", outcome.name()).counter().count();
+    }
+
     private NewCardRequest createTestCardRequest() {
         NewCardRequest cardRequest = new NewCardRequest();
         cardRequest.setFirstName("John");
@@ -295,7 +823,7 @@ class ClientServiceTest {
         client.setFirstName("John");
         client.setLastName("Doe");
         client.setOib("12345678901");
-        client.setCardStatus("PENDING");
+        client.setCardStatus(CardStatus.PENDING);
         client.setCreatedAt(LocalDateTime.now());
         client.setUpdatedAt(LocalDateTime.now());
         return client;
@@ -312,4 +840,18 @@ class ClientServiceTest {
         response.setUpdatedAt(LocalDateTime.now());
         return response;
     }
-}
\ No newline at end of file
+
+    private static ClientRepository.StatusCount statusCount(CardStatus status, long count) {
+        return new ClientRepository.StatusCount() {
+            @Override
+            public short getCardStatus() {
+                return status.getCode();
+            }
+
+            @Override
+            public long getClientCount() {
+                return count;
+            }
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package com.rba.creditcardapp.service;
+
+import com.rba.creditcardapp.model.CardStatus;
+import com.rba.creditcardapp.repository.ClientRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClientStatusCountReconcilerTest {
+
+    @Mock
+    private ClientRepository clientRepository;
+
+    private MeterRegistry meterRegistry;
+
+    private ClientStatusCountReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reconciler = new ClientStatusCountReconciler(clientRepository, meterRegistry);
+    }
+
+    @Test
+    void reconcile_CountsCorrectedStatuses() {
+        when(clientRepository.reconcileStatusCounts())
+                .thenReturn(Map.of(CardStatus.PENDING, 2L, CardStatus.APPROVED, -1L));
+
+        reconciler.reconcile();
+
+        assertEquals(2.0, corrections());
+    }
+
+    @Test
+    void reconcile_NoDrift() {
+        when(clientRepository.reconcileStatusCounts()).thenReturn(Map.of());
+
+        reconciler.reconcile();
+
+        assertEquals(0.0, corrections());
+    }
+
+    @Test
+    void reconcile_FailureIsNotPropagated() {
+        when(clientRepository.reconcileStatusCounts()).thenThrow(new IllegalStateException("connection refused"));
+
+        assertDoesNotThrow(() -> reconciler.reconcile());
+        assertEquals(0.0, corrections());
+    }
+
+    private double corrections() {
+        return meterRegistry.get("client.stats.corrections").counter().count();
+    }
+}
@@ -1,37 +1,262 @@
 package com.rba.creditcardapp.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rba.creditcardapp.exception.ExternalApiException;
+import com.rba.creditcardapp.exception.ExternalApiRejectedException;
 import com.rba.creditcardapp.model.NewCardRequest;
+import com.rba.creditcardapp.resilience.CircuitBreaker;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
 
-@ExtendWith(MockitoExtension.class)
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against a local stub of the external card API.
+ */
 class ExternalApiClientServiceTest {
 
-    @Mock
-    private RestTemplate restTemplate;
+    private static final String ENDPOINT = "/api/v1/card-request";
 
-    private ExternalApiClientService externalApiClientService;
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private HttpClient httpClient;
+
+    private final AtomicInteger responseStatus = new AtomicInteger(201);
+    private final AtomicInteger responseDelayMillis = new AtomicInteger(0);
+    private final AtomicReference<String> lastBody = new AtomicReference<>();
+    private final AtomicInteger received = new AtomicInteger();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @BeforeEach
-    void setUp() {
-        externalApiClientService = new ExternalApiClientService(restTemplate);
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(ENDPOINT, exchange -> {
+            received.incrementAndGet();
+            lastBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            sleep(responseDelayMillis.get());
+            exchange.sendResponseHeaders(responseStatus.get(), -1);
+            exchange.close();
+        });
+        serverExecutor = Executors.newFixedThreadPool(50);
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(1))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void sendCardRequestAsync_WithTestData() {
+        ExternalApiClientService externalApiClientService = createService(false, 10, Duration.ofSeconds(1));
+
+        externalApiClientService.sendCardRequestAsync(createTestCardRequest("12345678901"), null).join();
+
+        // Simulation mode: nothing reaches the external API
+        assertEquals(0, received.get());
+        assertEquals(1, requestCount("SUCCESS"));
+    }
+
+    @Test
+    void sendCardRequestAsync_Success() {
+        ExternalApiClientService externalApiClientService = createService(true, 10, Duration.ofSeconds(1));
+
+        externalApiClientService.sendCardRequestAsync(createTestCardRequest("12345678901"), null).join();
+
+        assertEquals(1, received.get());
+        assertTrue(lastBody.get().contains("\"oib\":\"12345678901\""));
+        assertEquals(0, externalApiClientService.getInFlight());
+        assertEquals(1, requestCount("SUCCESS"));
+    }
+
+    @Test
+    void sendCardRequestAsync_ErrorStatus_FailsWithExternalApiException() {
+        responseStatus.set(503);
+        ExternalApiClientService externalApiClientService = createService(true, 10, Duration.ofSeconds(1));
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> externalApiClientService.sendCardRequestAsync(createTestCardRequest("12345678901"), null).join());
+
+        assertInstanceOf(ExternalApiException.class, exception.getCause());
+        assertEquals(1, requestCount("FAILURE"));
     }
 
     @Test
-    void forwardCardRequestToExternalApi_WithTestData() {
+    void sendCardRequestAsync_CircuitOpen_FailsFastWithoutCallingApi() {
+        responseStatus.set(503);
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 2, 2, 50, Duration.ofMinutes(1), 1, null);
+        ExternalApiClientService externalApiClientService =
+                createService(true, 10, Duration.ofSeconds(1), circuitBreaker, false);
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(CompletionException.class, () -> externalApiClientService
+                    .sendCardRequestAsync(createTestCardRequest("12345678901"), null).join());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        CompletableFuture<Void> refused =
+                externalApiClientService.sendCardRequestAsync(createTestCardRequest("12345678901"), null);
+
+        assertTrue(refused.isCompletedExceptionally());
+        CompletionException exception = assertThrows(CompletionException.class, refused::join);
+        assertInstanceOf(ExternalApiRejectedException.class, exception.getCause());
+        assertEquals(2, received.get());
+        assertEquals(1, requestCount("REJECTED"));
+    }
+
+    @Test
+    void sendCardRequestAsync_SlowResponse_IsHedged() {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicReference<String> idempotencyKey = new AtomicReference<>();
+        server.removeContext(ENDPOINT);
+        server.createContext(ENDPOINT, exchange -> {
+            idempotencyKey.set(exchange.getRequestHeaders().getFirst("Idempotency-Key"));
+            // Only the first copy is slow
+            sleep(calls.incrementAndGet() == 1 ? 1000 : 0);
+            exchange.sendResponseHeaders(201, -1);
+            exchange.close();
+        });
+        ExternalApiClientService externalApiClientService = createService(true, 10, Duration.ofSeconds(5),
+                new CircuitBreaker("test", 10, 10, 50, Duration.ofMinutes(1), 1, null), true);
+
+        long start = System.nanoTime();
+        externalApiClientService.sendCardRequestAsync(createTestCardRequest("12345678901"), "card-request-1").join();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis < 1000, "took " + elapsedMillis + " ms");
+        assertEquals(2, calls.get());
+        assertEquals("card-request-1", idempotencyKey.get());
+        assertEquals(1, externalApiClientService.getHedged());
+        assertEquals(1, externalApiClientService.getHedgeWins());
+    }
+
+    @Test
+    void sendCardRequestAsync_Timeout_FailsWithExternalApiException() {
+        responseDelayMillis.set(500);
+        ExternalApiClientService externalApiClientService = createService(true, 10, Duration.ofMillis(100));
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> externalApiClientService.sendCardRequestAsync(createTestCardRequest("12345678901"), null).join());
+
+        assertInstanceOf(ExternalApiException.class, exception.getCause());
+    }
+
+    @Test
+    void sendCardRequestAsync_InFlightLimitReached_FailsFast() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        server.removeContext(ENDPOINT);
+        server.createContext(ENDPOINT, exchange -> {
+            await(release);
+            exchange.sendResponseHeaders(201, -1);
+            exchange.close();
+        });
+        ExternalApiClientService externalApiClientService = createService(true, 1, Duration.ofSeconds(5));
+
+        CompletableFuture<Void> first = externalApiClientService.sendCardRequestAsync(createTestCardRequest("12345678901"), null);
+        CompletableFuture<Void> second = externalApiClientService.sendCardRequestAsync(createTestCardRequest("12345678902"), null);
+
+        assertTrue(second.isCompletedExceptionally());
+        assertEquals(1, requestCount("REJECTED"));
+        assertEquals(1, externalApiClientService.getInFlight());
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals(0, externalApiClientService.getInFlight());
+    }
+
+    @Test
+    void sendCardRequestAsync_ConcurrentRequestsOverlapUnderLatency() {
+        int requests = 40;
+        responseDelayMillis.set(100);
+        ExternalApiClientService externalApiClientService = createService(true, requests, Duration.ofSeconds(5));
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            futures.add(externalApiClientService.sendCardRequestAsync(
+                    createTestCardRequest(String.format("%011d", i)), null));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(requests, received.get());
+        // Sequential calls could not finish before requests * 100 ms; overlapping ones take
+        // little more than 100 ms, which leaves ample room for a slow machine
+        assertTrue(elapsedMillis < requests * 100L, "took " + elapsedMillis + " ms");
+    }
+
+    private ExternalApiClientService createService(boolean enabled, int maxInFlight, Duration requestTimeout) {
+        return createService(enabled, maxInFlight, requestTimeout,
+                new CircuitBreaker("test", 10, 10, 50, Duration.ofMinutes(1), 1, null), false);
+    }
+
+    private ExternalApiClientService createService(boolean enabled, int maxInFlight, Duration requestTimeout,
+                                                   CircuitBreaker circuitBreaker, boolean hedging) {
+        ExternalApiClientService service = new ExternalApiClientService(httpClient, new ObjectMapper(),
+                circuitBreaker, requestTimeout, maxInFlight, hedging, Duration.ofMillis(50), meterRegistry);
+        ReflectionTestUtils.setField(service, "externalApiEnabled", enabled);
+        ReflectionTestUtils.setField(service, "externalApiBaseUrl",
+                "http://localhost:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(service, "cardRequestEndpoint", ENDPOINT);
+        return service;
+    }
+
+    private long requestCount(String outcome) {
+        return meterRegistry.get("external.api.requests").tag("outcome", outcome).timer().count();
+    }
+
+    private static NewCardRequest createTestCardRequest(String oib) {
         NewCardRequest cardRequest = new NewCardRequest();
         cardRequest.setFirstName("Test");
         cardRequest.setLastName("User");
-        cardRequest.setOib("12345678901");
+        cardRequest.setOib(oib);
         cardRequest.setStatus("PENDING");
+        return cardRequest;
+    }
 
-        externalApiClientService.forwardCardRequestToExternalApi(cardRequest);
+    private static void sleep(int millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-        // We're testing that the method runs without errors
-        // Since the API is disabled, no actual HTTP calls are made
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
-}
\ No newline at end of file
+}
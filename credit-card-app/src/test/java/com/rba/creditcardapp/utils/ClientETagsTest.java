@@ -0,0 +1,59 @@
+package com.rba.creditcardapp.utils;
+
+import com.rba.creditcardapp.dto.ClientResponse;
+import com.rba.creditcardapp.dto.CursorPageResponse;
+import com.rba.creditcardapp.repository.ClientVersion;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientETagsTest {
+
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2025, 1, 10, 12, 0, 0, 123_456_000);
+
+    @Test
+    void of_VersionAndResponseAgree() {
+        String fromVersion = ClientETags.of(new ClientVersion(1L, UPDATED_AT));
+        String fromResponse = ClientETags.of(client(1L, UPDATED_AT));
+
+        assertEquals(fromVersion, fromResponse);
+        assertTrue(fromVersion.startsWith("W/\""));
+    }
+
+    @Test
+    void of_ChangesWithUpdateTime() {
+        assertNotEquals(ClientETags.of(client(1L, UPDATED_AT)),
+                ClientETags.of(client(1L, UPDATED_AT.plusNanos(1_000))));
+        assertNotEquals(ClientETags.of(client(1L, UPDATED_AT)), ClientETags.of(client(2L, UPDATED_AT)));
+    }
+
+    @Test
+    void of_WithoutUpdateTime() {
+        assertEquals("W/\"1-0\"", ClientETags.of(new ClientVersion(1L, null)));
+    }
+
+    @Test
+    void ofPage_CoversRowsOrderAndCursor() {
+        ClientResponse first = client(1L, UPDATED_AT);
+        ClientResponse second = client(2L, UPDATED_AT);
+        String tag = ClientETags.ofPage(new CursorPageResponse<>(List.of(first, second), 2, "abc", true));
+
+        assertEquals(tag, ClientETags.ofPage(new CursorPageResponse<>(
+                List.of(client(1L, UPDATED_AT), client(2L, UPDATED_AT)), 2, "abc", true)));
+        assertNotEquals(tag, ClientETags.ofPage(new CursorPageResponse<>(List.of(second, first), 2, "abc", true)));
+        assertNotEquals(tag, ClientETags.ofPage(new CursorPageResponse<>(
+                List.of(first, client(2L, UPDATED_AT.plusSeconds(1))), 2, "abc", true)));
+        assertNotEquals(tag, ClientETags.ofPage(new CursorPageResponse<>(List.of(first, second), 2, "abd", true)));
+    }
+
+    private static ClientResponse client(Long id, LocalDateTime updatedAt) {
+        ClientResponse response = new ClientResponse();
+        response.setId(id);
+        response.setOib("12345678901");
+        response.setUpdatedAt(updatedAt);
+        return response;
+    }
+}
@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import ClientForm from './components/ClientForm';
 import ClientList from './components/ClientList';
 import SearchClient from './components/SearchClient';
@@ -36,6 +36,21 @@ function App() {
     fetchClients();
   }, [currentPage, pageSize, sortBy, sortDirection]);
 
+  // Status changes are pushed by the server; only a reset needs a reload
+  const fetchClientsRef = useRef(fetchClients);
+  fetchClientsRef.current = fetchClients;
+
+  useEffect(() => {
+    return clientAPI.subscribeToStatusChanges(
+      (change) => setClients((current) => current.map((client) =>
+        client.oib === change.oib
+          ? { ...client, cardStatus: change.status, updatedAt: change.changedAt }
+          : client
+      )),
+      () => fetchClientsRef.current()
+    );
+  }, []);
+
   const handleClientCreated = (newClient) => {
     fetchClients(0);
   };
@@ -1,45 +1,70 @@
 import React, { useState } from 'react';
 import { clientAPI } from '../services/api';
 
+const MIN_NAME_LENGTH = 3;
+const NAME_RESULT_LIMIT = 20;
+
+const isOib = (value) => /^\d{11}$/.test(value);
+
 const SearchClient = ({ onClientFound }) => {
-  const [searchOib, setSearchOib] = useState('');
+  const [searchQuery, setSearchQuery] = useState('');
   const [searchResult, setSearchResult] = useState(null);
+  const [nameResults, setNameResults] = useState([]);
   const [loading, setLoading] = useState(false);
   const [message, setMessage] = useState('');
 
+  const query = searchQuery.trim();
+  const canSearch = isOib(query) || query.length >= MIN_NAME_LENGTH;
+
+  const selectClient = (client) => {
+    setSearchResult(client);
+    if (onClientFound) {
+      onClientFound(client);
+    }
+  };
+
   const handleSearch = async (e) => {
     e.preventDefault();
-    
-    if (searchOib.length !== 11) {
-      setMessage('OIB must be exactly 11 characters');
+
+    if (!canSearch) {
+      setMessage(`Enter an 11-digit OIB or at least ${MIN_NAME_LENGTH} characters of a name`);
       return;
     }
 
     setLoading(true);
     setMessage('');
     setSearchResult(null);
+    setNameResults([]);
 
     try {
-      console.log('Searching for OIB:', searchOib);
-      const response = await clientAPI.getClientByOib(searchOib);
-      console.log('Search response:', response);
-      
-      setSearchResult(response.data);
-      setMessage('Client found!');
-      
-      if (onClientFound) {
-        onClientFound(response.data);
+      if (isOib(query)) {
+        console.log('Searching for OIB:', query);
+        const response = await clientAPI.getClientByOib(query);
+        console.log('Search response:', response);
+
+        setMessage('Client found!');
+        selectClient(response.data);
+      } else {
+        console.log('Searching for name:', query);
+        const response = await clientAPI.searchClients(query, NAME_RESULT_LIMIT);
+
+        if (response.data.length === 0) {
+          setMessage(`No clients found matching "${query}"`);
+        } else {
+          setNameResults(response.data);
+          setMessage(`Found ${response.data.length} matching client(s)`);
+        }
       }
     } catch (error) {
       console.error('Search error details:', error);
-      
+
       // Improved error handling
       if (error.isNetworkError) {
         setMessage('Network error: Cannot connect to server. Make sure the backend is running.');
       } else if (error.isTimeout) {
         setMessage('Request timeout: Server is taking too long to respond.');
       } else if (error.status === 404) {
-        setMessage(`Client with OIB ${searchOib} not found`);
+        setMessage(`Client with OIB ${query} not found`);
       } else if (error.status === 500) {
         setMessage('Server error: Please try again later.');
       } else if (error.status >= 400 && error.status < 500) {
@@ -54,19 +79,19 @@ const SearchClient = ({ onClientFound }) => {
 
   return (
     <div className="card">
-      <h2>Search Client by OIB</h2>
-      
+      <h2>Search Client</h2>
+
       <form onSubmit={handleSearch} className="search-form">
         <div className="form-group">
           <input
             type="text"
-            placeholder="Enter OIB (11 characters)"
-            value={searchOib}
-            onChange={(e) => setSearchOib(e.target.value)}
-            maxLength="11"
+            placeholder="Enter OIB (11 digits) or name"
+            value={searchQuery}
+            onChange={(e) => setSearchQuery(e.target.value)}
+            maxLength="100"
             required
           />
-          <button type="submit" disabled={loading || searchOib.length !== 11}>
+          <button type="submit" disabled={loading || !canSearch}>
             {loading ? 'Searching...' : 'Search'}
           </button>
         </div>
@@ -74,14 +99,26 @@ const SearchClient = ({ onClientFound }) => {
 
       {message && (
         <div className={`message ${
-          message.includes('error') || message.includes('Error') || message.includes('not found') 
-            ? 'error' 
+          message.includes('error') || message.includes('Error') || message.includes('not found') || message.startsWith('No clients')
+            ? 'error'
             : 'success'
         }`}>
           {message}
         </div>
       )}
 
+      {nameResults.length > 0 && (
+        <ul className="search-results">
+          {nameResults.map((client) => (
+            <li key={client.oib}>
+              <button type="button" onClick={() => selectClient(client)}>
+                {client.firstName} {client.lastName} <span>({client.oib})</span>
+              </button>
+            </li>
+          ))}
+        </ul>
+      )}
+
       {searchResult && (
         <div className="search-result">
           <h3>Client Found:</h3>
@@ -97,4 +134,4 @@ const SearchClient = ({ onClientFound }) => {
   );
 };
 
-export default SearchClient;
\ No newline at end of file
+export default SearchClient;
@@ -54,11 +54,22 @@ export const clientAPI = {
   
   getClientByOib: (oib) => api.get(`/clients/${oib}`),
   
+  searchClients: (q, limit = 20) => api.get('/clients/search', { params: { q, limit } }),
+  
   deleteClient: (oib) => api.delete(`/clients/${oib}`),
   
   updateStatus: (oib, status) => api.patch(`/clients/${oib}/status`, { status }),
   
   createCardRequest: (cardRequest) => api.post('/card-requests', cardRequest),
+  
+  // EventSource reconnects on its own and resumes from the last event it received.
+  // Returns a function that closes the stream.
+  subscribeToStatusChanges: (onChange, onReset) => {
+    const source = new EventSource(`${API_BASE_URL}/clients/events`);
+    source.addEventListener('status', (event) => onChange(JSON.parse(event.data)));
+    source.addEventListener('reset', () => onReset());
+    return () => source.close();
+  },
 };
 
 export const testConnection = async () => {